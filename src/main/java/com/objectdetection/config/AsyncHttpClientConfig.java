@@ -0,0 +1,40 @@
+package com.objectdetection.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking HTTP client shared by inference, URL download and storage upload on the
+ * {@code nonblocking} request path. Requests in flight hold no thread; a few threads run
+ * the completions, however many requests are waiting on slow backends.
+ */
+@Configuration
+public class AsyncHttpClientConfig {
+
+    @Value("${detection.async.io-threads:4}")
+    private int ioThreads;
+
+    @Value("${detection.async.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Bean
+    public HttpClient asyncHttpClient() {
+        // The executor stays private to the client: exposing it as a bean would replace Boot's own task executor
+        AtomicInteger threadCount = new AtomicInteger();
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newFixedThreadPool(Math.max(1, ioThreads), runnable -> {
+                    Thread thread = new Thread(runnable, "detection-async-io-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+}
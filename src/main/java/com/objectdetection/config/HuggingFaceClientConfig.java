@@ -0,0 +1,78 @@
+package com.objectdetection.config;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived, pooled HTTP client for the Hugging Face inference API so that
+ * detections reuse kept-alive TCP/TLS connections instead of handshaking per image.
+ */
+@Configuration
+public class HuggingFaceClientConfig {
+
+    @Value("${huggingface.http.max-total:50}")
+    private int maxTotal;
+
+    @Value("${huggingface.http.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${huggingface.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${huggingface.http.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
+    @Value("${huggingface.http.connection-request-timeout-ms:2000}")
+    private int connectionRequestTimeoutMs;
+
+    @Value("${huggingface.http.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    @Value("${huggingface.http.keep-alive-seconds:60}")
+    private long keepAliveSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager huggingFaceConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoKeepAlive(true)
+                .setTcpNoDelay(true)
+                .setSoTimeout(readTimeoutMs)
+                .build());
+        // Re-check connections that sat idle before handing them out again
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient huggingFaceHttpClient(PoolingHttpClientConnectionManager huggingFaceConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(huggingFaceConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    // Honour the server's Keep-Alive header, otherwise fall back to our own limit
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? serverKeepAlive : TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+}
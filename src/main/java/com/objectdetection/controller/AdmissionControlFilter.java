@@ -0,0 +1,181 @@
+package com.objectdetection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.DetectionResult;
+import com.objectdetection.service.AdmissionControlService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control in front of the detection endpoints. It runs as a servlet filter so a shed
+ * request is answered before its multipart body is read: every POST under /api/detect is charged to
+ * the client's token bucket, and /api/detect and /api/detect/url also need a concurrency slot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String DETECT_PATH = "/api/detect";
+    private static final String DETECT_URL_PATH = "/api/detect/url";
+
+    private final AdmissionControlService admissionControlService;
+    private final ObjectMapper objectMapper;
+
+    // Behind the Railway proxy the socket address is the proxy's; only trust the header when deployed behind one
+    @Value("${detection.admission.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    // Proxies in front of the app that each append the address they received from to X-Forwarded-For
+    @Value("${detection.admission.trusted-proxies:1}")
+    private int trustedProxies;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!admissionControlService.isEnabled() || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = pathOf(request);
+        return !(path.equals(DETECT_PATH) || path.startsWith(DETECT_PATH + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = pathOf(request);
+        boolean limitConcurrency = path.equals(DETECT_PATH) || path.equals(DETECT_URL_PATH);
+
+        AdmissionControlService.Decision decision = admissionControlService.admit(clientKey(request), limitConcurrency);
+        if (!decision.isAdmitted()) {
+            shed(request, response, decision);
+            return;
+        }
+        if (!decision.holdsSlot()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new SlotReleaser(startNanos, released, response));
+            } else {
+                releaseSlot(startNanos, released, failed || isOverloadStatus(response.getStatus()));
+            }
+        }
+    }
+
+    private void shed(HttpServletRequest request, HttpServletResponse response,
+                      AdmissionControlService.Decision decision) throws IOException {
+        String message = decision.getReason() == AdmissionControlService.Reason.RATE_LIMIT
+                ? "Rate limit exceeded, retry later"
+                : "Server is at capacity, retry later";
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+        // CORS is applied by the dispatcher, which a shed request never reaches
+        if (request.getHeader(HttpHeaders.ORIGIN) != null) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.RETRY_AFTER);
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), DetectionResult.builder()
+                .error(message)
+                .processingTimeMs(0L)
+                .build());
+    }
+
+    private void releaseSlot(long startNanos, AtomicBoolean released, boolean dropped) {
+        if (released.compareAndSet(false, true)) {
+            admissionControlService.release(System.nanoTime() - startNanos, dropped);
+        }
+    }
+
+    private static boolean isOverloadStatus(int status) {
+        return status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * The client's IP address. Headers the client sets itself (X-API-Key, X-Device-Info) are not checked
+     * anywhere, so keying on them would let a client pick a fresh bucket per request.
+     */
+    private String clientKey(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = forwardedAddress(request.getHeader("X-Forwarded-For"));
+            if (forwardedFor != null) {
+                return "ip:" + forwardedFor;
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * The hop appended by the outermost trusted proxy. Entries to its left come from the client and
+     * can be forged, so they are never used.
+     */
+    private String forwardedAddress(String forwardedFor) {
+        if (forwardedFor == null || forwardedFor.trim().isEmpty()) {
+            return null;
+        }
+        String[] hops = forwardedFor.split(",");
+        String hop = hops[Math.max(0, hops.length - Math.max(1, trustedProxies))].trim();
+        return hop.isEmpty() ? null : hop;
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.endsWith("/") && path.length() > 1 ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private final class SlotReleaser implements AsyncListener {
+        private final long startNanos;
+        private final AtomicBoolean released;
+        private final HttpServletResponse response;
+
+        SlotReleaser(long startNanos, AtomicBoolean released, HttpServletResponse response) {
+            this.startNanos = startNanos;
+            this.released = released;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            releaseSlot(startNanos, released, isOverloadStatus(response.getStatus()));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            releaseSlot(startNanos, released, true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            releaseSlot(startNanos, released, true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Re-register for the new async cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
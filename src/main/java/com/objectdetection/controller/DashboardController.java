@@ -1,16 +1,15 @@
 package com.objectdetection.controller;
 
+import com.objectdetection.service.DashboardService;
+import com.objectdetection.service.DetectionJobService;
+import com.objectdetection.service.LatencyStatistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
-import lombok.extern.slf4j.Slf4j;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -19,11 +18,28 @@ import java.util.stream.Collectors;
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private DetectionJobService detectionJobService;
+
     @GetMapping("/metrics")
     public Map<String, Object> getDashboardMetrics() {
         return dashboardService.getDashboardMetrics();
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard() {
+        SseEmitter emitter = dashboardService.openStream();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/stream-stats")
+    public Map<String, Object> getStreamStats() {
+        return dashboardService.getStreamStats();
+    }
+
     @GetMapping("/chart-data")
     public Map<String, Object> getChartData(@RequestParam(defaultValue = "day") String timeframe) {
         return dashboardService.getChartData(timeframe);
@@ -58,868 +74,69 @@ import java.util.stream.Collectors;
     public List<Map<String, Object>> getErrorLogs(@RequestParam(defaultValue = "50") int limit) {
         return dashboardService.getErrorLogs(limit);
     }
-}
-
-@Service
-@Slf4j
-class DashboardService {
-    
-    // In-memory storage for demo purposes
-    private final AtomicInteger activeSessions = new AtomicInteger(0);
-    private final AtomicLong totalApiCalls = new AtomicLong(0);
-    private final AtomicLong totalProcessingTime = new AtomicLong(0);
-    private final AtomicInteger totalErrors = new AtomicInteger(0);
-    
-    private final List<Map<String, Object>> detectionHistory = new ArrayList<>();
-    private final List<Map<String, Object>> errorLogs = new ArrayList<>();
-    private final Map<String, AtomicInteger> categoryCount = new ConcurrentHashMap<>();
-    private final Map<String, AtomicInteger> deviceCount = new ConcurrentHashMap<>();
-
-    public Map<String, Object> getDashboardMetrics() {
-        Map<String, Object> metrics = new HashMap<>();
-        
-        // Calculate error rate
-        double errorRate = totalApiCalls.get() > 0 ? 
-            (double) totalErrors.get() / totalApiCalls.get() * 100 : 0;
-        
-        // Calculate average response time
-        long avgResponseTime = totalApiCalls.get() > 0 ? 
-            totalProcessingTime.get() / totalApiCalls.get() : 0;
-        
-        metrics.put("activeSessions", activeSessions.get());
-        metrics.put("apiCalls", totalApiCalls.get());
-        metrics.put("responseTime", avgResponseTime);
-        metrics.put("errorRate", Math.round(errorRate * 10.0) / 10.0);
-        metrics.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        
-        log.debug("Dashboard metrics: sessions={}, calls={}, responseTime={}ms, errorRate={}%", 
-                 activeSessions.get(), totalApiCalls.get(), avgResponseTime, errorRate);
-        
-        return metrics;
-    }
-
-    public Map<String, Object> getChartData(String timeframe) {
-        Map<String, Object> chartData = new HashMap<>();
-        
-        // Generate data based on actual detection history and timeframe
-        List<String> labels = new ArrayList<>();
-        List<Integer> data = new ArrayList<>();
-        
-        switch (timeframe.toLowerCase()) {
-            case "hour":
-                // Last hour data (every 5 minutes)
-                for (int i = 60; i >= 0; i -= 5) {
-                    labels.add(String.format("-%dm", i));
-                    data.add(getApiCallsForTimeRange(i + 5, i));
-                }
-                break;
-            case "week":
-                // Last 7 days
-                for (int i = 6; i >= 0; i--) {
-                    LocalDateTime date = LocalDateTime.now().minusDays(i);
-                    labels.add(date.format(DateTimeFormatter.ofPattern("MM/dd")));
-                    data.add(getApiCallsForDay(i));
-                }
-                break;
-            case "month":
-                // Last 4 weeks
-                for (int i = 3; i >= 0; i--) {
-                    LocalDateTime date = LocalDateTime.now().minusWeeks(i);
-                    labels.add("Week " + date.format(DateTimeFormatter.ofPattern("w")));
-                    data.add(getApiCallsForWeek(i));
-                }
-                break;
-            default: // day
-                // Last 24 hours (every 3 hours)
-                for (int i = 24; i >= 0; i -= 3) {
-                    LocalDateTime time = LocalDateTime.now().minusHours(i);
-                    labels.add(time.format(DateTimeFormatter.ofPattern("HH:mm")));
-                    data.add(getApiCallsForHour(i));
-                }
-        }
-        
-        chartData.put("labels", labels);
-        chartData.put("data", data);
-        
-        return chartData;
-    }
-
-    public Map<String, Object> getResponseTimeData(String timeframe) {
-        Map<String, Object> responseTimeData = new HashMap<>();
-        
-        // Generate response time data based on actual detection history and timeframe
-        List<String> labels = new ArrayList<>();
-        List<Double> data = new ArrayList<>();
-        
-        switch (timeframe.toLowerCase()) {
-            case "hour":
-                // Last hour data (every 5 minutes)
-                for (int i = 60; i >= 0; i -= 5) {
-                    labels.add(String.format("-%dm", i));
-                    data.add(getAvgResponseTimeForTimeRange(i + 5, i));
-                }
-                break;
-            case "week":
-                // Last 7 days
-                for (int i = 6; i >= 0; i--) {
-                    LocalDateTime date = LocalDateTime.now().minusDays(i);
-                    labels.add(date.format(DateTimeFormatter.ofPattern("MM/dd")));
-                    data.add(getAvgResponseTimeForDay(i));
-                }
-                break;
-            case "month":
-                // Last 4 weeks
-                for (int i = 3; i >= 0; i--) {
-                    LocalDateTime date = LocalDateTime.now().minusWeeks(i);
-                    labels.add("Week " + date.format(DateTimeFormatter.ofPattern("w")));
-                    data.add(getAvgResponseTimeForWeek(i));
-                }
-                break;
-            default: // day
-                // Last 24 hours (every 3 hours)
-                for (int i = 24; i >= 0; i -= 3) {
-                    LocalDateTime time = LocalDateTime.now().minusHours(i);
-                    labels.add(time.format(DateTimeFormatter.ofPattern("HH:mm")));
-                    data.add(getAvgResponseTimeForHour(i));
-                }
-        }
-        
-        responseTimeData.put("labels", labels);
-        responseTimeData.put("data", data);
-        
-        return responseTimeData;
-    }
-
-    // Helper methods to get actual data from detection history
-    private int getApiCallsForTimeRange(int startMinutesAgo, int endMinutesAgo) {
-        LocalDateTime start = LocalDateTime.now().minusMinutes(startMinutesAgo);
-        LocalDateTime end = LocalDateTime.now().minusMinutes(endMinutesAgo);
-        
-        return (int) detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .count();
-    }
-
-    private int getApiCallsForHour(int hoursAgo) {
-        LocalDateTime start = LocalDateTime.now().minusHours(hoursAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusHours(hoursAgo);
-        
-        return (int) detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .count();
-    }
-
-    private int getApiCallsForDay(int daysAgo) {
-        LocalDateTime start = LocalDateTime.now().minusDays(daysAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusDays(daysAgo);
-        
-        return (int) detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .count();
-    }
-
-    private int getApiCallsForWeek(int weeksAgo) {
-        LocalDateTime start = LocalDateTime.now().minusWeeks(weeksAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusWeeks(weeksAgo);
-        
-        return (int) detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .count();
-    }
-
-    private double getAvgResponseTimeForTimeRange(int startMinutesAgo, int endMinutesAgo) {
-        LocalDateTime start = LocalDateTime.now().minusMinutes(startMinutesAgo);
-        LocalDateTime end = LocalDateTime.now().minusMinutes(endMinutesAgo);
-        
-        List<Map<String, Object>> filteredDetections = detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-
-        if (filteredDetections.isEmpty()) {
-            return getBaselineResponseTime();
-        }
-
-        double totalTime = filteredDetections.stream()
-                .mapToDouble(detection -> ((Number) detection.getOrDefault("processingTime", 500)).doubleValue())
-                .sum();
-
-        return totalTime / filteredDetections.size();
-    }
-
-    private double getAvgResponseTimeForHour(int hoursAgo) {
-        LocalDateTime start = LocalDateTime.now().minusHours(hoursAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusHours(hoursAgo);
-        
-        List<Map<String, Object>> filteredDetections = detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-
-        if (filteredDetections.isEmpty()) {
-            return getBaselineResponseTime();
-        }
-
-        double totalTime = filteredDetections.stream()
-                .mapToDouble(detection -> ((Number) detection.getOrDefault("processingTime", 500)).doubleValue())
-                .sum();
-
-        return totalTime / filteredDetections.size();
-    }
-
-    private double getAvgResponseTimeForDay(int daysAgo) {
-        LocalDateTime start = LocalDateTime.now().minusDays(daysAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusDays(daysAgo);
-        
-        List<Map<String, Object>> filteredDetections = detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-
-        if (filteredDetections.isEmpty()) {
-            return getBaselineResponseTime();
-        }
-
-        double totalTime = filteredDetections.stream()
-                .mapToDouble(detection -> ((Number) detection.getOrDefault("processingTime", 500)).doubleValue())
-                .sum();
-
-        return totalTime / filteredDetections.size();
-    }
-
-    private double getAvgResponseTimeForWeek(int weeksAgo) {
-        LocalDateTime start = LocalDateTime.now().minusWeeks(weeksAgo + 1);
-        LocalDateTime end = LocalDateTime.now().minusWeeks(weeksAgo);
-        
-        List<Map<String, Object>> filteredDetections = detectionHistory.stream()
-                .filter(detection -> {
-                    try {
-                        LocalDateTime detectionTime = LocalDateTime.parse((String) detection.get("timestamp"));
-                        return detectionTime.isAfter(start) && detectionTime.isBefore(end);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-
-        if (filteredDetections.isEmpty()) {
-            return getBaselineResponseTime();
-        }
-
-        double totalTime = filteredDetections.stream()
-                .mapToDouble(detection -> ((Number) detection.getOrDefault("processingTime", 500)).doubleValue())
-                .sum();
-
-        return totalTime / filteredDetections.size();
-    }
-
-    private double getBaselineResponseTime() {
-        // Return baseline response time when no data is available
-        return totalApiCalls.get() > 0 ? 
-            (double) totalProcessingTime.get() / totalApiCalls.get() : 500.0;
-    }
-
-    public Map<String, Object> getDetectionCategories() {
-        Map<String, Object> categories = new HashMap<>();
-        
-        // Get actual category counts or defaults
-        List<String> labels = Arrays.asList("People", "Vehicles", "Animals", "Objects");
-        List<Integer> data = new ArrayList<>();
-        
-        for (String label : labels) {
-            data.add(categoryCount.getOrDefault(label.toLowerCase(), new AtomicInteger(0)).get());
-        }
-        
-        // If no real data, provide some default values
-        if (data.stream().allMatch(count -> count == 0)) {
-            data = Arrays.asList(42, 23, 15, 20);
-        }
-        
-        categories.put("labels", labels);
-        categories.put("data", data);
-        
-        return categories;
-    }
-
-    public List<Map<String, Object>> getSystemStatus() {
-        List<Map<String, Object>> status = new ArrayList<>();
-        
-        // API Server status
-        Map<String, Object> apiServer = new HashMap<>();
-        apiServer.put("service", "API Server");
-        apiServer.put("status", "Online");
-        apiServer.put("statusClass", "success");
-        apiServer.put("load", calculateServiceLoad("api"));
-        apiServer.put("uptime", "7d 12h 24m");
-        apiServer.put("lastUpdate", "Just now");
-        status.add(apiServer);
-        
-        // Database status
-        Map<String, Object> database = new HashMap<>();
-        database.put("service", "Database");
-        database.put("status", "Online");
-        database.put("statusClass", "success");
-        database.put("load", calculateServiceLoad("database"));
-        database.put("uptime", "14d 3h 12m");
-        database.put("lastUpdate", "1m ago");
-        status.add(database);
-        
-        // ML Engine status (Hugging Face DETR)
-        Map<String, Object> mlEngine = new HashMap<>();
-        mlEngine.put("service", "ML Engine (DETR)");
-        mlEngine.put("status", "Online");
-        mlEngine.put("statusClass", "success");
-        mlEngine.put("load", calculateServiceLoad("ml"));
-        mlEngine.put("uptime", "3d 18h 45m");
-        mlEngine.put("lastUpdate", "3m ago");
-        status.add(mlEngine);
-        
-        // Cloudinary Storage status
-        Map<String, Object> storage = new HashMap<>();
-        storage.put("service", "Cloudinary Storage");
-        storage.put("status", "Online");
-        storage.put("statusClass", "success");
-        storage.put("load", calculateServiceLoad("storage"));
-        storage.put("uptime", "21d 9h 32m");
-        storage.put("lastUpdate", "5m ago");
-        status.add(storage);
-        
-        return status;
-    }
-
-    public List<Map<String, Object>> getRecentDetections(int limit) {
-        // Return actual detection history in reverse order (most recent first)
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        synchronized (detectionHistory) {
-            // Get the last 'limit' items in reverse order
-            int size = detectionHistory.size();
-            int start = Math.max(0, size - limit);
-            
-            for (int i = size - 1; i >= start; i--) {
-                result.add(detectionHistory.get(i));
-            }
-        }
-        
-        log.debug("Returning {} recent detections out of {} total", result.size(), detectionHistory.size());
-        return result;
-    }
-
-    public Map<String, Object> getAnalytics(String timeframe) {
-        Map<String, Object> analytics = new HashMap<>();
-        
-        // Calculate real performance metrics from detection history
-        double avgConfidence = calculateAverageConfidence();
-        double successRate = calculateSuccessRate();
-        double avgObjectsPerFrame = calculateAverageObjectsPerFrame();
-        int uniqueUsers = calculateUniqueUsers();
-        
-        // Performance metrics
-        Map<String, Object> performance = new HashMap<>();
-        performance.put("avgConfidence", avgConfidence);
-        performance.put("successRate", successRate);
-        performance.put("avgObjectsPerFrame", avgObjectsPerFrame);
-        performance.put("uniqueUsers", uniqueUsers);
-        
-        // Device distribution based on actual data
-        Map<String, Object> deviceDistribution = new HashMap<>();
-        List<String> deviceLabels = new ArrayList<>();
-        List<Integer> deviceData = new ArrayList<>();
-        
-        // Get actual device counts
-        if (!deviceCount.isEmpty()) {
-            deviceCount.entrySet().stream()
-                    .sorted(Map.Entry.<String, AtomicInteger>comparingByValue((a, b) -> b.get() - a.get()))
-                    .limit(6)
-                    .forEach(entry -> {
-                        deviceLabels.add(entry.getKey());
-                        deviceData.add(entry.getValue().get());
-                    });
-        } else {
-            // Default values if no real data
-            deviceLabels.addAll(Arrays.asList("iPhone", "Samsung", "Google Pixel", "Xiaomi", "OnePlus", "Other"));
-            deviceData.addAll(Arrays.asList(32, 27, 14, 12, 8, 7));
-        }
-        
-        deviceDistribution.put("labels", deviceLabels);
-        deviceDistribution.put("data", deviceData);
-        
-        analytics.put("performance", performance);
-        analytics.put("deviceDistribution", deviceDistribution);
-        
-        return analytics;
-    }
-
-    public List<Map<String, Object>> getErrorLogs(int limit) {
-        // Return error logs in reverse order (most recent first)
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        synchronized (errorLogs) {
-            // Get the last 'limit' items in reverse order
-            int size = errorLogs.size();
-            int start = Math.max(0, size - limit);
-            
-            for (int i = size - 1; i >= start; i--) {
-                result.add(errorLogs.get(i));
-            }
-        }
-        
-        log.debug("Returning {} error logs out of {} total", result.size(), errorLogs.size());
-        return result;
-    }
-
-    // NEW METHOD: Enhanced detection recording with image URL support
-    public void recordDetection(List<Map<String, Object>> detectedObjects, long processingTime, String deviceInfo, String imageUrl, String fileName) {
-        // Increment session and API call counters
-        activeSessions.incrementAndGet();
-        totalApiCalls.incrementAndGet();
-        totalProcessingTime.addAndGet(processingTime);
-        
-        // Record detection in history with image URL
-        Map<String, Object> detection = new HashMap<>();
-        detection.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        detection.put("objects", detectedObjects);
-        detection.put("processingTime", processingTime);
-        detection.put("device", deviceInfo != null ? deviceInfo : "Unknown");
-        detection.put("objectCount", detectedObjects.size());
-        detection.put("imageUrl", imageUrl); // Cloudinary URL
-        detection.put("fileName", fileName); // Original file name
-        
-        synchronized (detectionHistory) {
-            detectionHistory.add(detection);
-            
-            // Keep only last 100 detections
-            if (detectionHistory.size() > 100) {
-                detectionHistory.remove(0);
-            }
-        }
-        
-        // Update category counts
-        detectedObjects.forEach(obj -> {
-            String category = categorizeObject((String) obj.get("label"));
-            categoryCount.computeIfAbsent(category, k -> new AtomicInteger(0)).incrementAndGet();
-        });
-        
-        // Update device count
-        if (deviceInfo != null) {
-            deviceCount.computeIfAbsent(deviceInfo, k -> new AtomicInteger(0)).incrementAndGet();
-        }
-        
-        log.info("Recorded detection: {} objects, image URL: {}, device: {}, processing time: {}ms", 
-                 detectedObjects.size(), imageUrl, deviceInfo, processingTime);
-    }
-
-    // Keep the original method for backward compatibility
-    public void recordDetection(List<Map<String, Object>> detectedObjects, long processingTime, String deviceInfo) {
-        recordDetection(detectedObjects, processingTime, deviceInfo, null, null);
-    }
-
-    public void recordError(String errorMessage, String errorType) {
-        totalErrors.incrementAndGet();
-        
-        Map<String, Object> error = new HashMap<>();
-        error.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        error.put("message", errorMessage);
-        error.put("type", errorType);
-        error.put("level", "ERROR");
-        
-        synchronized (errorLogs) {
-            errorLogs.add(error);
-            
-            // Keep only last 100 errors
-            if (errorLogs.size() > 100) {
-                errorLogs.remove(0);
-            }
-        }
-        
-        log.warn("Recorded error: {} - {}", errorType, errorMessage);
-    }
 
-    // Helper method to categorize detected objects
-    private String categorizeObject(String label) {
-        if (label == null) return "objects";
-        
-        String lowerLabel = label.toLowerCase();
-        if (lowerLabel.contains("person") || lowerLabel.contains("people")) {
-            return "people";
-        } else if (lowerLabel.contains("car") || lowerLabel.contains("truck") || lowerLabel.contains("bus") || 
-                   lowerLabel.contains("motorcycle") || lowerLabel.contains("vehicle")) {
-            return "vehicles";
-        } else if (lowerLabel.contains("dog") || lowerLabel.contains("cat") || lowerLabel.contains("bird") || 
-                   lowerLabel.contains("animal")) {
-            return "animals";
-        } else {
-            return "objects";
-        }
+    @GetMapping("/inference-pool")
+    public Map<String, Object> getInferencePoolStats() {
+        return dashboardService.getInferencePoolStats();
     }
 
-    // Helper method to calculate average confidence from detection history
-    private double calculateAverageConfidence() {
-        if (detectionHistory.isEmpty()) return 92.7; // Default value
-        
-        double totalConfidence = 0;
-        int objectCount = 0;
-        
-        synchronized (detectionHistory) {
-            for (Map<String, Object> detection : detectionHistory) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> objects = (List<Map<String, Object>>) detection.get("objects");
-                if (objects != null) {
-                    for (Map<String, Object> obj : objects) {
-                        Object confidenceObj = obj.get("confidence");
-                        if (confidenceObj instanceof Number) {
-                            totalConfidence += ((Number) confidenceObj).doubleValue() * 100;
-                            objectCount++;
-                        }
-                    }
-                }
-            }
-        }
-        
-        return objectCount > 0 ? Math.round(totalConfidence / objectCount * 10.0) / 10.0 : 92.7;
+    @GetMapping("/engines")
+    public Map<String, Object> getEngineStats() {
+        return dashboardService.getEngineStats();
     }
 
-    // Helper method to calculate success rate
-    private double calculateSuccessRate() {
-        if (totalApiCalls.get() == 0) return 97.7; // Default value
-        
-        double successfulCalls = totalApiCalls.get() - totalErrors.get();
-        return Math.round((successfulCalls / totalApiCalls.get()) * 1000.0) / 10.0;
+    @GetMapping("/ingestion-stats")
+    public Map<String, Object> getIngestionStats() {
+        return dashboardService.getIngestionStats();
     }
 
-    // Helper method to calculate average objects per frame
-    private double calculateAverageObjectsPerFrame() {
-        if (detectionHistory.isEmpty()) return 2.4; // Default value
-        
-        int totalObjects = 0;
-        
-        synchronized (detectionHistory) {
-            for (Map<String, Object> detection : detectionHistory) {
-                Object objectCountObj = detection.get("objectCount");
-                if (objectCountObj instanceof Number) {
-                    totalObjects += ((Number) objectCountObj).intValue();
-                }
-            }
-        }
-        
-        return detectionHistory.size() > 0 ? 
-               Math.round((double) totalObjects / detectionHistory.size() * 10.0) / 10.0 : 2.4;
+    @GetMapping("/preprocess")
+    public Map<String, Object> getPreprocessStats() {
+        return dashboardService.getPreprocessStats();
     }
 
-    // Helper method to calculate unique users (based on unique devices)
-    private int calculateUniqueUsers() {
-        return Math.max(deviceCount.size(), (int) (Math.random() * 100) + 300);
+    @GetMapping("/cache-stats")
+    public Map<String, Object> getCacheStats() {
+        return dashboardService.getCacheStats();
     }
 
-    // Helper method to calculate service load
-    private int calculateServiceLoad(String serviceType) {
-        switch (serviceType) {
-            case "api":
-                return Math.min(95, 25 + (int) (activeSessions.get() * 2));
-            case "database":
-                return Math.min(90, 18 + (int) (totalApiCalls.get() % 30));
-            case "ml":
-                return Math.min(95, 60 + (int) (Math.random() * 20));
-            case "storage":
-                return Math.min(95, 30 + (int) (detectionHistory.size() / 2));
-            default:
-                return (int) (Math.random() * 50) + 20;
-        }
+    @GetMapping("/admission")
+    public Map<String, Object> getAdmissionStats() {
+        return dashboardService.getAdmissionStats();
     }
 
-    // METHODS FOR DetectionController COMPATIBILITY
-
-    // Get detection by ID
-    public Map<String, Object> getDetectionById(String detectionId) {
-        synchronized (detectionHistory) {
-            for (Map<String, Object> detection : detectionHistory) {
-                String id = generateDetectionId(detection);
-                if (detectionId.equals(id)) {
-                    // Add the generated ID to the detection object
-                    Map<String, Object> result = new HashMap<>(detection);
-                    result.put("id", id);
-                    return result;
-                }
-            }
-        }
-        return null; // Detection not found
+    @GetMapping("/coalescing-stats")
+    public Map<String, Object> getCoalescingStats() {
+        return dashboardService.getCoalescingStats();
     }
 
-    // Delete detection by ID
-    public boolean deleteDetection(String detectionId) {
-        synchronized (detectionHistory) {
-            for (int i = 0; i < detectionHistory.size(); i++) {
-                Map<String, Object> detection = detectionHistory.get(i);
-                String id = generateDetectionId(detection);
-                if (detectionId.equals(id)) {
-                    detectionHistory.remove(i);
-                    log.info("Deleted detection with ID: {}", detectionId);
-                    return true;
-                }
-            }
-        }
-        log.warn("Detection not found for deletion: {}", detectionId);
-        return false;
+    @GetMapping("/device-cache")
+    public Map<String, Object> getDeviceCacheStats() {
+        return dashboardService.getDeviceCacheStats();
     }
 
-    // Record deletion event
-    public void recordDeletion(String detectionId, String deviceInfo) {
-        log.info("Recorded deletion of detection {} by device: {}", detectionId, deviceInfo);
-        // Could add to a separate deletion log if needed
+    @GetMapping("/job-queue")
+    public Map<String, Object> getJobQueueStats() {
+        return detectionJobService.getStatistics();
     }
 
-    // Get all detections with pagination and filtering
-    public Map<String, Object> getAllDetections(int page, int size, String category, String device, String search) {
-        List<Map<String, Object>> filteredDetections = new ArrayList<>();
-        
-        synchronized (detectionHistory) {
-            // Create a copy with IDs added
-            List<Map<String, Object>> detectionsWithIds = new ArrayList<>();
-            for (Map<String, Object> detection : detectionHistory) {
-                Map<String, Object> detectionCopy = new HashMap<>(detection);
-                detectionCopy.put("id", generateDetectionId(detection));
-                detectionsWithIds.add(detectionCopy);
-            }
-            
-            // Apply filters
-            filteredDetections = detectionsWithIds.stream()
-                    .filter(detection -> {
-                        // Category filter
-                        if (category != null && !category.equals("all")) {
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> objects = (List<Map<String, Object>>) detection.get("objects");
-                            if (objects == null || objects.isEmpty()) return false;
-                            
-                            boolean hasCategory = objects.stream()
-                                    .anyMatch(obj -> {
-                                        String label = (String) obj.get("label");
-                                        return categorizeObject(label).equalsIgnoreCase(category);
-                                    });
-                            if (!hasCategory) return false;
-                        }
-                        
-                        // Device filter
-                        if (device != null && !device.isEmpty()) {
-                            String detectionDevice = (String) detection.get("device");
-                            if (detectionDevice == null || !detectionDevice.toLowerCase().contains(device.toLowerCase())) {
-                                return false;
-                            }
-                        }
-                        
-                        // Search filter
-                        if (search != null && !search.isEmpty()) {
-                            String searchLower = search.toLowerCase();
-                            String fileName = (String) detection.get("fileName");
-                            String deviceName = (String) detection.get("device");
-                            String timestamp = (String) detection.get("timestamp");
-                            
-                            return (fileName != null && fileName.toLowerCase().contains(searchLower)) ||
-                                   (deviceName != null && deviceName.toLowerCase().contains(searchLower)) ||
-                                   (timestamp != null && timestamp.toLowerCase().contains(searchLower));
-                        }
-                        
-                        return true;
-                    })
-                    .collect(Collectors.toList());
-        }
-        
-        // Sort by timestamp (newest first)
-        filteredDetections.sort((a, b) -> {
-            String timestampA = (String) a.get("timestamp");
-            String timestampB = (String) b.get("timestamp");
-            if (timestampA == null || timestampB == null) return 0;
-            return timestampB.compareTo(timestampA);
-        });
-        
-        // Apply pagination
-        int totalElements = filteredDetections.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        int startIndex = page * size;
-        int endIndex = Math.min(startIndex + size, totalElements);
-        
-        List<Map<String, Object>> pageContent = filteredDetections.subList(startIndex, endIndex);
-        
-        // Create paginated result
-        Map<String, Object> result = new HashMap<>();
-        result.put("content", pageContent);
-        result.put("totalElements", totalElements);
-        result.put("totalPages", totalPages);
-        result.put("currentPage", page);
-        result.put("pageSize", size);
-        result.put("hasNext", page < totalPages - 1);
-        result.put("hasPrevious", page > 0);
-        
-        log.debug("Retrieved {} detections (page {}/{}, total: {})", 
-                 pageContent.size(), page + 1, totalPages, totalElements);
-        
-        return result;
+    @GetMapping("/event-log")
+    public Map<String, Object> getEventLogStats() {
+        return dashboardService.getEventLogStats();
     }
 
-    // Get detection statistics
-    public Map<String, Object> getDetectionStatistics(String timeframe) {
-        Map<String, Object> statistics = new HashMap<>();
-        
-        // Calculate time boundaries based on timeframe
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startTime;
-        
-        switch (timeframe.toLowerCase()) {
-            case "hour":
-                startTime = now.minusHours(1);
-                break;
-            case "week":
-                startTime = now.minusWeeks(1);
-                break;
-            case "month":
-                startTime = now.minusMonths(1);
-                break;
-            default: // day
-                startTime = now.minusDays(1);
-        }
-        
-        // Filter detections within timeframe
-        List<Map<String, Object>> filteredDetections;
-        synchronized (detectionHistory) {
-            filteredDetections = detectionHistory.stream()
-                    .filter(detection -> {
-                        try {
-                            String timestampStr = (String) detection.get("timestamp");
-                            if (timestampStr == null) return false;
-                            LocalDateTime detectionTime = LocalDateTime.parse(timestampStr);
-                            return detectionTime.isAfter(startTime);
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        }
-        
-        // Calculate statistics
-        int totalDetections = filteredDetections.size();
-        int totalObjects = 0;
-        double totalConfidence = 0;
-        int objectCount = 0;
-        long totalProcessingTime = 0;
-        Map<String, Integer> categoryStats = new HashMap<>();
-        Map<String, Integer> deviceStats = new HashMap<>();
-        
-        for (Map<String, Object> detection : filteredDetections) {
-            // Objects and confidence
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> objects = (List<Map<String, Object>>) detection.get("objects");
-            if (objects != null) {
-                totalObjects += objects.size();
-                for (Map<String, Object> obj : objects) {
-                    Object confidenceObj = obj.get("confidence");
-                    if (confidenceObj instanceof Number) {
-                        totalConfidence += ((Number) confidenceObj).doubleValue();
-                        objectCount++;
-                    }
-                    
-                    // Category stats
-                    String label = (String) obj.get("label");
-                    String category = categorizeObject(label);
-                    categoryStats.merge(category, 1, Integer::sum);
-                }
-            }
-            
-            // Processing time
-            Object processingTimeObj = detection.get("processingTime");
-            if (processingTimeObj instanceof Number) {
-                totalProcessingTime += ((Number) processingTimeObj).longValue();
-            }
-            
-            // Device stats
-            String device = (String) detection.get("device");
-            if (device != null) {
-                deviceStats.merge(device, 1, Integer::sum);
-            }
-        }
-        
-        // Build statistics result
-        statistics.put("timeframe", timeframe);
-        statistics.put("totalDetections", totalDetections);
-        statistics.put("totalObjects", totalObjects);
-        statistics.put("averageObjectsPerDetection", totalDetections > 0 ? 
-                      Math.round((double) totalObjects / totalDetections * 10.0) / 10.0 : 0);
-        statistics.put("averageConfidence", objectCount > 0 ? 
-                      Math.round(totalConfidence / objectCount * 1000.0) / 10.0 : 0);
-        statistics.put("averageProcessingTime", totalDetections > 0 ? 
-                      totalProcessingTime / totalDetections : 0);
-        statistics.put("categoryBreakdown", categoryStats);
-        statistics.put("deviceBreakdown", deviceStats);
-        statistics.put("startTime", startTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        statistics.put("endTime", now.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        
-        log.debug("Generated statistics for timeframe '{}': {} detections, {} objects", 
-                 timeframe, totalDetections, totalObjects);
-        
-        return statistics;
+    @GetMapping("/latency")
+    public Map<String, Object> getLatencyStats(@RequestParam(defaultValue = "5") int minutes) {
+        return dashboardService.getLatencyStats(minutes);
     }
 
-    // Helper method to generate consistent detection IDs
-    private String generateDetectionId(Map<String, Object> detection) {
-        try {
-            String timestamp = (String) detection.get("timestamp");
-            String device = (String) detection.get("device");
-            Object objectCount = detection.get("objectCount");
-            
-            String combined = (timestamp != null ? timestamp : "") + 
-                             (device != null ? device : "") + 
-                             (objectCount != null ? objectCount.toString() : "");
-            
-            // Create a simple hash-based ID
-            int hash = combined.hashCode();
-            return "det_" + Math.abs(hash);
-        } catch (Exception e) {
-            // Fallback to timestamp-based ID
-            return "det_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
+    @GetMapping("/latency/{stage}")
+    public ResponseEntity<Map<String, Object>> getStageLatencyStats(@PathVariable String stage,
+                                                                    @RequestParam(defaultValue = "5") int minutes) {
+        LatencyStatistics.Stage pipelineStage = LatencyStatistics.Stage.fromKey(stage);
+        if (pipelineStage == null) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(dashboardService.getStageLatencyStats(pipelineStage, minutes));
     }
 }
\ No newline at end of file
@@ -1,9 +1,26 @@
 package com.objectdetection.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.BatchItem;
+import com.objectdetection.model.BatchItemResult;
+import com.objectdetection.model.BatchUrlRequest;
+import com.objectdetection.model.DetectionJob;
+import com.objectdetection.model.DetectionOptions;
 import com.objectdetection.model.DetectionResult;
 import com.objectdetection.model.UrlRequest;
+import com.objectdetection.service.BatchDetectionService;
+import com.objectdetection.service.DashboardService;
+import com.objectdetection.service.DetectionJobService;
+import com.objectdetection.service.DetectionMetrics;
+import com.objectdetection.service.DeviceClassifier;
+import com.objectdetection.service.MultipartIngestService;
 import com.objectdetection.service.ObjectDetectionService;
+import com.objectdetection.util.Futures;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,20 +28,40 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.ResponseEntity.BodyBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.WebUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/detect")
@@ -34,9 +71,29 @@ import java.util.Map;
 public class DetectionController {
 
     private final ObjectDetectionService objectDetectionService;
+    private final DetectionMetrics detectionMetrics;
+    private final BatchDetectionService batchDetectionService;
+    private final DetectionJobService detectionJobService;
+    private final ObjectMapper objectMapper;
+    private final MultipartIngestService multipartIngestService;
+    private final DeviceClassifier deviceClassifier;
     
     @Autowired
     private DashboardService dashboardService;
+    
+    @Value("${detection.batch.max-items:500}")
+    private int maxBatchItems;
+    
+    // Only POST /api/detect/batch may send a body this large; everything else keeps spring.servlet.multipart.max-request-size
+    @Value("${detection.batch.max-request-size:100MB}")
+    private DataSize maxBatchRequestSize;
+    
+    @Value("${detection.jobs.retry-after-seconds:5}")
+    private int jobRetryAfterSeconds;
+    
+    // Set by the nonblocking profile: /api/detect and /api/detect/url complete on the non-blocking client's threads
+    @Value("${detection.async.enabled:false}")
+    private boolean asyncEnabled;
 
     /**
      * Detect objects in an uploaded image file
@@ -48,62 +105,132 @@ public class DetectionController {
                             content = @Content(schema = @Schema(implementation = DetectionResult.class))),
                     @ApiResponse(responseCode = "400", description = "Invalid input")
             })
+    @Parameters({
+            @Parameter(name = "bypassCache", in = ParameterIn.QUERY, schema = @Schema(type = "boolean", defaultValue = "false")),
+            @Parameter(name = "engine", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
+            @Parameter(name = "downscale", in = ParameterIn.QUERY, schema = @Schema(type = "boolean", defaultValue = "true"))
+    })
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, content = @Content(
+            mediaType = MediaType.MULTIPART_FORM_DATA_VALUE, schema = @Schema(implementation = ImageUploadForm.class)))
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<DetectionResult> detectFromImage(
-            @RequestParam("image") MultipartFile imageFile,
-            HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<DetectionResult>> detectFromImage(HttpServletRequest request) {
         
-        log.info("Received request to detect objects in image file: {}", imageFile.getOriginalFilename());
+        // Flags come from the query string: asking the container for request parameters would make it parse
+        // the whole multipart body onto the heap before the image part could be streamed
+        MultiValueMap<String, String> query = queryParameters(request);
+        boolean bypassCache = flag(query.getFirst("bypassCache"), false);
+        String engine = query.getFirst("engine");
+        boolean downscale = flag(query.getFirst("downscale"), true);
         
         long startTime = System.currentTimeMillis();
-        String deviceInfo = getDeviceInfo(request);
+        String deviceInfo = deviceClassifier.classify(request);
         
+        MultipartIngestService.StreamedUpload upload = null;
         try {
-            if (imageFile.isEmpty()) {
-                dashboardService.recordError("Empty file uploaded", "EMPTY_FILE_ERROR");
-                return ResponseEntity.badRequest().body(
-                        DetectionResult.builder().error("Empty file").build()
-                );
+            MultipartFile imageFile = null;
+            String fileName;
+            boolean empty;
+            if (multipartIngestService.isEnabled()) {
+                upload = multipartIngestService.readFilePart(request, "image");
+                fileName = upload != null ? upload.getFileName() : null;
+                empty = upload == null || upload.getBuffer().size() == 0;
+            } else {
+                MultipartHttpServletRequest multipartRequest = WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class);
+                imageFile = multipartRequest != null ? multipartRequest.getFile("image") : null;
+                fileName = imageFile != null ? imageFile.getOriginalFilename() : null;
+                empty = imageFile == null || imageFile.isEmpty();
             }
             
-            DetectionResult result = objectDetectionService.detectObjectsFromFile(imageFile);
+            log.info("Received request to detect objects in image file: {}", fileName);
             
-            long processingTime = System.currentTimeMillis() - startTime;
+            if (empty) {
+                dashboardService.recordError("Empty file uploaded", "EMPTY_FILE_ERROR");
+                detectionMetrics.recordOutcome("file", "rejected");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                        DetectionResult.builder().error("Empty file").build()
+                ));
+            }
             
-            // Record statistics if detection was successful
-            if (result != null && result.getError() == null && result.getDetectedObjects() != null) {
-                List<Map<String, Object>> detectedObjectsForStats = convertToStatisticsFormat(result.getDetectedObjects());
-                
-                // Include image URL in the statistics
-                String imageUrl = extractImageUrl(result);
-                
-                dashboardService.recordDetection(
-                    detectedObjectsForStats, 
-                    processingTime, 
-                    deviceInfo,
-                    imageUrl,
-                    imageFile.getOriginalFilename()
-                );
-                
-                log.info("Recorded detection statistics: {} objects detected in {}ms, image URL: {}", 
-                         result.getDetectedObjects().size(), processingTime, imageUrl);
-            } else if (result != null && result.getError() != null) {
-                dashboardService.recordError(result.getError(), "DETECTION_ERROR");
+            DetectionOptions options = DetectionOptions.builder().bypassCache(bypassCache).engine(engine).skipPreprocessing(!downscale).build();
+            
+            if (asyncEnabled) {
+                // The request thread returns here; the upload buffer is released once the detection completes
+                CompletableFuture<DetectionResult> pending = upload != null
+                        ? objectDetectionService.detectObjectsFromBufferAsync(upload.getBuffer(), upload.getContentType(), fileName, options)
+                        : objectDetectionService.detectObjectsFromFileAsync(imageFile, options);
+                MultipartIngestService.StreamedUpload held = upload;
+                upload = null;
+                return pending.handle((result, error) -> {
+                    if (held != null) {
+                        held.getBuffer().release();
+                    }
+                    if (error != null) {
+                        return fileError(Futures.unwrap(error));
+                    }
+                    try {
+                        return fileResponse(result, startTime, deviceInfo, fileName);
+                    } catch (RuntimeException e) {
+                        return fileError(e);
+                    }
+                });
             }
             
-            return ResponseEntity.ok(result);
+            DetectionResult result = upload != null
+                    ? objectDetectionService.detectObjectsFromBuffer(upload.getBuffer(), upload.getContentType(), fileName, options)
+                    : objectDetectionService.detectObjectsFromFile(imageFile, options);
+            return CompletableFuture.completedFuture(fileResponse(result, startTime, deviceInfo, fileName));
             
+        } catch (MaxUploadSizeExceededException e) {
+            // Same response as when the container rejects an oversized part
+            throw e;
         } catch (Exception e) {
-            long processingTime = System.currentTimeMillis() - startTime;
-            log.error("Error processing image file: {}", e.getMessage(), e);
-            dashboardService.recordError(e.getMessage(), "FILE_PROCESSING_ERROR");
-            
-            return ResponseEntity.badRequest().body(
-                    DetectionResult.builder()
-                            .error("Failed to process image: " + e.getMessage())
-                            .build()
+            return CompletableFuture.completedFuture(fileError(e));
+        } finally {
+            // Storage uploads and inference attempts still running hold references of their own
+            if (upload != null) {
+                upload.getBuffer().release();
+            }
+        }
+    }
+
+    private ResponseEntity<DetectionResult> fileResponse(DetectionResult result, long startTime, String deviceInfo, String fileName) {
+        long processingTime = System.currentTimeMillis() - startTime;
+        
+        // Record statistics if detection was successful
+        if (result != null && result.getError() == null && result.getDetectedObjects() != null) {
+            // Include image URL in the statistics
+            String imageUrl = extractImageUrl(result);
+            
+            dashboardService.recordDetection(
+                result.getDetectedObjects(), 
+                processingTime, 
+                deviceInfo,
+                imageUrl,
+                fileName
             );
+            
+            log.info("Recorded detection statistics: {} objects detected in {}ms, image URL: {}", 
+                     result.getDetectedObjects().size(), processingTime, imageUrl);
+            detectionMetrics.recordOutcome("file", "success");
+            detectionMetrics.recordObjects(result.getDetectedObjects().size());
+        } else if (result != null && result.getError() != null) {
+            dashboardService.recordError(result.getError(), "DETECTION_ERROR");
+            detectionMetrics.recordOutcome("file", "error");
         }
+        
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<DetectionResult> fileError(Throwable e) {
+        log.error("Error processing image file: {}", e.getMessage(), e);
+        dashboardService.recordError(e.getMessage(), "FILE_PROCESSING_ERROR");
+        detectionMetrics.recordOutcome("file", "error");
+        
+        return ResponseEntity.badRequest().body(
+                DetectionResult.builder()
+                        .error("Failed to process image: " + e.getMessage())
+                        .build()
+        );
     }
 
     /**
@@ -117,57 +244,355 @@ public class DetectionController {
                     @ApiResponse(responseCode = "400", description = "Invalid input")
             })
     @PostMapping("/url")
-    public ResponseEntity<DetectionResult> detectFromUrl(
+    public CompletableFuture<ResponseEntity<DetectionResult>> detectFromUrl(
             @RequestBody @Valid UrlRequest urlRequest,
+            @RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "downscale", defaultValue = "true") boolean downscale,
             HttpServletRequest request) {
         
         log.info("Received request to detect objects in image from URL: {}", urlRequest.getUrl());
         
         long startTime = System.currentTimeMillis();
-        String deviceInfo = getDeviceInfo(request);
+        String deviceInfo = deviceClassifier.classify(request);
         
         try {
-            DetectionResult result = objectDetectionService.detectObjectsFromUrl(urlRequest.getUrl());
+            DetectionOptions options = DetectionOptions.builder().bypassCache(bypassCache).engine(engine).skipPreprocessing(!downscale).build();
+            
+            if (asyncEnabled) {
+                return objectDetectionService.detectObjectsFromUrlAsync(urlRequest.getUrl(), options).handle((result, error) -> {
+                    if (error != null) {
+                        return urlError(Futures.unwrap(error));
+                    }
+                    try {
+                        return urlResponse(result, startTime, deviceInfo, urlRequest.getUrl());
+                    } catch (RuntimeException e) {
+                        return urlError(e);
+                    }
+                });
+            }
             
-            long processingTime = System.currentTimeMillis() - startTime;
+            DetectionResult result = objectDetectionService.detectObjectsFromUrl(urlRequest.getUrl(), options);
+            return CompletableFuture.completedFuture(urlResponse(result, startTime, deviceInfo, urlRequest.getUrl()));
             
-            // Record statistics if detection was successful
-            if (result != null && result.getError() == null && result.getDetectedObjects() != null) {
-                List<Map<String, Object>> detectedObjectsForStats = convertToStatisticsFormat(result.getDetectedObjects());
-                
-                // Include image URL in the statistics
-                String imageUrl = extractImageUrl(result);
-                if (imageUrl == null) {
-                    imageUrl = urlRequest.getUrl(); // Fallback to original URL
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(urlError(e));
+        }
+    }
+
+    private ResponseEntity<DetectionResult> urlResponse(DetectionResult result, long startTime, String deviceInfo, String url) {
+        long processingTime = System.currentTimeMillis() - startTime;
+        
+        // Record statistics if detection was successful
+        if (result != null && result.getError() == null && result.getDetectedObjects() != null) {
+            // Include image URL in the statistics
+            String imageUrl = extractImageUrl(result);
+            if (imageUrl == null) {
+                imageUrl = url; // Fallback to original URL
+            }
+            
+            dashboardService.recordDetection(
+                result.getDetectedObjects(), 
+                processingTime, 
+                deviceInfo,
+                imageUrl,
+                "URL: " + url
+            );
+            
+            log.info("Recorded detection statistics: {} objects detected in {}ms, image URL: {}", 
+                     result.getDetectedObjects().size(), processingTime, imageUrl);
+            detectionMetrics.recordOutcome("url", "success");
+            detectionMetrics.recordObjects(result.getDetectedObjects().size());
+        } else if (result != null && result.getError() != null) {
+            dashboardService.recordError(result.getError(), "DETECTION_ERROR");
+            detectionMetrics.recordOutcome("url", "error");
+        }
+        
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<DetectionResult> urlError(Throwable e) {
+        log.error("Error processing image from URL: {}", e.getMessage(), e);
+        dashboardService.recordError(e.getMessage(), "URL_PROCESSING_ERROR");
+        detectionMetrics.recordOutcome("url", "error");
+        
+        return ResponseEntity.badRequest().body(
+                DetectionResult.builder()
+                        .error("Failed to process image from URL: " + e.getMessage())
+                        .build()
+        );
+    }
+
+    /**
+     * Detect objects in many uploaded images and/or URLs, streaming one NDJSON line per image as it completes
+     */
+    @Operation(summary = "Detect objects in a batch of images",
+            description = "Upload many images (repeated 'images' parts) and/or image URLs (repeated 'urls' fields). "
+                    + "Results are streamed as NDJSON in completion order, one line per image, followed by a summary line.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Batch accepted; results are streamed"),
+                    @ApiResponse(responseCode = "400", description = "Empty or oversized batch")
+            })
+    @Parameters({
+            @Parameter(name = "bypassCache", in = ParameterIn.QUERY, schema = @Schema(type = "boolean", defaultValue = "false")),
+            @Parameter(name = "engine", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
+            @Parameter(name = "downscale", in = ParameterIn.QUERY, schema = @Schema(type = "boolean", defaultValue = "true"))
+    })
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, content = @Content(
+            mediaType = MediaType.MULTIPART_FORM_DATA_VALUE, schema = @Schema(implementation = BatchUploadForm.class)))
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> detectBatch(HttpServletRequest request) throws IOException {
+        
+        // As for POST /api/detect, flags come from the query string so the body is only read below
+        MultiValueMap<String, String> query = queryParameters(request);
+        DetectionOptions options = DetectionOptions.builder()
+                .bypassCache(flag(query.getFirst("bypassCache"), false))
+                .engine(query.getFirst("engine"))
+                .skipPreprocessing(!flag(query.getFirst("downscale"), true))
+                .build();
+        
+        List<BatchItem> items = new ArrayList<>();
+        if (multipartIngestService.isEnabled()) {
+            // Every image goes into pooled off-heap chunks; each item releases its own once it is processed
+            MultipartIngestService.StreamedParts parts = multipartIngestService.readParts(
+                    request, "images", "urls", maxBatchRequestSize.toBytes());
+            for (MultipartIngestService.StreamedUpload upload : parts.getFiles()) {
+                items.add(BatchItem.builder()
+                        .index(items.size())
+                        .source("file")
+                        .name(upload.getFileName())
+                        .buffer(upload.getBuffer())
+                        .contentType(upload.getContentType())
+                        .build());
+            }
+            addUrlItems(items, parts.getFields());
+        } else {
+            // Without streaming the container parses the body, so the batch is held to the global request size
+            MultipartHttpServletRequest multipartRequest = WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class);
+            if (multipartRequest != null) {
+                for (MultipartFile image : multipartRequest.getFiles("images")) {
+                    if (image.isEmpty()) continue;
+                    // Read every part now; the multipart request may be cleaned up while results are still streaming
+                    items.add(BatchItem.builder()
+                            .index(items.size())
+                            .source("file")
+                            .name(image.getOriginalFilename())
+                            .bytes(image.getBytes())
+                            .contentType(image.getContentType())
+                            .build());
                 }
-                
-                dashboardService.recordDetection(
-                    detectedObjectsForStats, 
-                    processingTime, 
-                    deviceInfo,
-                    imageUrl,
-                    "URL: " + urlRequest.getUrl()
-                );
-                
-                log.info("Recorded detection statistics: {} objects detected in {}ms, image URL: {}", 
-                         result.getDetectedObjects().size(), processingTime, imageUrl);
-            } else if (result != null && result.getError() != null) {
-                dashboardService.recordError(result.getError(), "DETECTION_ERROR");
+                String[] urls = multipartRequest.getParameterValues("urls");
+                addUrlItems(items, urls != null ? Arrays.asList(urls) : null);
+            }
+        }
+        
+        return streamBatch(items, options, request);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> detectBatchFromUrls(
+            @RequestBody @Valid BatchUrlRequest batchRequest,
+            @RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "downscale", defaultValue = "true") boolean downscale,
+            HttpServletRequest request) throws IOException {
+        
+        List<BatchItem> items = new ArrayList<>();
+        addUrlItems(items, batchRequest.getUrls());
+        return streamBatch(items, DetectionOptions.builder().bypassCache(bypassCache).engine(engine).skipPreprocessing(!downscale).build(), request);
+    }
+
+    private void addUrlItems(List<BatchItem> items, List<String> urls) {
+        if (urls == null) return;
+        for (String url : urls) {
+            if (url == null || url.trim().isEmpty()) continue;
+            items.add(BatchItem.builder()
+                    .index(items.size())
+                    .source("url")
+                    .name(url.trim())
+                    .url(url.trim())
+                    .build());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamBatch(List<BatchItem> items, DetectionOptions options,
+                                                             HttpServletRequest request) throws IOException {
+        if (items.isEmpty() || items.size() > maxBatchItems) {
+            items.forEach(BatchItem::release);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", items.isEmpty() ? "Batch contains no images or URLs"
+                    : "Batch exceeds the maximum of " + maxBatchItems + " items");
+            errorResponse.put("items", items.size());
+            // Streaming handler owns this return type, so the error body is written the same way
+            byte[] errorBody = objectMapper.writeValueAsBytes(errorResponse);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(errorBody));
+        }
+        
+        log.info("Received batch detection request with {} items", items.size());
+        String deviceInfo = deviceClassifier.classify(request);
+        
+        StreamingResponseBody body = out -> {
+            long startTime = System.currentTimeMillis();
+            List<BatchItemResult> results;
+            try {
+                results = batchDetectionService.process(items, options, result -> {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Batch interrupted", e);
             }
             
-            return ResponseEntity.ok(result);
+            // One bulk update for the whole batch
+            dashboardService.recordDetections(results, deviceInfo);
+            int succeeded = 0;
+            for (BatchItemResult result : results) {
+                if (result.isSuccess()) {
+                    succeeded++;
+                    detectionMetrics.recordOutcome(result.getSource(), "success");
+                    detectionMetrics.recordObjects(result.getResult().getDetectedObjects().size());
+                } else {
+                    detectionMetrics.recordOutcome(result.getSource(), "error");
+                }
+            }
             
-        } catch (Exception e) {
-            long processingTime = System.currentTimeMillis() - startTime;
-            log.error("Error processing image from URL: {}", e.getMessage(), e);
-            dashboardService.recordError(e.getMessage(), "URL_PROCESSING_ERROR");
-            
-            return ResponseEntity.badRequest().body(
-                    DetectionResult.builder()
-                            .error("Failed to process image from URL: " + e.getMessage())
-                            .build()
-            );
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("total", items.size());
+            summary.put("completed", results.size());
+            summary.put("succeeded", succeeded);
+            summary.put("failed", results.size() - succeeded);
+            summary.put("processingTimeMs", System.currentTimeMillis() - startTime);
+            try {
+                out.write(objectMapper.writeValueAsBytes(Collections.singletonMap("summary", summary)));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                log.debug("Batch client disconnected before the summary: {}", e.getMessage());
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Queue an uploaded image for asynchronous detection
+     */
+    @Operation(summary = "Submit an image file as an asynchronous detection job",
+            description = "Returns 202 with a job ID immediately; poll GET /api/detect/jobs/{jobId} or subscribe to its events",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Job queued"),
+                    @ApiResponse(responseCode = "400", description = "Invalid input"),
+                    @ApiResponse(responseCode = "429", description = "Job queue is full")
+            })
+    @PostMapping(value = "/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> submitImageJob(
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "downscale", defaultValue = "true") boolean downscale,
+            HttpServletRequest request) throws IOException {
+        
+        if (imageFile.isEmpty()) {
+            dashboardService.recordError("Empty file uploaded", "EMPTY_FILE_ERROR");
+            detectionMetrics.recordOutcome("file", "rejected");
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Empty file");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        
+        // The worker runs after this request completes, so take the bytes now
+        BatchItem item = BatchItem.builder()
+                .source("file")
+                .name(imageFile.getOriginalFilename())
+                .bytes(imageFile.getBytes())
+                .contentType(imageFile.getContentType())
+                .build();
+        return submitJob(item, DetectionOptions.builder().bypassCache(bypassCache).engine(engine).skipPreprocessing(!downscale).build(), request);
+    }
+
+    /**
+     * Queue an image URL for asynchronous detection
+     */
+    @Operation(summary = "Submit an image URL as an asynchronous detection job",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Job queued"),
+                    @ApiResponse(responseCode = "429", description = "Job queue is full")
+            })
+    @PostMapping(value = "/jobs", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> submitUrlJob(
+            @RequestBody @Valid UrlRequest urlRequest,
+            @RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "downscale", defaultValue = "true") boolean downscale,
+            HttpServletRequest request) {
+        
+        BatchItem item = BatchItem.builder()
+                .source("url")
+                .name(urlRequest.getUrl())
+                .url(urlRequest.getUrl())
+                .build();
+        return submitJob(item, DetectionOptions.builder().bypassCache(bypassCache).engine(engine).skipPreprocessing(!downscale).build(), request);
+    }
+
+    private ResponseEntity<Map<String, Object>> submitJob(BatchItem item, DetectionOptions options, HttpServletRequest request) {
+        try {
+            DetectionJob job = detectionJobService.submit(item, options, deviceClassifier.classify(request));
+            log.info("Queued detection job {} for {}", job.getId(), item.getName());
+            
+            String statusUrl = "/api/detect/jobs/" + job.getId();
+            Map<String, Object> response = job.toMap();
+            response.put("statusUrl", statusUrl);
+            response.put("eventsUrl", statusUrl + "/events");
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, statusUrl)
+                    .body(response);
+        } catch (RejectedExecutionException e) {
+            log.warn("Job queue full, rejecting {}", item.getName());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Detection job queue is full, retry later");
+            errorResponse.put("retryAfterSeconds", jobRetryAfterSeconds);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(jobRetryAfterSeconds))
+                    .body(errorResponse);
+        }
+    }
+
+    /**
+     * Poll an asynchronous detection job
+     */
+    @Operation(summary = "Get detection job status",
+            description = "Returns the job status, and its result once it has finished",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Job found"),
+                    @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+            })
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        DetectionJob job = detectionJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * Push job status and completion over Server-Sent Events
+     */
+    @Operation(summary = "Subscribe to detection job events",
+            description = "SSE stream: a 'status' event on subscribe and when the job starts, then a 'result' event when it finishes")
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = detectionJobService.subscribe(jobId);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(emitter);
     }
 
     /**
@@ -221,7 +646,7 @@ public class DetectionController {
     public ResponseEntity<?> deleteDetection(@PathVariable String detectionId, HttpServletRequest request) {
         log.info("Received request to delete detection with ID: {}", detectionId);
         
-        String deviceInfo = getDeviceInfo(request);
+        String deviceInfo = deviceClassifier.classify(request);
         
         try {
             // Check if detection exists
@@ -283,19 +708,25 @@ public class DetectionController {
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String device,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String after) {
         
-        log.info("Received request to get all detections - page: {}, size: {}, category: {}, device: {}, search: {}", 
-                 page, size, category, device, search);
+        log.info("Received request to get all detections - page: {}, size: {}, category: {}, device: {}, search: {}, after: {}", 
+                 page, size, category, device, search, after);
         
         try {
             // Validate pagination parameters
             if (page < 0) page = 0;
             if (size <= 0 || size > 100) size = 20; // Limit max size to prevent performance issues
             
-            Map<String, Object> result = dashboardService.getAllDetections(page, size, category, device, search);
+            Map<String, Object> result = dashboardService.getAllDetections(page, size, category, device, search, after);
             return ResponseEntity.ok(result);
             
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("after", after);
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             log.error("Error retrieving detections: {}", e.getMessage(), e);
             
@@ -385,6 +816,29 @@ public class DetectionController {
         }
     }
     
+    /**
+     * Query string parameters only, without touching the request body
+     */
+    private static MultiValueMap<String, String> queryParameters(HttpServletRequest request) {
+        MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+        if (request.getQueryString() == null) return parameters;
+        
+        UriComponentsBuilder.newInstance().query(request.getQueryString()).build().getQueryParams()
+                .forEach((name, values) -> values.forEach(value -> parameters.add(
+                        UriUtils.decode(name, StandardCharsets.UTF_8),
+                        value != null ? UriUtils.decode(value, StandardCharsets.UTF_8) : "")));
+        return parameters;
+    }
+    
+    /**
+     * Boolean query flag with the same spellings @RequestParam accepts
+     */
+    private static boolean flag(String value, boolean defaultValue) {
+        if (value == null || value.isEmpty()) return defaultValue;
+        String v = value.toLowerCase(Locale.ROOT);
+        return v.equals("true") || v.equals("on") || v.equals("yes") || v.equals("1");
+    }
+    
     /**
      * Extract image URL from DetectionResult - handles both Cloudinary and other URLs
      */
@@ -411,268 +865,31 @@ public class DetectionController {
     }
     
     /**
-     * Extract device information from HTTP request
-     */
-    private String getDeviceInfo(HttpServletRequest request) {
-        if (request == null) return "Unknown Device";
-        
-        // Check for custom headers from frontend
-        String clientType = request.getHeader("X-Client-Type");
-        String deviceInfo = request.getHeader("X-Device-Info");
-        String requestedWith = request.getHeader("X-Requested-With");
-        
-        // If we have detailed device info from frontend, parse it
-        if (deviceInfo != null && !deviceInfo.trim().isEmpty()) {
-            try {
-                return parseClientDeviceInfo(deviceInfo, clientType);
-            } catch (Exception e) {
-                log.debug("Could not parse device info JSON: {}", e.getMessage());
-            }
-        }
-        
-        // Fallback to User-Agent analysis
-        String userAgent = request.getHeader("User-Agent");
-        String origin = request.getHeader("Origin");
-        String referer = request.getHeader("Referer");
-        
-        log.debug("Headers - User-Agent: {}, Origin: {}, Client-Type: {}", userAgent, origin, clientType);
-        
-        if (userAgent == null || userAgent.trim().isEmpty()) {
-            if (clientType != null) {
-                return clientType;
-            }
-            return "Unknown Client";
-        }
-        
-        String ua = userAgent.toLowerCase();
-        
-        // Handle requests from your web portal
-        if (clientType != null && clientType.contains("Web Portal")) {
-            if (requestedWith != null && requestedWith.equals("XMLHttpRequest")) {
-                return "Web Portal (AJAX)";
-            }
-            return "Web Portal";
-        }
-        
-        // Handle OkHttp and other HTTP clients
-        if (ua.contains("okhttp")) {
-            String version = extractVersion(userAgent, "okhttp");
-            if (origin != null && (origin.contains("localhost") || origin.contains("127.0.0.1"))) {
-                return "Local Development (OkHttp " + version + ")";
-            }
-            return "Mobile App (OkHttp " + version + ")";
-        }
-        
-        // Handle other HTTP clients
-        if (ua.contains("curl")) return "cURL Client";
-        if (ua.contains("postman")) return "Postman API Client";
-        if (ua.contains("insomnia")) return "Insomnia API Client";
-        if (ua.contains("httpie")) return "HTTPie Client";
-        
-        // Mobile browsers
-        if (ua.contains("mobile") || ua.contains("android")) {
-            if (ua.contains("chrome")) return "Android Chrome";
-            if (ua.contains("firefox")) return "Android Firefox";
-            if (ua.contains("samsung")) return "Samsung Browser";
-            return "Android Device";
-        }
-        
-        if (ua.contains("iphone")) {
-            if (ua.contains("safari") && !ua.contains("chrome")) return "iPhone Safari";
-            if (ua.contains("chrome")) return "iPhone Chrome";
-            return "iPhone";
-        }
-        
-        if (ua.contains("ipad")) {
-            if (ua.contains("safari") && !ua.contains("chrome")) return "iPad Safari";
-            if (ua.contains("chrome")) return "iPad Chrome";
-            return "iPad";
-        }
-        
-        // Desktop browsers
-        if (ua.contains("windows")) {
-            if (ua.contains("chrome") && !ua.contains("edg")) return "Windows Chrome";
-            if (ua.contains("firefox")) return "Windows Firefox";
-            if (ua.contains("edg")) return "Windows Edge";
-            return "Windows PC";
-        }
-        
-        if (ua.contains("macintosh") || ua.contains("mac os")) {
-            if (ua.contains("chrome") && !ua.contains("edg")) return "Mac Chrome";
-            if (ua.contains("firefox")) return "Mac Firefox";
-            if (ua.contains("safari") && !ua.contains("chrome")) return "Mac Safari";
-            return "Mac";
-        }
-        
-        if (ua.contains("linux")) {
-            if (ua.contains("chrome")) return "Linux Chrome";
-            if (ua.contains("firefox")) return "Linux Firefox";
-            return "Linux PC";
-        }
-        
-        // Fallback
-        if (ua.contains("mozilla")) return "Web Browser";
-        
-        return "Client (" + cleanUserAgent(userAgent) + ")";
-    }
-
-    /**
-     * Parse detailed device info from frontend
-     */
-    private String parseClientDeviceInfo(String deviceInfoJson, String clientType) {
-        try {
-            String deviceType = extractJsonValue(deviceInfoJson, "deviceType");
-            String os = extractJsonValue(deviceInfoJson, "os");
-            String browser = extractJsonValue(deviceInfoJson, "browser");
-            
-            StringBuilder result = new StringBuilder();
-            
-            if (deviceType != null && !deviceType.equals("Unknown")) {
-                result.append(deviceType).append(" ");
-            }
-            
-            if (os != null && !os.equals("Unknown")) {
-                result.append(os).append(" ");
-            }
-            
-            if (browser != null && !browser.equals("Unknown")) {
-                result.append(browser);
-            }
-            
-            String finalResult = result.toString().trim();
-            if (!finalResult.isEmpty()) {
-                if (clientType != null && clientType.contains("Portal")) {
-                    return "Web Portal (" + finalResult + ")";
-                }
-                return finalResult;
-            }
-            
-        } catch (Exception e) {
-            log.debug("Error parsing device info: {}", e.getMessage());
-        }
-        
-        return clientType != null ? clientType : "Unknown Device";
-    }
-
-    /**
-     * Simple JSON value extraction (without external JSON library)
+     * Validate timeframe parameter
      */
-    private String extractJsonValue(String json, String key) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.debug("Could not extract {} from JSON: {}", key, e.getMessage());
-        }
-        return null;
+    private boolean isValidTimeframe(String timeframe) {
+        if (timeframe == null) return false;
+        String tf = timeframe.toLowerCase();
+        return tf.equals("hour") || tf.equals("day") || tf.equals("week") || tf.equals("month");
     }
 
     /**
-     * Extract version from user agent string
+     * Documents the multipart body of POST /api/detect, which is streamed rather than bound
      */
-    private String extractVersion(String userAgent, String client) {
-        try {
-            String pattern = client + "/([0-9.]+)";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern, java.util.regex.Pattern.CASE_INSENSITIVE);
-            java.util.regex.Matcher m = p.matcher(userAgent);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.debug("Could not extract version for {}: {}", client, e.getMessage());
-        }
-        return "";
+    @Schema(name = "ImageUpload")
+    static class ImageUploadForm {
+        @Schema(type = "string", format = "binary", required = true, description = "Image file (JPEG, PNG, GIF, BMP, WebP or TIFF)")
+        public String image;
     }
 
     /**
-     * Clean user agent for display
-     */
-    private String cleanUserAgent(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        
-        String cleaned = userAgent.replaceAll("\\([^)]*\\)", "")  // Remove parentheses content
-                                  .replaceAll("\\s+", " ")         // Multiple spaces to single
-                                  .trim();
-        
-        if (cleaned.length() > 25) {
-            cleaned = cleaned.substring(0, 22) + "...";
-        }
-        
-        return cleaned;
-    }
-    
-    /**
-     * Convert DetectionResult objects to the format expected by dashboard statistics
+     * Documents the multipart body of POST /api/detect/batch, which is streamed rather than bound
      */
-    private List<Map<String, Object>> convertToStatisticsFormat(List<?> detectedObjects) {
-        List<Map<String, Object>> statsObjects = new ArrayList<>();
-        
-        if (detectedObjects == null) {
-            return statsObjects;
-        }
-        
-        for (Object obj : detectedObjects) {
-            Map<String, Object> statsObj = new HashMap<>();
-            
-            try {
-                // Handle different types of detected objects
-                if (obj instanceof Map) {
-                    Map<?, ?> objMap = (Map<?, ?>) obj;
-                    statsObj.put("label", objMap.get("label"));
-                    statsObj.put("confidence", objMap.get("confidence"));
-                    statsObj.put("box", objMap.get("box"));
-                } else {
-                    // If it's a custom object, use reflection or specific getters
-                    statsObj.put("label", getFieldValue(obj, "label"));
-                    statsObj.put("confidence", getFieldValue(obj, "confidence"));
-                    statsObj.put("box", getFieldValue(obj, "box"));
-                }
-                
-                statsObjects.add(statsObj);
-                
-            } catch (Exception e) {
-                log.warn("Could not convert detected object to statistics format: {}", e.getMessage());
-                // Create a basic entry
-                Map<String, Object> basicObj = new HashMap<>();
-                basicObj.put("label", "unknown");
-                basicObj.put("confidence", 0.0);
-                basicObj.put("box", new HashMap<>());
-                statsObjects.add(basicObj);
-            }
-        }
-        
-        return statsObjects;
-    }
-    
-    /**
-     * Helper method to get field values using reflection or specific getters
-     */
-    private Object getFieldValue(Object obj, String fieldName) {
-        try {
-            // Try common getter patterns
-            String getterName = "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-            return obj.getClass().getMethod(getterName).invoke(obj);
-        } catch (Exception e) {
-            // If getter doesn't work, try direct field access
-            try {
-                return obj.getClass().getField(fieldName).get(obj);
-            } catch (Exception ex) {
-                log.debug("Could not get field value for {}: {}", fieldName, ex.getMessage());
-                return null;
-            }
-        }
-    }
-
-    /**
-     * Validate timeframe parameter
-     */
-    private boolean isValidTimeframe(String timeframe) {
-        if (timeframe == null) return false;
-        String tf = timeframe.toLowerCase();
-        return tf.equals("hour") || tf.equals("day") || tf.equals("week") || tf.equals("month");
+    @Schema(name = "BatchUpload")
+    static class BatchUploadForm {
+        @ArraySchema(schema = @Schema(type = "string", format = "binary", description = "Image file"))
+        public List<String> images;
+        @ArraySchema(schema = @Schema(type = "string", description = "Image URL"))
+        public List<String> urls;
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.objectdetection.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * The inference backend answered, but with an error payload or an unusable response.
+ */
+@Getter
+public class InferenceException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    // Seconds until the model is expected to be ready, when the backend reports it is still loading
+    private final Double estimatedTimeSeconds;
+
+    public InferenceException(String message, int statusCode, Double estimatedTimeSeconds) {
+        super(message);
+        this.statusCode = statusCode;
+        this.estimatedTimeSeconds = estimatedTimeSeconds;
+    }
+
+    public InferenceException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.estimatedTimeSeconds = null;
+    }
+}
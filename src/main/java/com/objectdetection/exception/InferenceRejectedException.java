@@ -0,0 +1,23 @@
+package com.objectdetection.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * The inference call was refused before reaching the backend, because its circuit breaker is open
+ * or its concurrency bulkhead is full.
+ */
+@Getter
+public class InferenceRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    // Hint for clients on when the backend may accept calls again
+    private final long retryAfterMs;
+
+    public InferenceRejectedException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+}
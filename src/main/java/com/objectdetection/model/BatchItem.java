@@ -0,0 +1,31 @@
+package com.objectdetection.model;
+
+import com.objectdetection.util.PooledBuffer;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One image of a batch request: uploaded bytes, an upload held in a pooled buffer, or a URL to download.
+ */
+@Value
+@Builder
+public class BatchItem {
+    int index;
+    String source; // "file" or "url"
+    String name;
+    byte[] bytes;
+    // Owned by the item; released once the item has been processed or skipped
+    PooledBuffer buffer;
+    String contentType;
+    String url;
+
+    public boolean isUrl() {
+        return url != null;
+    }
+
+    public void release() {
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+}
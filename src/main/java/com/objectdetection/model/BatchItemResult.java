@@ -0,0 +1,20 @@
+package com.objectdetection.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Outcome of one batch item; streamed to the client as a single NDJSON line.
+ */
+@Value
+@Builder
+public class BatchItemResult {
+    int index;
+    String source;
+    String name;
+    DetectionResult result;
+
+    public boolean isSuccess() {
+        return result != null && result.getError() == null && result.getDetectedObjects() != null;
+    }
+}
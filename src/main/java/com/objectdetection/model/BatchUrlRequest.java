@@ -0,0 +1,12 @@
+package com.objectdetection.model;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+public class BatchUrlRequest {
+    @NotEmpty(message = "URL list cannot be empty")
+    private List<String> urls;
+}
@@ -0,0 +1,77 @@
+package com.objectdetection.model;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Asynchronous detection request. The submitting thread creates it, one worker moves it
+ * through RUNNING to a terminal state, and readers poll it or subscribe for completion.
+ */
+@Getter
+public class DetectionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    private final String id;
+    private final String source;
+    private final String name;
+    private final String deviceInfo;
+    private final DetectionOptions options;
+    private final long createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAt;
+    private volatile long completedAt;
+    private volatile DetectionResult result;
+
+    // Input is released once the job finishes so retained jobs only hold their result
+    private volatile BatchItem item;
+
+    public DetectionJob(String id, BatchItem item, DetectionOptions options, String deviceInfo) {
+        this.id = id;
+        this.source = item.getSource();
+        this.name = item.getName();
+        this.item = item;
+        this.options = options;
+        this.deviceInfo = deviceInfo;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public void markRunning() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void complete(DetectionResult result, boolean success) {
+        this.result = result;
+        this.item = null;
+        completedAt = System.currentTimeMillis();
+        status = success ? Status.SUCCEEDED : Status.FAILED;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> job = new HashMap<>();
+        job.put("jobId", id);
+        job.put("status", status.name());
+        job.put("source", source);
+        job.put("name", name);
+        job.put("createdAt", DetectionRecord.formatTimestamp(createdAt));
+        if (startedAt > 0) {
+            job.put("startedAt", DetectionRecord.formatTimestamp(startedAt));
+            job.put("queueTimeMs", startedAt - createdAt);
+        }
+        if (completedAt > 0) {
+            job.put("completedAt", DetectionRecord.formatTimestamp(completedAt));
+            job.put("result", result);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,23 @@
+package com.objectdetection.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Per-request switches for the detection pipeline.
+ */
+@Value
+@Builder
+public class DetectionOptions {
+
+    public static final DetectionOptions DEFAULTS = DetectionOptions.builder().build();
+
+    // Skip the result cache lookup and run inference again (the fresh result still refreshes the cache)
+    boolean bypassCache;
+
+    // Detection engine by name (huggingface, onnx); null uses detection.engine.default
+    String engine;
+
+    // Send the image to the engine as uploaded instead of downscaling it first
+    boolean skipPreprocessing;
+}
@@ -0,0 +1,73 @@
+package com.objectdetection.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable entry in the dashboard's detection history.
+ */
+@Value
+@Builder(toBuilder = true)
+public class DetectionRecord {
+    private static final String ID_PREFIX = "det_";
+
+    // Position in the history ring; id is the stable public identifier assigned at record time
+    long sequence;
+    long id;
+    long timestamp;
+    List<DetectedObject> objects;
+    long processingTime;
+    String device;
+    String imageUrl;
+    String fileName;
+
+    public String getDetectionId() {
+        return ID_PREFIX + id;
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    public String getFormattedTimestamp() {
+        return formatTimestamp(timestamp);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> detection = new HashMap<>();
+        detection.put("id", getDetectionId());
+        detection.put("timestamp", getFormattedTimestamp());
+        detection.put("objects", objects);
+        detection.put("processingTime", processingTime);
+        detection.put("device", device);
+        detection.put("objectCount", objects.size());
+        detection.put("imageUrl", imageUrl); // Cloudinary URL
+        detection.put("fileName", fileName); // Original file name
+        return detection;
+    }
+
+    /**
+     * Numeric id encoded in a public detection id, or -1 if it is malformed.
+     */
+    public static long parseDetectionId(String detectionId) {
+        if (detectionId == null || !detectionId.startsWith(ID_PREFIX)) return -1;
+        try {
+            return Long.parseLong(detectionId.substring(ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,28 @@
+package com.objectdetection.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable entry in the dashboard's error log.
+ */
+@Value
+@Builder
+public class ErrorRecord {
+    long timestamp;
+    String message;
+    String type;
+    String level;
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", DetectionRecord.formatTimestamp(timestamp));
+        error.put("message", message);
+        error.put("type", type);
+        error.put("level", level);
+        return error;
+    }
+}
@@ -0,0 +1,112 @@
+package com.objectdetection.model;
+
+import com.objectdetection.util.PooledBuffer;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Image bytes held in memory once and shared between storage upload and inference: either a heap
+ * array, or for streamed uploads a {@link PooledBuffer} of off-heap chunks. Consumers read through
+ * {@link #openStream()}, {@link #writeTo(OutputStream)} and {@link #head(int)} so they work with both.
+ */
+@Value
+@Builder
+public class ImagePayload {
+    // Exactly one of bytes and buffer is set; getBytes() is null for a pooled payload
+    byte[] bytes;
+    PooledBuffer buffer;
+    @With
+    String contentType;
+    String fileName;
+
+    public int getSize() {
+        return bytes != null ? bytes.length : (int) buffer.size();
+    }
+
+    public boolean isPooled() {
+        return buffer != null;
+    }
+
+    public InputStream openStream() {
+        return bytes != null ? new ByteArrayInputStream(bytes) : buffer.newInputStream();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (bytes != null) {
+            out.write(bytes);
+        } else {
+            buffer.writeTo(out);
+        }
+    }
+
+    public void updateDigest(MessageDigest digest) {
+        if (bytes != null) {
+            digest.update(bytes);
+        } else {
+            buffer.updateDigest(digest);
+        }
+    }
+
+    /**
+     * At most the first {@code maxBytes} bytes. May be the backing array itself, so callers must not modify it.
+     */
+    public byte[] head(int maxBytes) {
+        if (bytes != null) {
+            return bytes.length <= maxBytes ? bytes : Arrays.copyOf(bytes, maxBytes);
+        }
+        return buffer.head(maxBytes);
+    }
+
+    /**
+     * Take another reference for work that may outlive the current holder; a no-op for heap payloads.
+     */
+    public ImagePayload retain() {
+        if (buffer != null) {
+            buffer.retain();
+        }
+        return this;
+    }
+
+    public void release() {
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Detect the image type from its leading magic bytes, or null if it is not a recognised image.
+     */
+    public static String sniffContentType(byte[] bytes) {
+        if (bytes == null || bytes.length < 4) return null;
+
+        if ((bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if ((bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return "image/png";
+        }
+        if (bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') {
+            return "image/gif";
+        }
+        if (bytes[0] == 'B' && bytes[1] == 'M') {
+            return "image/bmp";
+        }
+        if (bytes.length >= 12 && bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == 'F'
+                && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') {
+            return "image/webp";
+        }
+        if ((bytes[0] == 'I' && bytes[1] == 'I' && bytes[2] == 42 && bytes[3] == 0)
+                || (bytes[0] == 'M' && bytes[1] == 'M' && bytes[2] == 0 && bytes[3] == 42)) {
+            return "image/tiff";
+        }
+        return null;
+    }
+}
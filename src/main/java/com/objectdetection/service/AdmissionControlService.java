@@ -0,0 +1,230 @@
+package com.objectdetection.service;
+
+import com.objectdetection.util.AdaptiveConcurrencyLimit;
+import com.objectdetection.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a detection request may enter the pipeline. Every client gets a token bucket, and
+ * the inference endpoints share an {@link AdaptiveConcurrencyLimit} that shrinks when latency shows
+ * queueing. A refused request is shed immediately with a retry hint instead of waiting for capacity.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+
+    public enum Reason {
+        RATE_LIMIT("rate_limit"),
+        CONCURRENCY("concurrency");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Outcome of {@link #admit}: either admitted, or shed for a reason with a retry hint.
+     */
+    public static final class Decision {
+        private static final Decision ADMITTED = new Decision(null, 0);
+        private static final Decision ADMITTED_WITH_SLOT = new Decision(null, 0);
+
+        private final Reason reason;
+        private final long retryAfterSeconds;
+
+        private Decision(Reason reason, long retryAfterSeconds) {
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAdmitted() {
+            return reason == null;
+        }
+
+        // Whether the request holds a concurrency slot that must be handed back through release()
+        public boolean holdsSlot() {
+            return this == ADMITTED_WITH_SLOT;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    // Clients beyond max-clients are spread over this many shared buckets until idle ones are swept
+    private static final int OVERFLOW_BUCKETS = 64;
+    private static final long OVERFLOW_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double burst;
+    private final double ratePerSecond;
+    private final int maxClients;
+    private final long retryAfterSeconds;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastOverflowSweep = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shedRateLimited = new AtomicLong();
+    private final AtomicLong shedConcurrency = new AtomicLong();
+    private final Counter admittedCounter;
+    private final Counter rateLimitedCounter;
+    private final Counter concurrencyShedCounter;
+
+    public AdmissionControlService(@Value("${detection.admission.enabled:true}") boolean enabled,
+                                   @Value("${detection.admission.rate.burst:20}") double burst,
+                                   @Value("${detection.admission.rate.per-second:5}") double ratePerSecond,
+                                   @Value("${detection.admission.max-clients:10000}") int maxClients,
+                                   @Value("${detection.admission.limit.initial:20}") int initialLimit,
+                                   @Value("${detection.admission.limit.min:4}") int minLimit,
+                                   @Value("${detection.admission.limit.max:200}") int maxLimit,
+                                   @Value("${detection.admission.limit.backoff-ratio:0.9}") double backoffRatio,
+                                   @Value("${detection.admission.limit.latency-tolerance:2.0}") double latencyTolerance,
+                                   @Value("${detection.admission.retry-after-seconds:1}") long retryAfterSeconds,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.burst = burst;
+        this.ratePerSecond = ratePerSecond;
+        this.maxClients = maxClients;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance);
+
+        this.admittedCounter = admissionCounter(meterRegistry, "admitted", "none");
+        this.rateLimitedCounter = admissionCounter(meterRegistry, "shed", Reason.RATE_LIMIT.tag);
+        this.concurrencyShedCounter = admissionCounter(meterRegistry, "shed", Reason.CONCURRENCY.tag);
+        Gauge.builder("detection.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive in-flight limit of the inference endpoints")
+                .register(meterRegistry);
+        Gauge.builder("detection.admission.inflight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("detection.admission.clients", buckets, Map::size)
+                .description("Clients with a tracked token bucket")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Charge the client one token and, for requests that run inference on the request thread, take a
+     * concurrency slot. An admitted decision that {@link Decision#holdsSlot() holds a slot} must be released.
+     */
+    public Decision admit(String clientKey, boolean limitConcurrency) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+
+        long waitNanos = bucketFor(clientKey).tryConsume();
+        if (waitNanos > 0) {
+            shedRateLimited.incrementAndGet();
+            rateLimitedCounter.increment();
+            log.debug("Rate limited client {}", clientKey);
+            long seconds = waitNanos == Long.MAX_VALUE ? retryAfterSeconds : TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1;
+            return new Decision(Reason.RATE_LIMIT, seconds);
+        }
+        if (limitConcurrency && !concurrencyLimit.tryAcquire()) {
+            shedConcurrency.incrementAndGet();
+            concurrencyShedCounter.increment();
+            log.debug("Shedding request from {}: {} requests in flight", clientKey, concurrencyLimit.getInFlight());
+            return new Decision(Reason.CONCURRENCY, retryAfterSeconds);
+        }
+
+        admitted.incrementAndGet();
+        admittedCounter.increment();
+        return limitConcurrency ? Decision.ADMITTED_WITH_SLOT : Decision.ADMITTED;
+    }
+
+    /**
+     * Hand back a concurrency slot, feeding the request's latency into the limit.
+     *
+     * @param dropped whether the request failed in a way that signals overload (5xx, timeout)
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        concurrencyLimit.release(latencyNanos, dropped);
+    }
+
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    public long getShedCount() {
+        return shedRateLimited.get() + shedConcurrency.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> rateLimit = new HashMap<>();
+        rateLimit.put("burst", burst);
+        rateLimit.put("perSecond", ratePerSecond);
+        rateLimit.put("clients", buckets.size());
+        rateLimit.put("maxClients", maxClients);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("admitted", admitted.get());
+        stats.put("shedRateLimited", shedRateLimited.get());
+        stats.put("shedConcurrency", shedConcurrency.get());
+        long total = admitted.get() + getShedCount();
+        stats.put("shedRate", total > 0 ? Math.round(getShedCount() * 1000.0 / total) / 10.0 : 0);
+        stats.put("rateLimit", rateLimit);
+        stats.put("concurrency", concurrencyLimit.getStatistics());
+        return stats;
+    }
+
+    // A bucket that has refilled completely behaves exactly like a new one, so it can be dropped
+    @Scheduled(fixedDelayString = "${detection.admission.sweep-interval-ms:60000}")
+    public void sweepIdleClients() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+
+    private TokenBucket bucketFor(String clientKey) {
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            sweepOnOverflow();
+        }
+        // A full table must not put every new client behind one bucket, so overflow is spread by key
+        String key = buckets.size() < maxClients
+                ? clientKey
+                : "overflow:" + Math.floorMod(clientKey.hashCode(), OVERFLOW_BUCKETS);
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(burst, ratePerSecond));
+    }
+
+    // Frees room for new clients without waiting for the scheduled sweep, at most once a second
+    private void sweepOnOverflow() {
+        long now = System.nanoTime();
+        long last = lastOverflowSweep.get();
+        if (now - last >= OVERFLOW_SWEEP_INTERVAL_NANOS && lastOverflowSweep.compareAndSet(last, now)) {
+            sweepIdleClients();
+        }
+    }
+
+    private static Counter admissionCounter(MeterRegistry meterRegistry, String outcome, String reason) {
+        return Counter.builder("detection.admission")
+                .description("Detection requests admitted or shed by admission control")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,166 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BatchItem;
+import com.objectdetection.model.BatchItemResult;
+import com.objectdetection.model.DetectionOptions;
+import com.objectdetection.model.DetectionResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans batch items out over a shared, bounded worker pool. Each batch keeps at most
+ * {@code detection.batch.max-concurrency} items in flight, so one large batch cannot
+ * starve the others, and results are handed back in completion order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchDetectionService {
+
+    private final ObjectDetectionService objectDetectionService;
+
+    @Value("${detection.batch.threads:8}")
+    private int batchThreads;
+
+    @Value("${detection.batch.queue-capacity:200}")
+    private int batchQueueCapacity;
+
+    @Value("${detection.batch.max-concurrency:4}")
+    private int maxConcurrencyPerBatch;
+
+    private ThreadPoolExecutor batchExecutor;
+
+    @FunctionalInterface
+    public interface ResultListener {
+        void onResult(BatchItemResult result) throws IOException;
+    }
+
+    @PostConstruct
+    void startBatchExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        batchExecutor = new ThreadPoolExecutor(
+                batchThreads, batchThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "detection-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // When every batch is busy, the batch's own thread runs the item instead of failing it
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        batchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stopBatchExecutor() {
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * Process every item and pass each result to the listener on the calling thread as soon as it completes.
+     * Item failures become error results. If the listener fails (client went away), items that have not
+     * started are skipped. Returns the results that completed.
+     * <p>
+     * The batch takes over the items: each one is dropped from the list when it is submitted and released
+     * when it finishes or is skipped, so a large batch only holds the images still waiting or in flight.
+     */
+    public List<BatchItemResult> process(List<BatchItem> items, DetectionOptions options, ResultListener listener) throws InterruptedException {
+        CompletionService<BatchItemResult> completionService = new ExecutorCompletionService<>(batchExecutor);
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        AtomicBoolean abandoned = new AtomicBoolean();
+        int submitted = 0;
+        int completed = 0;
+
+        try {
+            while (completed < submitted || (!abandoned.get() && submitted < items.size())) {
+                // Top up to the per-batch limit, then wait for the next item to finish
+                while (!abandoned.get() && submitted < items.size() && submitted - completed < maxConcurrencyPerBatch) {
+                    BatchItem item = items.set(submitted++, null);
+                    completionService.submit(() -> processItem(item, options, abandoned));
+                }
+
+                Future<BatchItemResult> done = completionService.take();
+                completed++;
+                BatchItemResult result = resultOf(done);
+                if (result == null) continue;
+
+                results.add(result);
+                if (!abandoned.get()) {
+                    try {
+                        listener.onResult(result);
+                    } catch (IOException e) {
+                        // Queued items skip their work; running ones finish and are still counted
+                        abandoned.set(true);
+                        log.info("Batch client disconnected after {} of {} results: {}", results.size(), items.size(), e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            for (int i = submitted; i < items.size(); i++) {
+                items.get(i).release();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return null when the batch was abandoned before the item started
+     */
+    private BatchItemResult processItem(BatchItem item, DetectionOptions options, AtomicBoolean abandoned) {
+        DetectionResult result;
+        try {
+            if (abandoned.get()) {
+                return null;
+            }
+            if (item.isUrl()) {
+                result = objectDetectionService.detectObjectsFromUrl(item.getUrl(), options);
+            } else if (item.getBuffer() != null) {
+                result = objectDetectionService.detectObjectsFromBuffer(item.getBuffer(), item.getContentType(), item.getName(), options);
+            } else {
+                result = objectDetectionService.detectObjectsFromBytes(item.getBytes(), item.getContentType(), item.getName(), options);
+            }
+        } catch (RuntimeException e) {
+            log.error("Batch item {} failed", item.getIndex(), e);
+            result = DetectionResult.builder().error("Failed to process image: " + e.getMessage()).build();
+        } finally {
+            // Storage uploads still running hold references of their own
+            item.release();
+        }
+        return BatchItemResult.builder()
+                .index(item.getIndex())
+                .source(item.getSource())
+                .name(item.getName())
+                .result(result)
+                .build();
+    }
+
+    private BatchItemResult resultOf(Future<BatchItemResult> done) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            // processItem never throws, but keep the batch alive regardless
+            return BatchItemResult.builder()
+                    .index(-1)
+                    .result(DetectionResult.builder().error("Failed to process image: " + e.getCause()).build())
+                    .build();
+        }
+    }
+}
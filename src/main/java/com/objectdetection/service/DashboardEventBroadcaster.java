@@ -0,0 +1,238 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans dashboard events out to SSE subscribers. Publishing never blocks the recording thread:
+ * each event is serialized once and offered to every subscriber's bounded queue, and a small
+ * dispatcher pool drains the queues. A subscriber whose queue overflows is disconnected rather
+ * than allowed to miss events silently; the portal reconnects and gets a fresh snapshot.
+ */
+@Component
+@Slf4j
+public class DashboardEventBroadcaster {
+
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int subscriberQueueCapacity;
+    private final long streamTimeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextEventId = new AtomicLong();
+    private final ThreadPoolExecutor dispatcher;
+    private final Counter droppedSubscribers;
+
+    public DashboardEventBroadcaster(ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${dashboard.stream.max-subscribers:100}") int maxSubscribers,
+                                     @Value("${dashboard.stream.queue-capacity:256}") int subscriberQueueCapacity,
+                                     @Value("${dashboard.stream.timeout-ms:1800000}") long streamTimeoutMs,
+                                     @Value("${dashboard.stream.dispatch-threads:2}") int dispatchThreads) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.subscriberQueueCapacity = subscriberQueueCapacity;
+        this.streamTimeoutMs = streamTimeoutMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // At most one drain task per subscriber is ever queued, so the queue is bounded by max-subscribers
+        this.dispatcher = new ThreadPoolExecutor(
+                dispatchThreads, dispatchThreads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dispatcher.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("dashboard.stream.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+        this.droppedSubscribers = Counter.builder("dashboard.stream.dropped")
+                .description("Subscribers disconnected because they fell too far behind")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void close() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Register a subscriber whose stream starts with the given snapshot event.
+     * Returns null when the subscriber limit has been reached.
+     */
+    public SseEmitter subscribe(String snapshotName, Object snapshot) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(subscriberQueueCapacity));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        // Queue the snapshot before joining, so it is always the first event the client sees
+        Event event = toEvent(snapshotName, snapshot);
+        if (event != null) {
+            subscriber.queue.offer(event);
+        }
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Offer an event to every subscriber. Cheap when nobody is listening.
+     */
+    public void publish(String name, Object data) {
+        if (subscribers.isEmpty()) return;
+
+        Event event = toEvent(name, data);
+        if (event == null) return;
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.offer(event)) {
+                schedule(subscriber);
+            } else {
+                drop(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Keep idle connections (and any proxies in between) from timing out.
+     */
+    @Scheduled(fixedDelayString = "${dashboard.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.offer(Event.HEARTBEAT)) {
+                schedule(subscriber);
+            }
+            // A full queue already has data on the way, so a missed heartbeat is harmless
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("queueCapacity", subscriberQueueCapacity);
+        stats.put("eventsPublished", nextEventId.get());
+        stats.put("droppedSubscribers", (long) droppedSubscribers.count());
+        return stats;
+    }
+
+    private Event toEvent(String name, Object data) {
+        try {
+            return new Event(nextEventId.incrementAndGet(), name, objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize dashboard {} event: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Event event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(event.toSse());
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dashboard subscriber disconnected: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.queue.clear();
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have arrived between the last poll and releasing the flag
+        if (!subscriber.queue.isEmpty() && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            droppedSubscribers.increment();
+            log.info("Disconnecting slow dashboard subscriber after {} queued events", subscriberQueueCapacity);
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Event> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Event> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+
+    private static final class Event {
+        static final Event HEARTBEAT = new Event(0, null, null);
+
+        final long id;
+        final String name;
+        final String json;
+
+        Event(long id, String name, String json) {
+            this.id = id;
+            this.name = name;
+            this.json = json;
+        }
+
+        // Builders are single-use, so one is made per send; the JSON payload is shared
+        SseEmitter.SseEventBuilder toSse() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event()
+                    .id(Long.toString(id))
+                    .name(name)
+                    .data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,1353 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BatchItemResult;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.DetectionRecord;
+import com.objectdetection.model.DetectionResult;
+import com.objectdetection.model.ErrorRecord;
+import com.objectdetection.util.CircuitBreaker;
+import com.objectdetection.util.PostingList;
+import com.objectdetection.util.RingBuffer;
+import com.objectdetection.util.TimeBucketCounters;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class DashboardService {
+    
+    // Upper bound on distinct interned device/label strings, so odd User-Agents cannot grow it forever
+    private static final int MAX_INTERNED_STRINGS = 10_000;
+    
+    private static final String UNKNOWN_DEVICE = "Unknown";
+    
+    @Autowired
+    private ObjectDetectionService objectDetectionService;
+    
+    @Autowired
+    private IngestionStatistics ingestionStatistics;
+    
+    @Autowired
+    private MultipartIngestService multipartIngestService;
+    
+    @Autowired
+    private DeviceClassifier deviceClassifier;
+    
+    @Autowired
+    private DetectionResultCache detectionResultCache;
+    
+    @Autowired
+    private LatencyStatistics latencyStatistics;
+    
+    @Autowired
+    private DetectionEventLog detectionEventLog;
+    
+    @Autowired
+    private DetectionMetrics detectionMetrics;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private DashboardEventBroadcaster dashboardEventBroadcaster;
+    
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+    
+    @Value("${server.tomcat.threads.max:200}")
+    private int maxRequestThreads;
+    
+    // In-memory storage for demo purposes
+    private final AtomicInteger activeSessions = new AtomicInteger(0);
+    private final AtomicLong totalApiCalls = new AtomicLong(0);
+    private final AtomicLong totalProcessingTime = new AtomicLong(0);
+    private final AtomicInteger totalErrors = new AtomicInteger(0);
+    
+    // Lock-free, fixed-capacity history; the oldest records are overwritten once full
+    private final RingBuffer<DetectionRecord> detectionHistory;
+    private final RingBuffer<ErrorRecord> errorLogs;
+    private final Map<String, AtomicInteger> categoryCount = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> deviceCount = new ConcurrentHashMap<>();
+    private final Map<String, String> internedStrings = new ConcurrentHashMap<>();
+    
+    // Constant-time lookup by detection id; entries leave the index when the ring evicts them
+    private final Map<Long, DetectionRecord> detectionIndex = new ConcurrentHashMap<>();
+    
+    // Newest-first posting lists keyed by detection id, so listings need neither a scan nor a sort
+    private final PostingList<DetectionRecord> allDetections = new PostingList<>();
+    private final Map<String, PostingList<DetectionRecord>> categoryIndex = new ConcurrentHashMap<>();
+    private final Map<String, PostingList<DetectionRecord>> deviceIndex = new ConcurrentHashMap<>();
+    
+    // Time-ordered ids: startup epoch micros, then incremented per detection, so they never repeat across restarts
+    private final AtomicLong nextDetectionId = new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    
+    // Rolling per-minute, per-hour and per-day aggregates behind the chart endpoints
+    private final TimeBucketCounters minuteBuckets = new TimeBucketCounters(TimeUnit.MINUTES.toMillis(1), 90);
+    private final TimeBucketCounters hourBuckets = new TimeBucketCounters(TimeUnit.HOURS.toMillis(1), 24 * 8);
+    private final TimeBucketCounters dayBuckets = new TimeBucketCounters(TimeUnit.DAYS.toMillis(1), 35);
+    
+    // Recording holds the read side while it updates memory and enqueues to the event log;
+    // a checkpoint takes the write side only to copy its state, so it matches an exact log position
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    public DashboardService(@Value("${dashboard.history.capacity:10000}") int historyCapacity,
+                            @Value("${dashboard.error-log.capacity:1000}") int errorLogCapacity) {
+        this.detectionHistory = new RingBuffer<>(historyCapacity,
+                this::unindexDetection);
+        this.errorLogs = new RingBuffer<>(errorLogCapacity);
+    }
+
+    @PostConstruct
+    void initialize() {
+        // Rebuilds history and aggregates from the durable log before the first request is served
+        detectionEventLog.open(new EventLogListener());
+        
+        // Expose the dashboard's own (persisted) totals, so Prometheus and the dashboard report the same numbers
+        FunctionCounter.builder("dashboard.detections", totalApiCalls, AtomicLong::get)
+                .description("Detections recorded on the dashboard, including replayed history")
+                .register(meterRegistry);
+        FunctionCounter.builder("dashboard.errors", totalErrors, AtomicInteger::get)
+                .description("Errors recorded on the dashboard, including replayed history")
+                .register(meterRegistry);
+        FunctionCounter.builder("dashboard.processing.time", totalProcessingTime, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("dashboard.history.size", detectionHistory, RingBuffer::size)
+                .register(meterRegistry);
+        Gauge.builder("dashboard.log.queue.utilization", detectionEventLog, DetectionEventLog::getQueueUtilization)
+                .baseUnit("percent")
+                .register(meterRegistry);
+    }
+
+    public Map<String, Object> getDashboardMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        
+        // Calculate error rate
+        double errorRate = totalApiCalls.get() > 0 ? 
+            (double) totalErrors.get() / totalApiCalls.get() * 100 : 0;
+        
+        // Calculate average response time
+        long avgResponseTime = totalApiCalls.get() > 0 ? 
+            totalProcessingTime.get() / totalApiCalls.get() : 0;
+        
+        metrics.put("activeSessions", activeSessions.get());
+        metrics.put("apiCalls", totalApiCalls.get());
+        metrics.put("responseTime", avgResponseTime);
+        metrics.put("errorRate", Math.round(errorRate * 10.0) / 10.0);
+        metrics.put("inFlightRequests", (int) gaugeValue(DetectionMetrics.IN_FLIGHT));
+        metrics.put("admittedRequests", admissionControlService.getAdmittedCount());
+        metrics.put("shedRequests", admissionControlService.getShedCount());
+        metrics.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        
+        log.debug("Dashboard metrics: sessions={}, calls={}, responseTime={}ms, errorRate={}%", 
+                 activeSessions.get(), totalApiCalls.get(), avgResponseTime, errorRate);
+        
+        return metrics;
+    }
+
+    public Map<String, Object> getChartData(String timeframe) {
+        Map<String, Object> chartData = new HashMap<>();
+        
+        // Generate data based on actual detection history and timeframe
+        List<String> labels = new ArrayList<>();
+        List<Integer> data = new ArrayList<>();
+        
+        switch (timeframe.toLowerCase()) {
+            case "hour":
+                // Last hour data (every 5 minutes)
+                for (int i = 60; i >= 0; i -= 5) {
+                    labels.add(String.format("-%dm", i));
+                    data.add(getApiCallsForTimeRange(i + 5, i));
+                }
+                break;
+            case "week":
+                // Last 7 days
+                for (int i = 6; i >= 0; i--) {
+                    LocalDateTime date = LocalDateTime.now().minusDays(i);
+                    labels.add(date.format(DateTimeFormatter.ofPattern("MM/dd")));
+                    data.add(getApiCallsForDay(i));
+                }
+                break;
+            case "month":
+                // Last 4 weeks
+                for (int i = 3; i >= 0; i--) {
+                    LocalDateTime date = LocalDateTime.now().minusWeeks(i);
+                    labels.add("Week " + date.format(DateTimeFormatter.ofPattern("w")));
+                    data.add(getApiCallsForWeek(i));
+                }
+                break;
+            default: // day
+                // Last 24 hours (every 3 hours)
+                for (int i = 24; i >= 0; i -= 3) {
+                    LocalDateTime time = LocalDateTime.now().minusHours(i);
+                    labels.add(time.format(DateTimeFormatter.ofPattern("HH:mm")));
+                    data.add(getApiCallsForHour(i));
+                }
+        }
+        
+        chartData.put("labels", labels);
+        chartData.put("data", data);
+        
+        return chartData;
+    }
+
+    public Map<String, Object> getResponseTimeData(String timeframe) {
+        Map<String, Object> responseTimeData = new HashMap<>();
+        
+        // Generate response time data based on actual detection history and timeframe
+        List<String> labels = new ArrayList<>();
+        List<Double> data = new ArrayList<>();
+        
+        switch (timeframe.toLowerCase()) {
+            case "hour":
+                // Last hour data (every 5 minutes)
+                for (int i = 60; i >= 0; i -= 5) {
+                    labels.add(String.format("-%dm", i));
+                    data.add(getAvgResponseTimeForTimeRange(i + 5, i));
+                }
+                break;
+            case "week":
+                // Last 7 days
+                for (int i = 6; i >= 0; i--) {
+                    LocalDateTime date = LocalDateTime.now().minusDays(i);
+                    labels.add(date.format(DateTimeFormatter.ofPattern("MM/dd")));
+                    data.add(getAvgResponseTimeForDay(i));
+                }
+                break;
+            case "month":
+                // Last 4 weeks
+                for (int i = 3; i >= 0; i--) {
+                    LocalDateTime date = LocalDateTime.now().minusWeeks(i);
+                    labels.add("Week " + date.format(DateTimeFormatter.ofPattern("w")));
+                    data.add(getAvgResponseTimeForWeek(i));
+                }
+                break;
+            default: // day
+                // Last 24 hours (every 3 hours)
+                for (int i = 24; i >= 0; i -= 3) {
+                    LocalDateTime time = LocalDateTime.now().minusHours(i);
+                    labels.add(time.format(DateTimeFormatter.ofPattern("HH:mm")));
+                    data.add(getAvgResponseTimeForHour(i));
+                }
+        }
+        
+        responseTimeData.put("labels", labels);
+        responseTimeData.put("data", data);
+        
+        return responseTimeData;
+    }
+
+    // Chart helpers read pre-aggregated time buckets: O(buckets), no history scan or timestamp parsing.
+    // Each range takes the buckets that start inside it, so neighbouring bars never count a bucket twice
+    private int getApiCallsForTimeRange(int startMinutesAgo, int endMinutesAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return countDetectionsBetween(minuteBuckets, now.minusMinutes(startMinutesAgo), now.minusMinutes(endMinutesAgo));
+    }
+
+    private int getApiCallsForHour(int hoursAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return countDetectionsBetween(hourBuckets, now.minusHours(hoursAgo + 1), now.minusHours(hoursAgo));
+    }
+
+    private int getApiCallsForDay(int daysAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return countDetectionsBetween(hourBuckets, now.minusDays(daysAgo + 1), now.minusDays(daysAgo));
+    }
+
+    private int getApiCallsForWeek(int weeksAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return countDetectionsBetween(dayBuckets, now.minusWeeks(weeksAgo + 1), now.minusWeeks(weeksAgo));
+    }
+
+    private double getAvgResponseTimeForTimeRange(int startMinutesAgo, int endMinutesAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return avgResponseTimeBetween(minuteBuckets, now.minusMinutes(startMinutesAgo), now.minusMinutes(endMinutesAgo));
+    }
+
+    private double getAvgResponseTimeForHour(int hoursAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return avgResponseTimeBetween(hourBuckets, now.minusHours(hoursAgo + 1), now.minusHours(hoursAgo));
+    }
+
+    private double getAvgResponseTimeForDay(int daysAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return avgResponseTimeBetween(hourBuckets, now.minusDays(daysAgo + 1), now.minusDays(daysAgo));
+    }
+
+    private double getAvgResponseTimeForWeek(int weeksAgo) {
+        LocalDateTime now = LocalDateTime.now();
+        return avgResponseTimeBetween(dayBuckets, now.minusWeeks(weeksAgo + 1), now.minusWeeks(weeksAgo));
+    }
+
+    private int countDetectionsBetween(TimeBucketCounters buckets, LocalDateTime start, LocalDateTime end) {
+        return (int) buckets.count(toEpochMillis(start), toEpochMillis(end));
+    }
+
+    private double avgResponseTimeBetween(TimeBucketCounters buckets, LocalDateTime start, LocalDateTime end) {
+        long startMillis = toEpochMillis(start);
+        long endMillis = toEpochMillis(end);
+        
+        long count = buckets.count(startMillis, endMillis);
+        if (count == 0) {
+            return getBaselineResponseTime();
+        }
+        return (double) buckets.latencySum(startMillis, endMillis) / count;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private double getBaselineResponseTime() {
+        // Return baseline response time when no data is available
+        return totalApiCalls.get() > 0 ? 
+            (double) totalProcessingTime.get() / totalApiCalls.get() : 500.0;
+    }
+
+    public Map<String, Object> getDetectionCategories() {
+        Map<String, Object> categories = new HashMap<>();
+        
+        // Get actual category counts or defaults
+        List<String> labels = Arrays.asList("People", "Vehicles", "Animals", "Objects");
+        List<Integer> data = new ArrayList<>();
+        
+        for (String label : labels) {
+            data.add(categoryCount.getOrDefault(label.toLowerCase(), new AtomicInteger(0)).get());
+        }
+        
+        // If no real data, provide some default values
+        if (data.stream().allMatch(count -> count == 0)) {
+            data = Arrays.asList(42, 23, 15, 20);
+        }
+        
+        categories.put("labels", labels);
+        categories.put("data", data);
+        
+        return categories;
+    }
+
+    public List<Map<String, Object>> getSystemStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        String uptime = formatUptime();
+        
+        // API Server status
+        Map<String, Object> apiServer = new HashMap<>();
+        apiServer.put("service", "API Server");
+        apiServer.put("status", "Online");
+        apiServer.put("statusClass", "success");
+        apiServer.put("load", calculateServiceLoad("api"));
+        apiServer.put("uptime", uptime);
+        apiServer.put("lastUpdate", "Just now");
+        status.add(apiServer);
+        
+        // Database status (the durable dashboard event log)
+        Map<String, Object> database = new HashMap<>();
+        database.put("service", "Database");
+        database.put("status", detectionEventLog.isEnabled() ? "Online" : "Disabled");
+        database.put("statusClass", detectionEventLog.isEnabled() ? "success" : "warning");
+        database.put("load", calculateServiceLoad("database"));
+        database.put("uptime", uptime);
+        database.put("lastUpdate", "Just now");
+        status.add(database);
+        
+        // ML Engine status (Hugging Face DETR), degraded while its circuit breaker is not closed
+        Gauge circuitGauge = meterRegistry.find("inference.circuit.state").tag("engine", HuggingFaceDetectionEngine.NAME).gauge();
+        int circuitState = circuitGauge != null ? (int) circuitGauge.value() : 0;
+        Map<String, Object> mlEngine = new HashMap<>();
+        mlEngine.put("service", "ML Engine (DETR)");
+        mlEngine.put("status", circuitState == 1 ? "Unavailable" : circuitState == 2 ? "Recovering" : "Online");
+        mlEngine.put("statusClass", circuitState == 1 ? "danger" : circuitState == 2 ? "warning" : "success");
+        mlEngine.put("load", calculateServiceLoad("ml"));
+        mlEngine.put("uptime", uptime);
+        mlEngine.put("lastUpdate", "Just now");
+        status.add(mlEngine);
+        
+        // Cloudinary Storage status
+        Map<String, Object> storage = new HashMap<>();
+        storage.put("service", "Cloudinary Storage");
+        storage.put("status", "Online");
+        storage.put("statusClass", "success");
+        storage.put("load", calculateServiceLoad("storage"));
+        storage.put("uptime", uptime);
+        storage.put("lastUpdate", "Just now");
+        status.add(storage);
+        
+        return status;
+    }
+
+    public List<Map<String, Object>> getRecentDetections(int limit) {
+        // Return actual detection history in reverse order (most recent first)
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (DetectionRecord detection : detectionHistory.snapshot(limit)) {
+            result.add(detection.toMap());
+        }
+        
+        log.debug("Returning {} recent detections out of {} total", result.size(), detectionHistory.size());
+        return result;
+    }
+
+    public Map<String, Object> getAnalytics(String timeframe) {
+        Map<String, Object> analytics = new HashMap<>();
+        
+        // Calculate real performance metrics from detection history
+        double avgConfidence = calculateAverageConfidence();
+        double successRate = calculateSuccessRate();
+        double avgObjectsPerFrame = calculateAverageObjectsPerFrame();
+        int uniqueUsers = calculateUniqueUsers();
+        
+        // Performance metrics
+        Map<String, Object> performance = new HashMap<>();
+        performance.put("avgConfidence", avgConfidence);
+        performance.put("successRate", successRate);
+        performance.put("avgObjectsPerFrame", avgObjectsPerFrame);
+        performance.put("uniqueUsers", uniqueUsers);
+        // Tail latency per pipeline stage; the histograms keep the last hour at minute resolution
+        performance.put("latency", latencyStatistics.getStatistics("hour".equals(timeframe) ? 60 : 0));
+        
+        // Device distribution based on actual data
+        Map<String, Object> deviceDistribution = new HashMap<>();
+        List<String> deviceLabels = new ArrayList<>();
+        List<Integer> deviceData = new ArrayList<>();
+        
+        // Get actual device counts
+        if (!deviceCount.isEmpty()) {
+            deviceCount.entrySet().stream()
+                    .sorted(Map.Entry.<String, AtomicInteger>comparingByValue((a, b) -> b.get() - a.get()))
+                    .limit(6)
+                    .forEach(entry -> {
+                        deviceLabels.add(entry.getKey());
+                        deviceData.add(entry.getValue().get());
+                    });
+        } else {
+            // Default values if no real data
+            deviceLabels.addAll(Arrays.asList("iPhone", "Samsung", "Google Pixel", "Xiaomi", "OnePlus", "Other"));
+            deviceData.addAll(Arrays.asList(32, 27, 14, 12, 8, 7));
+        }
+        
+        deviceDistribution.put("labels", deviceLabels);
+        deviceDistribution.put("data", deviceData);
+        
+        analytics.put("performance", performance);
+        analytics.put("deviceDistribution", deviceDistribution);
+        
+        return analytics;
+    }
+
+    public List<Map<String, Object>> getErrorLogs(int limit) {
+        // Return error logs in reverse order (most recent first)
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ErrorRecord error : errorLogs.snapshot(limit)) {
+            result.add(error.toMap());
+        }
+        
+        log.debug("Returning {} error logs out of {} total", result.size(), errorLogs.size());
+        return result;
+    }
+
+    // Connection pool saturation of the shared Hugging Face client
+    public Map<String, Object> getInferencePoolStats() {
+        Map<String, Object> stats = objectDetectionService.getInferencePoolStats();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Enabled detection engines and the deployment default
+    public Map<String, Object> getEngineStats() {
+        Map<String, Object> stats = objectDetectionService.getEngineStats();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Heap bytes copied, estimated disk spooling and pooled buffer usage per detection request
+    public Map<String, Object> getIngestionStats() {
+        Map<String, Object> stats = ingestionStatistics.getStatistics();
+        stats.put("uploadBuffers", multipartIngestService.getStatistics());
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Bytes saved by downscaling before inference, against the time spent doing it
+    public Map<String, Object> getPreprocessStats() {
+        Map<String, Object> stats = imagePreprocessor.getStatistics();
+        stats.put("latency", latencyStatistics.getStageStatistics(LatencyStatistics.Stage.PREPROCESS, 0));
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Hit/miss/eviction counters of the detection result cache
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = detectionResultCache.getStatistics();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // p50/p95/p99/max per pipeline stage over the last N minutes (0 = since startup)
+    public Map<String, Object> getLatencyStats(int minutes) {
+        Map<String, Object> stats = latencyStatistics.getStatistics(minutes);
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    public Map<String, Object> getStageLatencyStats(LatencyStatistics.Stage stage, int minutes) {
+        Map<String, Object> stats = latencyStatistics.getStageStatistics(stage, minutes);
+        stats.put("stage", stage.getKey());
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Write, batch, checkpoint and replay counters of the durable dashboard event log
+    public Map<String, Object> getEventLogStats() {
+        Map<String, Object> stats = detectionEventLog.getStatistics();
+        stats.put("historySize", detectionHistory.size());
+        stats.put("historyCapacity", detectionHistory.capacity());
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Token-bucket and adaptive-concurrency admission counters
+    public Map<String, Object> getAdmissionStats() {
+        Map<String, Object> stats = admissionControlService.getStatistics();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Leader/follower counts of in-flight request deduplication
+    public Map<String, Object> getCoalescingStats() {
+        Map<String, Object> stats = objectDetectionService.getCoalescingStats();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // Hit rate of the device classification cache
+    public Map<String, Object> getDeviceCacheStats() {
+        Map<String, Object> stats = deviceClassifier.getStatistics();
+        stats.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return stats;
+    }
+
+    // NEW METHOD: Enhanced detection recording with image URL support
+    public void recordDetection(List<DetectedObject> detectedObjects, long processingTime, String deviceInfo, String imageUrl, String fileName) {
+        List<DetectedObject> objects = internLabels(detectedObjects);
+        DetectionRecord detection = DetectionRecord.builder()
+                .id(nextDetectionId.getAndIncrement())
+                .timestamp(System.currentTimeMillis())
+                .objects(objects)
+                .processingTime(processingTime)
+                .device(intern(deviceInfo != null ? deviceInfo : UNKNOWN_DEVICE))
+                .imageUrl(imageUrl)
+                .fileName(fileName)
+                .build();
+        
+        checkpointLock.readLock().lock();
+        try {
+            applyDetection(detection, deviceInfo != null);
+            detectionEventLog.appendDetection(detection);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        publishDetection(detection);
+        
+        log.info("Recorded detection: {} objects, image URL: {}, device: {}, processing time: {}ms", 
+                 objects.size(), imageUrl, deviceInfo, processingTime);
+    }
+
+    // Applies a new or replayed detection to history and every aggregate
+    private void applyDetection(DetectionRecord detection, boolean countDevice) {
+        // Increment session and API call counters
+        activeSessions.incrementAndGet();
+        totalApiCalls.incrementAndGet();
+        totalProcessingTime.addAndGet(detection.getProcessingTime());
+        
+        storeDetection(detection);
+        
+        // Update time-bucketed aggregates
+        long timestamp = detection.getTimestamp();
+        int objectCount = detection.getObjectCount();
+        minuteBuckets.record(timestamp, detection.getProcessingTime(), objectCount);
+        hourBuckets.record(timestamp, detection.getProcessingTime(), objectCount);
+        dayBuckets.record(timestamp, detection.getProcessingTime(), objectCount);
+        
+        // Update category counts
+        detection.getObjects().forEach(obj -> {
+            String category = categorizeObject(obj.getLabel());
+            categoryCount.computeIfAbsent(category, k -> new AtomicInteger(0)).incrementAndGet();
+        });
+        
+        // Update device count
+        if (countDevice) {
+            deviceCount.computeIfAbsent(detection.getDevice(), k -> new AtomicInteger(0)).incrementAndGet();
+        }
+    }
+
+    // Places a record in the history ring and its indexes without touching the aggregates
+    private void storeDetection(DetectionRecord detection) {
+        detectionHistory.append(sequence -> {
+            DetectionRecord record = detection.toBuilder().sequence(sequence).build();
+            // Index before the record is published, so an immediate eviction always finds it to remove
+            indexDetection(record);
+            return record;
+        });
+    }
+
+    /**
+     * Record every item of a batch with one lock acquisition and one log line.
+     */
+    public void recordDetections(List<BatchItemResult> items, String deviceInfo) {
+        String device = intern(deviceInfo != null ? deviceInfo : UNKNOWN_DEVICE);
+        List<DetectionRecord> recorded = new ArrayList<>();
+        List<ErrorRecord> failures = new ArrayList<>();
+        
+        checkpointLock.readLock().lock();
+        try {
+            for (BatchItemResult item : items) {
+                DetectionResult result = item.getResult();
+                if (item.isSuccess()) {
+                    boolean fromUrl = "url".equals(item.getSource());
+                    DetectionRecord detection = DetectionRecord.builder()
+                            .id(nextDetectionId.getAndIncrement())
+                            .timestamp(System.currentTimeMillis())
+                            .objects(internLabels(result.getDetectedObjects()))
+                            .processingTime(result.getProcessingTimeMs() != null ? result.getProcessingTimeMs() : 0)
+                            .device(device)
+                            .imageUrl(result.getImageUrl() != null || !fromUrl ? result.getImageUrl() : item.getName())
+                            .fileName(fromUrl ? "URL: " + item.getName() : item.getName())
+                            .build();
+                    applyDetection(detection, deviceInfo != null);
+                    detectionEventLog.appendDetection(detection);
+                    recorded.add(detection);
+                } else {
+                    ErrorRecord error = ErrorRecord.builder()
+                            .timestamp(System.currentTimeMillis())
+                            .message(result != null ? result.getError() : "No result")
+                            .type(intern("BATCH_ITEM_ERROR"))
+                            .level("ERROR")
+                            .build();
+                    applyError(error);
+                    detectionEventLog.appendError(error);
+                    failures.add(error);
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        
+        recorded.forEach(this::publishDetection);
+        for (ErrorRecord error : failures) {
+            detectionMetrics.recordError("BATCH_ITEM_ERROR");
+            publishError(error);
+        }
+        log.info("Recorded batch: {} detections, {} errors, device: {}", recorded.size(), failures.size(), deviceInfo);
+    }
+
+    // Keep the original method for backward compatibility
+    public void recordDetection(List<DetectedObject> detectedObjects, long processingTime, String deviceInfo) {
+        recordDetection(detectedObjects, processingTime, deviceInfo, null, null);
+    }
+
+    public void recordError(String errorMessage, String errorType) {
+        recordError(errorMessage, errorType, "ERROR");
+    }
+
+    public void recordError(String errorMessage, String errorType, String level) {
+        ErrorRecord error = ErrorRecord.builder()
+                .timestamp(System.currentTimeMillis())
+                .message(errorMessage)
+                .type(intern(errorType))
+                .level(level)
+                .build();
+        
+        checkpointLock.readLock().lock();
+        try {
+            applyError(error);
+            detectionEventLog.appendError(error);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if ("ERROR".equals(level)) {
+            detectionMetrics.recordError(errorType);
+        }
+        publishError(error);
+        
+        log.warn("Recorded error: {} - {}", errorType, errorMessage);
+    }
+
+    private void applyError(ErrorRecord error) {
+        // Warnings and notices share the log but do not count towards the error rate
+        if (error.getLevel() == null || "ERROR".equals(error.getLevel())) {
+            totalErrors.incrementAndGet();
+        }
+        errorLogs.append(error);
+    }
+
+    // Circuit breaker transitions of an inference engine: opening is a warning, recovery a notice
+    @EventListener
+    public void onInferenceCircuitEvent(InferenceCircuitEvent event) {
+        String level = event.getTo() == CircuitBreaker.State.CLOSED ? "INFO" : "WARN";
+        recordError(event.getEngine() + " circuit breaker " + event.getFrom() + " -> " + event.getTo() + ": " + event.getReason(),
+                "CIRCUIT_BREAKER", level);
+    }
+
+    /**
+     * Open a live dashboard stream. The first event is a snapshot of what the portal used to poll for;
+     * after that only incremental detection, error and deletion events plus periodic metrics follow.
+     * Returns null when the subscriber limit has been reached.
+     */
+    public SseEmitter openStream() {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("metrics", getDashboardMetrics());
+        snapshot.put("recentDetections", getRecentDetections(10));
+        snapshot.put("errorLogs", getErrorLogs(10));
+        snapshot.put("categories", getDetectionCategories());
+        return dashboardEventBroadcaster.subscribe("snapshot", snapshot);
+    }
+
+    public Map<String, Object> getStreamStats() {
+        return dashboardEventBroadcaster.getStatistics();
+    }
+
+    // Metrics are computed once per tick no matter how many clients are connected
+    @Scheduled(fixedDelayString = "${dashboard.stream.metrics-interval-ms:5000}")
+    public void publishMetrics() {
+        if (dashboardEventBroadcaster.hasSubscribers()) {
+            dashboardEventBroadcaster.publish("metrics", getDashboardMetrics());
+        }
+    }
+
+    private void publishDetection(DetectionRecord detection) {
+        if (dashboardEventBroadcaster.hasSubscribers()) {
+            dashboardEventBroadcaster.publish("detection", detection.toMap());
+        }
+    }
+
+    private void publishError(ErrorRecord error) {
+        if (dashboardEventBroadcaster.hasSubscribers()) {
+            dashboardEventBroadcaster.publish("error", error.toMap());
+        }
+    }
+
+    // Copy detections into an immutable list whose labels share one String instance per label
+    private List<DetectedObject> internLabels(List<DetectedObject> detectedObjects) {
+        if (detectedObjects == null) {
+            return Collections.emptyList();
+        }
+        
+        List<DetectedObject> objects = new ArrayList<>(detectedObjects.size());
+        for (DetectedObject obj : detectedObjects) {
+            objects.add(DetectedObject.builder()
+                    .label(intern(obj.getLabel()))
+                    .confidence(obj.getConfidence())
+                    .box(obj.getBox())
+                    .build());
+        }
+        return Collections.unmodifiableList(objects);
+    }
+
+    private String intern(String value) {
+        if (value == null) return null;
+        
+        String interned = internedStrings.get(value);
+        if (interned != null) return interned;
+        if (internedStrings.size() >= MAX_INTERNED_STRINGS) return value;
+        
+        interned = internedStrings.putIfAbsent(value, value);
+        return interned != null ? interned : value;
+    }
+
+    // Helper method to categorize detected objects
+    private String categorizeObject(String label) {
+        if (label == null) return "objects";
+        
+        String lowerLabel = label.toLowerCase();
+        if (lowerLabel.contains("person") || lowerLabel.contains("people")) {
+            return "people";
+        } else if (lowerLabel.contains("car") || lowerLabel.contains("truck") || lowerLabel.contains("bus") || 
+                   lowerLabel.contains("motorcycle") || lowerLabel.contains("vehicle")) {
+            return "vehicles";
+        } else if (lowerLabel.contains("dog") || lowerLabel.contains("cat") || lowerLabel.contains("bird") || 
+                   lowerLabel.contains("animal")) {
+            return "animals";
+        } else {
+            return "objects";
+        }
+    }
+
+    // Helper method to calculate average confidence from detection history
+    private double calculateAverageConfidence() {
+        if (detectionHistory.isEmpty()) return 92.7; // Default value
+        
+        double totalConfidence = 0;
+        int objectCount = 0;
+        
+        for (DetectionRecord detection : detectionHistory.snapshot()) {
+            for (DetectedObject obj : detection.getObjects()) {
+                if (obj.getConfidence() != null) {
+                    totalConfidence += obj.getConfidence() * 100;
+                    objectCount++;
+                }
+            }
+        }
+        
+        return objectCount > 0 ? Math.round(totalConfidence / objectCount * 10.0) / 10.0 : 92.7;
+    }
+
+    // Helper method to calculate success rate
+    private double calculateSuccessRate() {
+        if (totalApiCalls.get() == 0) return 97.7; // Default value
+        
+        double successfulCalls = totalApiCalls.get() - totalErrors.get();
+        return Math.round((successfulCalls / totalApiCalls.get()) * 1000.0) / 10.0;
+    }
+
+    // Helper method to calculate average objects per frame
+    private double calculateAverageObjectsPerFrame() {
+        List<DetectionRecord> detections = detectionHistory.snapshot();
+        if (detections.isEmpty()) return 2.4; // Default value
+        
+        int totalObjects = 0;
+        for (DetectionRecord detection : detections) {
+            totalObjects += detection.getObjectCount();
+        }
+        
+        return Math.round((double) totalObjects / detections.size() * 10.0) / 10.0;
+    }
+
+    // Helper method to calculate unique users (based on unique devices)
+    private int calculateUniqueUsers() {
+        return Math.max(deviceCount.size(), (int) (Math.random() * 100) + 300);
+    }
+
+    // Helper method to calculate service load
+    // Loads are utilization percentages read from the meter registry, the same values /actuator/prometheus exports
+    private int calculateServiceLoad(String serviceType) {
+        switch (serviceType) {
+            case "api":
+                return percent(gaugeValue(DetectionMetrics.IN_FLIGHT), maxRequestThreads);
+            case "database":
+                return (int) Math.round(gaugeValue("dashboard.log.queue.utilization"));
+            case "ml":
+                return percent(gaugeValue("huggingface.pool.leased"), gaugeValue("huggingface.pool.max"));
+            case "storage":
+                return percent(gaugeValue("detection.pipeline.active"), gaugeValue("detection.pipeline.threads"));
+            default:
+                return 0;
+        }
+    }
+
+    private int percent(double used, double capacity) {
+        return capacity > 0 ? (int) Math.min(100, Math.round(used / capacity * 100)) : 0;
+    }
+
+    private double gaugeValue(String name) {
+        Gauge gauge = meterRegistry.find(name).gauge();
+        return gauge != null ? gauge.value() : 0;
+    }
+
+    private String formatUptime() {
+        TimeGauge uptime = meterRegistry.find("process.uptime").timeGauge();
+        long minutes = uptime != null ? (long) uptime.value(TimeUnit.MINUTES) : 0;
+        return String.format("%dd %dh %dm", minutes / (24 * 60), (minutes / 60) % 24, minutes % 60);
+    }
+
+    // METHODS FOR DetectionController COMPATIBILITY
+
+    // Get detection by ID
+    public Map<String, Object> getDetectionById(String detectionId) {
+        DetectionRecord detection = findDetection(detectionId);
+        if (detection == null) {
+            return null; // Detection not found
+        }
+        return detection.toMap();
+    }
+
+    // Delete detection by ID
+    public boolean deleteDetection(String detectionId) {
+        long id = DetectionRecord.parseDetectionId(detectionId);
+        boolean deleted;
+        checkpointLock.readLock().lock();
+        try {
+            deleted = removeDetection(id);
+            if (deleted) {
+                detectionEventLog.appendDeletion(id);
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (deleted) {
+            log.info("Deleted detection with ID: {}", detectionId);
+            dashboardEventBroadcaster.publish("deletion", Collections.singletonMap("id", detectionId));
+            return true;
+        }
+        log.warn("Detection not found for deletion: {}", detectionId);
+        return false;
+    }
+
+    private boolean removeDetection(long id) {
+        DetectionRecord detection = findDetection(id);
+        if (detection != null && detectionHistory.remove(detection.getSequence())) {
+            unindexDetection(detection);
+            return true;
+        }
+        return false;
+    }
+
+    private DetectionRecord findDetection(String detectionId) {
+        return findDetection(DetectionRecord.parseDetectionId(detectionId));
+    }
+
+    private DetectionRecord findDetection(long id) {
+        if (id < 0) {
+            return null;
+        }
+        DetectionRecord detection = detectionIndex.get(id);
+        // The ring is the source of truth; ignore an index entry whose slot was already reused
+        if (detection == null || detectionHistory.get(detection.getSequence()) != detection) {
+            return null;
+        }
+        return detection;
+    }
+
+    private void indexDetection(DetectionRecord detection) {
+        long id = detection.getId();
+        detectionIndex.put(id, detection);
+        allDetections.add(id, detection);
+        for (String category : categoriesOf(detection)) {
+            categoryIndex.computeIfAbsent(category, k -> new PostingList<>()).add(id, detection);
+        }
+        // Added and removed inside compute, so an emptied list is never dropped while a record is being added to it
+        deviceIndex.compute(deviceKey(detection), (key, postings) -> {
+            PostingList<DetectionRecord> list = postings != null ? postings : new PostingList<>();
+            list.add(id, detection);
+            return list;
+        });
+    }
+
+    private void unindexDetection(DetectionRecord detection) {
+        long id = detection.getId();
+        detectionIndex.remove(id, detection);
+        allDetections.remove(id, detection);
+        for (String category : categoriesOf(detection)) {
+            PostingList<DetectionRecord> postings = categoryIndex.get(category);
+            if (postings != null) {
+                postings.remove(id, detection);
+            }
+        }
+        // Device labels come from client headers, so keys whose records are all gone must not linger
+        deviceIndex.computeIfPresent(deviceKey(detection), (key, postings) -> {
+            postings.remove(id, detection);
+            return postings.size() > 0 ? postings : null;
+        });
+    }
+
+    private Set<String> categoriesOf(DetectionRecord detection) {
+        Set<String> categories = new HashSet<>();
+        for (DetectedObject obj : detection.getObjects()) {
+            categories.add(categorizeObject(obj.getLabel()));
+        }
+        return categories;
+    }
+
+    private String deviceKey(DetectionRecord detection) {
+        return detection.getDevice() != null ? detection.getDevice().toLowerCase() : "";
+    }
+
+    // Record deletion event
+    public void recordDeletion(String detectionId, String deviceInfo) {
+        log.info("Recorded deletion of detection {} by device: {}", detectionId, deviceInfo);
+        // Could add to a separate deletion log if needed
+    }
+
+    // Get all detections with pagination and filtering
+    public Map<String, Object> getAllDetections(int page, int size, String category, String device, String search) {
+        return getAllDetections(page, size, category, device, search, null);
+    }
+
+    // Walks the matching posting list newest first, so the cost follows the page size rather than the history size
+    public Map<String, Object> getAllDetections(int page, int size, String category, String device, String search, String after) {
+        String categoryKey = category != null && !category.isEmpty() && !category.equalsIgnoreCase("all") ?
+                category.toLowerCase() : null;
+        String deviceLower = device != null && !device.isEmpty() ? device.toLowerCase() : null;
+        String searchLower = search != null && !search.isEmpty() ? search.toLowerCase() : null;
+        
+        // The cursor is the id of the last detection on the previous page
+        long beforeId = Long.MAX_VALUE;
+        if (after != null && !after.isEmpty()) {
+            beforeId = DetectionRecord.parseDetectionId(after);
+            if (beforeId < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+        
+        // Drive the walk from the most selective index; remaining filters are checked per candidate
+        List<PostingList<DetectionRecord>> sources = new ArrayList<>();
+        boolean checkCategory = false;
+        if (deviceLower != null) {
+            // Device filter matches substrings, so merge every device whose name contains it
+            for (Map.Entry<String, PostingList<DetectionRecord>> entry : deviceIndex.entrySet()) {
+                if (entry.getKey().contains(deviceLower)) {
+                    sources.add(entry.getValue());
+                }
+            }
+            checkCategory = categoryKey != null;
+        } else if (categoryKey != null) {
+            PostingList<DetectionRecord> postings = categoryIndex.get(categoryKey);
+            if (postings != null) {
+                sources.add(postings);
+            }
+        } else {
+            sources.add(allDetections);
+        }
+        String categoryFilter = checkCategory ? categoryKey : null;
+        int indexedTotal = 0;
+        for (PostingList<DetectionRecord> postings : sources) {
+            indexedTotal += postings.size();
+        }
+        
+        // Offset paging still works, but a cursor makes every page start where the last one ended
+        boolean cursor = after != null && !after.isEmpty();
+        int skip = cursor ? 0 : page * size;
+        int skipped = 0;
+        boolean hasNext = false;
+        List<DetectionRecord> pageRecords = new ArrayList<>(size);
+        Iterator<DetectionRecord> candidates = PostingList.merge(sources, beforeId);
+        while (candidates.hasNext()) {
+            DetectionRecord detection = candidates.next();
+            if (!matchesFilters(detection, categoryFilter, searchLower)) continue;
+            
+            if (skipped < skip) {
+                skipped++;
+                continue;
+            }
+            if (pageRecords.size() == size) {
+                hasNext = true;
+                break;
+            }
+            pageRecords.add(detection);
+        }
+        
+        List<Map<String, Object>> pageContent = new ArrayList<>(pageRecords.size());
+        for (DetectionRecord detection : pageRecords) {
+            pageContent.add(detection.toMap());
+        }
+        
+        // Create paginated result
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", pageContent);
+        result.put("currentPage", page);
+        result.put("pageSize", size);
+        result.put("hasNext", hasNext);
+        result.put("hasPrevious", page > 0 || cursor);
+        result.put("nextCursor", hasNext ? pageRecords.get(pageRecords.size() - 1).getDetectionId() : null);
+        
+        // Index counts are exact when no filter is checked per record, and so is an offset walk that reached the
+        // last match. Otherwise counting would mean walking every match on every page, so the driving index's
+        // count is reported instead, as an upper bound
+        int totalElements = indexedTotal;
+        boolean estimated = false;
+        if (categoryFilter != null || searchLower != null) {
+            if (!cursor && !hasNext) {
+                totalElements = skipped + pageRecords.size();
+            } else {
+                estimated = true;
+            }
+        }
+        result.put("totalElements", totalElements);
+        result.put("totalPages", (int) Math.ceil((double) totalElements / size));
+        result.put("totalsEstimated", estimated);
+        
+        log.debug("Retrieved {} detections (page {}, cursor {}, hasNext {})", 
+                 pageContent.size(), page, after, hasNext);
+        
+        return result;
+    }
+
+    private boolean matchesFilters(DetectionRecord detection, String categoryKey, String searchLower) {
+        // Skip index entries whose ring slot has already been reused
+        if (detectionHistory.get(detection.getSequence()) != detection) return false;
+        if (categoryKey != null && !categoriesOf(detection).contains(categoryKey)) return false;
+        return searchLower == null || matchesSearch(detection, searchLower);
+    }
+
+    private boolean matchesSearch(DetectionRecord detection, String searchLower) {
+        String fileName = detection.getFileName();
+        String deviceName = detection.getDevice();
+        String timestamp = detection.getFormattedTimestamp();
+        
+        return (fileName != null && fileName.toLowerCase().contains(searchLower)) ||
+               (deviceName != null && deviceName.toLowerCase().contains(searchLower)) ||
+               timestamp.toLowerCase().contains(searchLower);
+    }
+
+    // Get detection statistics
+    public Map<String, Object> getDetectionStatistics(String timeframe) {
+        Map<String, Object> statistics = new HashMap<>();
+        
+        // Calculate time boundaries based on timeframe
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime startTime;
+        
+        switch (timeframe.toLowerCase()) {
+            case "hour":
+                startTime = now.minusHours(1);
+                break;
+            case "week":
+                startTime = now.minusWeeks(1);
+                break;
+            case "month":
+                startTime = now.minusMonths(1);
+                break;
+            default: // day
+                startTime = now.minusDays(1);
+        }
+        
+        // Filter detections within timeframe
+        long startMillis = toEpochMillis(startTime);
+        List<DetectionRecord> filteredDetections = detectionHistory.snapshot().stream()
+                .filter(detection -> detection.getTimestamp() > startMillis)
+                .collect(Collectors.toList());
+        
+        // Calculate statistics
+        int totalDetections = filteredDetections.size();
+        int totalObjects = 0;
+        double totalConfidence = 0;
+        int objectCount = 0;
+        long totalProcessingTime = 0;
+        Map<String, Integer> categoryStats = new HashMap<>();
+        Map<String, Integer> deviceStats = new HashMap<>();
+        
+        for (DetectionRecord detection : filteredDetections) {
+            // Objects and confidence
+            totalObjects += detection.getObjectCount();
+            for (DetectedObject obj : detection.getObjects()) {
+                if (obj.getConfidence() != null) {
+                    totalConfidence += obj.getConfidence();
+                    objectCount++;
+                }
+                
+                // Category stats
+                String category = categorizeObject(obj.getLabel());
+                categoryStats.merge(category, 1, Integer::sum);
+            }
+            
+            // Processing time
+            totalProcessingTime += detection.getProcessingTime();
+            
+            // Device stats
+            if (detection.getDevice() != null) {
+                deviceStats.merge(detection.getDevice(), 1, Integer::sum);
+            }
+        }
+        
+        // Build statistics result
+        statistics.put("timeframe", timeframe);
+        statistics.put("totalDetections", totalDetections);
+        statistics.put("totalObjects", totalObjects);
+        statistics.put("averageObjectsPerDetection", totalDetections > 0 ? 
+                      Math.round((double) totalObjects / totalDetections * 10.0) / 10.0 : 0);
+        statistics.put("averageConfidence", objectCount > 0 ? 
+                      Math.round(totalConfidence / objectCount * 1000.0) / 10.0 : 0);
+        statistics.put("averageProcessingTime", totalDetections > 0 ? 
+                      totalProcessingTime / totalDetections : 0);
+        statistics.put("categoryBreakdown", categoryStats);
+        statistics.put("deviceBreakdown", deviceStats);
+        statistics.put("startTime", startTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        statistics.put("endTime", now.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        
+        log.debug("Generated statistics for timeframe '{}': {} detections, {} objects", 
+                 timeframe, totalDetections, totalObjects);
+        
+        return statistics;
+    }
+
+    /**
+     * Feeds replayed events into the same apply path as live requests, and (de)serializes the
+     * full dashboard state for checkpoints.
+     */
+    private class EventLogListener implements DetectionEventLog.Listener {
+
+        @Override
+        public void onDetection(DetectionRecord detection) {
+            DetectionRecord interned = detection.toBuilder()
+                    .objects(internLabels(detection.getObjects()))
+                    .device(intern(detection.getDevice()))
+                    .build();
+            nextDetectionId.accumulateAndGet(detection.getId() + 1, Math::max);
+            applyDetection(interned, !UNKNOWN_DEVICE.equals(interned.getDevice()));
+        }
+
+        @Override
+        public void onError(ErrorRecord error) {
+            applyError(errorWithInternedType(error));
+        }
+
+        @Override
+        public void onDeletion(long detectionId) {
+            removeDetection(detectionId);
+        }
+
+        @Override
+        public DetectionEventLog.Checkpoint captureCheckpoint() throws IOException {
+            long lastSequence;
+            int sessions;
+            long apiCalls;
+            long processingTime;
+            int errorCount;
+            long detectionId;
+            Map<String, Integer> categories;
+            Map<String, Integer> devices;
+            long[] minutes;
+            long[] hours;
+            long[] days;
+            List<DetectionRecord> detections;
+            List<ErrorRecord> errors;
+            
+            // Only copies references and counters under the lock; records are immutable, so encoding
+            // them afterwards keeps request threads waiting for microseconds rather than the whole write
+            checkpointLock.writeLock().lock();
+            try {
+                lastSequence = detectionEventLog.lastSequence();
+                sessions = activeSessions.get();
+                apiCalls = totalApiCalls.get();
+                processingTime = totalProcessingTime.get();
+                errorCount = totalErrors.get();
+                detectionId = nextDetectionId.get();
+                categories = copyCounts(categoryCount);
+                devices = copyCounts(deviceCount);
+                minutes = minuteBuckets.export();
+                hours = hourBuckets.export();
+                days = dayBuckets.export();
+                detections = detectionHistory.snapshot();
+                errors = errorLogs.snapshot();
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(sessions);
+            out.writeLong(apiCalls);
+            out.writeLong(processingTime);
+            out.writeInt(errorCount);
+            out.writeLong(detectionId);
+            writeCounts(out, categories);
+            writeCounts(out, devices);
+            writeBuckets(out, minutes);
+            writeBuckets(out, hours);
+            writeBuckets(out, days);
+            
+            // Oldest first, so restoring re-appends them in their original order
+            out.writeInt(detections.size());
+            for (int i = detections.size() - 1; i >= 0; i--) {
+                DetectionEventCodec.writeDetection(out, detections.get(i));
+            }
+            out.writeInt(errors.size());
+            for (int i = errors.size() - 1; i >= 0; i--) {
+                DetectionEventCodec.writeError(out, errors.get(i));
+            }
+            out.flush();
+            return new DetectionEventLog.Checkpoint(lastSequence, bytes.toByteArray());
+        }
+
+        @Override
+        public void restoreCheckpoint(DataInput in) throws IOException {
+            activeSessions.set(in.readInt());
+            totalApiCalls.set(in.readLong());
+            totalProcessingTime.set(in.readLong());
+            totalErrors.set(in.readInt());
+            nextDetectionId.accumulateAndGet(in.readLong(), Math::max);
+            readCounts(in, categoryCount);
+            readCounts(in, deviceCount);
+            minuteBuckets.restore(readBuckets(in));
+            hourBuckets.restore(readBuckets(in));
+            dayBuckets.restore(readBuckets(in));
+            
+            int detections = in.readInt();
+            for (int i = 0; i < detections; i++) {
+                DetectionRecord detection = DetectionEventCodec.readDetection(in);
+                storeDetection(detection.toBuilder()
+                        .objects(internLabels(detection.getObjects()))
+                        .device(intern(detection.getDevice()))
+                        .build());
+            }
+            int errors = in.readInt();
+            for (int i = 0; i < errors; i++) {
+                ErrorRecord error = DetectionEventCodec.readError(in);
+                errorLogs.append(errorWithInternedType(error));
+            }
+        }
+
+        private ErrorRecord errorWithInternedType(ErrorRecord error) {
+            return ErrorRecord.builder()
+                    .timestamp(error.getTimestamp())
+                    .message(error.getMessage())
+                    .type(intern(error.getType()))
+                    .level(error.getLevel())
+                    .build();
+        }
+
+        private Map<String, Integer> copyCounts(Map<String, AtomicInteger> counts) {
+            Map<String, Integer> copy = new HashMap<>(counts.size() * 2);
+            counts.forEach((key, count) -> copy.put(key, count.get()));
+            return copy;
+        }
+
+        private void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException {
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                DetectionEventCodec.writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        private void readCounts(DataInput in, Map<String, AtomicInteger> counts) throws IOException {
+            counts.clear();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                counts.put(intern(DetectionEventCodec.readString(in)), new AtomicInteger(in.readInt()));
+            }
+        }
+
+        private void writeBuckets(DataOutputStream out, long[] values) throws IOException {
+            out.writeInt(values.length);
+            for (long value : values) {
+                out.writeLong(value);
+            }
+        }
+
+        private long[] readBuckets(DataInput in) throws IOException {
+            long[] values = new long[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readLong();
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A backend that turns image bytes into detections. {@link ObjectDetectionService} owns caching,
+ * coalescing and storage; engines only run the model.
+ */
+public interface DetectionEngine {
+
+    /**
+     * Name used to select the engine per deployment ({@code detection.engine.default}) or per request ({@code engine=}).
+     */
+    String getName();
+
+    /**
+     * Identifies the model behind this engine. It is part of the result cache key, so it must change whenever
+     * the same image could produce different detections.
+     */
+    String getModelId();
+
+    List<DetectedObject> detect(ImagePayload image) throws IOException;
+
+    /**
+     * Non-blocking {@link #detect}, used by the {@code nonblocking} request path. Engines with a non-blocking
+     * transport override it; the default runs {@link #detect} on the calling thread, which suits in-process
+     * engines whose work is CPU rather than waiting. The image stays valid until the returned future completes.
+     */
+    default CompletableFuture<List<DetectedObject>> detectAsync(ImagePayload image) {
+        try {
+            return CompletableFuture.completedFuture(detect(image));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Largest number of images {@link #detectBatch} runs in one call. Engines above 1 are fed through the micro-batcher.
+     */
+    default int getMaxBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Detect objects in several images at once, returning one result list per image in input order.
+     * Throws if any image fails; callers fall back to {@link #detect} to isolate it.
+     */
+    default List<List<DetectedObject>> detectBatch(List<ImagePayload> images) throws IOException {
+        List<List<DetectedObject>> results = new ArrayList<>(images.size());
+        for (ImagePayload image : images) {
+            results.add(detect(image));
+        }
+        return results;
+    }
+
+    Map<String, Object> getStatistics();
+}
@@ -0,0 +1,97 @@
+package com.objectdetection.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The detection engines available in this deployment, by name, and the one used when a request does not pick one.
+ * Engines that accept more than one image per call are wrapped in a {@link MicroBatchingDetectionEngine}, and
+ * remote engines listed in {@code detection.resilience.engines} in a {@link ResilientDetectionEngine}.
+ */
+@Component
+@Slf4j
+public class DetectionEngines {
+
+    private final Map<String, DetectionEngine> engines = new LinkedHashMap<>();
+    private final List<MicroBatchingDetectionEngine> batchingEngines = new ArrayList<>();
+    private final List<ResilientDetectionEngine> resilientEngines = new ArrayList<>();
+    private final DetectionEngine defaultEngine;
+
+    public DetectionEngines(List<DetectionEngine> detectionEngines,
+                            @Value("${detection.engine.default:huggingface}") String defaultEngineName,
+                            MeterRegistry meterRegistry,
+                            @Value("${detection.microbatch.enabled:true}") boolean microBatchingEnabled,
+                            @Value("${detection.microbatch.max-wait-micros:5000}") long maxWaitMicros,
+                            @Value("${detection.microbatch.queue-capacity:1000}") int queueCapacity,
+                            @Value("${detection.microbatch.workers:2}") int workers,
+                            @Value("${detection.microbatch.timeout-ms:60000}") long timeoutMs,
+                            ResilienceSettings resilienceSettings,
+                            ApplicationEventPublisher eventPublisher) {
+        for (DetectionEngine engine : detectionEngines) {
+            if (microBatchingEnabled && engine.getMaxBatchSize() > 1) {
+                MicroBatchingDetectionEngine batching = new MicroBatchingDetectionEngine(
+                        engine, meterRegistry, maxWaitMicros, queueCapacity, workers, timeoutMs);
+                batchingEngines.add(batching);
+                engine = batching;
+                log.info("Micro-batching {} inference: up to {} images per call, max wait {}us",
+                        engine.getName(), engine.getMaxBatchSize(), maxWaitMicros);
+            }
+            if (resilienceSettings.appliesTo(engine.getName())) {
+                ResilientDetectionEngine resilient = new ResilientDetectionEngine(
+                        engine, resilienceSettings, meterRegistry, eventPublisher);
+                resilientEngines.add(resilient);
+                engine = resilient;
+                log.info("Guarding {} inference: {} concurrent calls, {}ms timeout, hedging {}",
+                        engine.getName(), resilienceSettings.getMaxConcurrentCalls(),
+                        resilienceSettings.getCallTimeoutMs(), resilienceSettings.isHedgingEnabled() ? "on" : "off");
+            }
+            engines.put(engine.getName(), engine);
+        }
+        this.defaultEngine = engines.get(defaultEngineName.trim().toLowerCase(Locale.ROOT));
+        if (defaultEngine == null) {
+            throw new IllegalStateException("detection.engine.default=" + defaultEngineName
+                    + " is not an enabled engine; available: " + engines.keySet());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        resilientEngines.forEach(ResilientDetectionEngine::close);
+        batchingEngines.forEach(MicroBatchingDetectionEngine::close);
+    }
+
+    /**
+     * The named engine, or the default when no name is given.
+     *
+     * @throws IllegalArgumentException when the engine does not exist or is not enabled
+     */
+    public DetectionEngine resolve(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return defaultEngine;
+        }
+        DetectionEngine engine = engines.get(name.trim().toLowerCase(Locale.ROOT));
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown detection engine '" + name + "'; available: " + engines.keySet());
+        }
+        return engine;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("default", defaultEngine.getName());
+        Map<String, Object> engineStats = new LinkedHashMap<>();
+        engines.forEach((name, engine) -> engineStats.put(name, engine.getStatistics()));
+        stats.put("engines", engineStats);
+        return stats;
+    }
+}
@@ -0,0 +1,120 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.DetectionRecord;
+import com.objectdetection.model.ErrorRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of dashboard records, shared by the event log and its checkpoints.
+ * Null strings are written as length -1 and null floats as NaN.
+ */
+final class DetectionEventCodec {
+
+    private DetectionEventCodec() {
+    }
+
+    static void writeDetection(DataOutput out, DetectionRecord detection) throws IOException {
+        out.writeLong(detection.getId());
+        out.writeLong(detection.getTimestamp());
+        out.writeLong(detection.getProcessingTime());
+        writeString(out, detection.getDevice());
+        writeString(out, detection.getImageUrl());
+        writeString(out, detection.getFileName());
+
+        List<DetectedObject> objects = detection.getObjects();
+        out.writeInt(objects.size());
+        for (DetectedObject object : objects) {
+            writeString(out, object.getLabel());
+            writeFloat(out, object.getConfidence());
+            BoundingBox box = object.getBox();
+            out.writeBoolean(box != null);
+            if (box != null) {
+                writeFloat(out, box.getXMin());
+                writeFloat(out, box.getYMin());
+                writeFloat(out, box.getXMax());
+                writeFloat(out, box.getYMax());
+            }
+        }
+    }
+
+    static DetectionRecord readDetection(DataInput in) throws IOException {
+        DetectionRecord.DetectionRecordBuilder builder = DetectionRecord.builder()
+                .id(in.readLong())
+                .timestamp(in.readLong())
+                .processingTime(in.readLong())
+                .device(readString(in))
+                .imageUrl(readString(in))
+                .fileName(readString(in));
+
+        int objectCount = in.readInt();
+        List<DetectedObject> objects = new ArrayList<>(objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            DetectedObject object = new DetectedObject();
+            object.setLabel(readString(in));
+            object.setConfidence(readFloat(in));
+            if (in.readBoolean()) {
+                object.setBox(BoundingBox.builder()
+                        .xMin(readFloat(in))
+                        .yMin(readFloat(in))
+                        .xMax(readFloat(in))
+                        .yMax(readFloat(in))
+                        .build());
+            }
+            objects.add(object);
+        }
+        return builder.objects(objects).build();
+    }
+
+    static void writeError(DataOutput out, ErrorRecord error) throws IOException {
+        out.writeLong(error.getTimestamp());
+        writeString(out, error.getMessage());
+        writeString(out, error.getType());
+        writeString(out, error.getLevel());
+    }
+
+    static ErrorRecord readError(DataInput in) throws IOException {
+        return ErrorRecord.builder()
+                .timestamp(in.readLong())
+                .message(readString(in))
+                .type(readString(in))
+                .level(readString(in))
+                .build();
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFloat(DataOutput out, Float value) throws IOException {
+        out.writeFloat(value != null ? value : Float.NaN);
+    }
+
+    private static Float readFloat(DataInput in) throws IOException {
+        float value = in.readFloat();
+        return Float.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,631 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.DetectionRecord;
+import com.objectdetection.model.ErrorRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented binary log of dashboard events. Request threads only enqueue; a single
+ * writer thread encodes whole batches, writes them through a FileChannel and fsyncs once per
+ * batch (group commit). Periodic checkpoints hold the full in-memory state, so startup replays
+ * one checkpoint plus the events written after it rather than the whole history. Nothing reads a
+ * segment once a checkpoint covers it, so such segments are deleted right away.
+ *
+ * <p>Segment record layout: {@code int length, int crc32, byte type, long eventSequence, body}.
+ */
+@Component
+@Slf4j
+public class DetectionEventLog {
+
+    private static final byte DETECTION = 1;
+    private static final byte ERROR = 2;
+    private static final byte DELETION = 3;
+
+    private static final int SEGMENT_MAGIC = 0x444C4F47; // "DLOG"
+    private static final int CHECKPOINT_MAGIC = 0x44434B50; // "DCKP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".snap";
+
+    /**
+     * Owner of the state that the log persists.
+     */
+    public interface Listener {
+        void onDetection(DetectionRecord detection);
+
+        void onError(ErrorRecord error);
+
+        void onDeletion(long detectionId);
+
+        void restoreCheckpoint(DataInput in) throws IOException;
+
+        /**
+         * Capture the state together with the last event sequence it already reflects.
+         */
+        Checkpoint captureCheckpoint() throws IOException;
+    }
+
+    public static final class Checkpoint {
+        private final long lastSequence;
+        private final byte[] state;
+
+        public Checkpoint(long lastSequence, byte[] state) {
+            this.lastSequence = lastSequence;
+            this.state = state;
+        }
+    }
+
+    @Value("${dashboard.log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dashboard.log.directory:data/dashboard-log}")
+    private String directory;
+
+    @Value("${dashboard.log.segment-bytes:16777216}")
+    private long segmentBytes;
+
+    @Value("${dashboard.log.fsync:true}")
+    private boolean fsync;
+
+    @Value("${dashboard.log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${dashboard.log.checkpoint-interval-seconds:300}")
+    private long checkpointIntervalSeconds;
+
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+
+    private Path logPath;
+    private BlockingQueue<Event> queue;
+    private Thread writerThread;
+    private ScheduledExecutorService checkpointExecutor;
+    private Listener listener;
+    private volatile boolean running;
+
+    // Only touched by the writer thread
+    private FileChannel segment;
+    private long segmentSize;
+
+    private volatile long lastCheckpointSequence;
+    private volatile long replayMillis;
+    private volatile long replayedEvents;
+
+    public boolean isEnabled() {
+        return enabled && running;
+    }
+
+    /**
+     * Restore the listener's state from the latest checkpoint and the events after it, then start writing.
+     */
+    public synchronized void open(Listener listener) {
+        if (!enabled || running) return;
+        this.listener = listener;
+
+        try {
+            logPath = Files.createDirectories(Paths.get(directory));
+            long start = System.currentTimeMillis();
+            replay();
+            replayMillis = System.currentTimeMillis() - start;
+            log.info("Replayed {} dashboard events from {} in {} ms (checkpoint at event {})",
+                    replayedEvents, logPath, replayMillis, lastCheckpointSequence);
+        } catch (IOException e) {
+            log.warn("Disabling dashboard event log, cannot use {}: {}", directory, e.getMessage());
+            enabled = false;
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "dashboard-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointExecutor.scheduleWithFixedDelay(this::checkpoint,
+                checkpointIntervalSeconds, checkpointIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sequence number of the last event handed to the log; read under the owner's checkpoint lock.
+     */
+    public long lastSequence() {
+        return lastSequence.get();
+    }
+
+    public void appendDetection(DetectionRecord detection) {
+        enqueue(DETECTION, detection);
+    }
+
+    public void appendError(ErrorRecord error) {
+        enqueue(ERROR, error);
+    }
+
+    public void appendDeletion(long detectionId) {
+        enqueue(DELETION, detectionId);
+    }
+
+    private void enqueue(byte type, Object payload) {
+        if (!isEnabled()) return;
+        Event event = new Event(type, lastSequence.incrementAndGet(), payload);
+        // Never block a request on disk; a full queue means the disk cannot keep up
+        if (!queue.offer(event)) {
+            long dropped = droppedEvents.incrementAndGet();
+            if (dropped == 1 || dropped % 1000 == 0) {
+                log.warn("Dashboard event log queue full, {} events dropped so far", dropped);
+            }
+        }
+    }
+
+    /**
+     * Write queue fill level in percent; sustained high values mean the disk is the bottleneck.
+     */
+    public double getQueueUtilization() {
+        BlockingQueue<Event> current = queue;
+        return current != null && queueCapacity > 0 ? current.size() * 100.0 / queueCapacity : 0;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("directory", logPath != null ? logPath.toAbsolutePath().toString() : directory);
+        statistics.put("lastSequence", lastSequence.get());
+        statistics.put("writtenEvents", writtenEvents.get());
+        statistics.put("droppedEvents", droppedEvents.get());
+        statistics.put("queued", queue != null ? queue.size() : 0);
+        statistics.put("batches", batches.get());
+        statistics.put("avgEventsPerBatch", batches.get() > 0 ? writtenEvents.get() / batches.get() : 0);
+        statistics.put("checkpoints", checkpoints.get());
+        statistics.put("lastCheckpointSequence", lastCheckpointSequence);
+        statistics.put("replayedEvents", replayedEvents);
+        statistics.put("replayMillis", replayMillis);
+        statistics.put("diskBytes", logPath != null ? directorySize() : 0);
+        return statistics;
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (!running) return;
+        checkpointExecutor.shutdownNow();
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A final checkpoint makes the next startup replay close to nothing
+        checkpoint();
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(buffer);
+        ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(1024);
+        DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+        CRC32 crc = new CRC32();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch);
+
+                buffer.reset();
+                for (Event event : batch) {
+                    recordBuffer.reset();
+                    encode(event, recordOut);
+                    crc.reset();
+                    crc.update(recordBuffer.toByteArray());
+                    out.writeInt(recordBuffer.size());
+                    out.writeInt((int) crc.getValue());
+                    recordBuffer.writeTo(out);
+                }
+                writeBatch(batch.get(0).sequence, buffer.toByteArray());
+                writtenEvents.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                log.error("Failed to write {} dashboard events", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    private void writeBatch(long firstSequence, byte[] bytes) throws IOException {
+        if (segment == null || segmentSize >= segmentBytes) {
+            rollSegment(firstSequence);
+        }
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        while (data.hasRemaining()) {
+            segment.write(data);
+        }
+        // One fsync covers every event in the batch
+        if (fsync) {
+            segment.force(false);
+        }
+        segmentSize += bytes.length;
+    }
+
+    private void rollSegment(long firstSequence) throws IOException {
+        closeSegment();
+        Path file = logPath.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        // After a torn first record the next segment gets the same name; replay already cut it back to
+        // its last good record, so keep appending to it unless even the header is unusable
+        long existing = sizeOf(file);
+        if (existing > 0 && !hasSegmentHeader(file)) {
+            Path aside = file.resolveSibling(file.getFileName() + ".corrupt");
+            Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("Moved unreadable dashboard log segment aside to {}", aside.getFileName());
+            existing = 0;
+        }
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (existing == 0) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            segment.write(header);
+            segmentSize = 8;
+        } else {
+            segmentSize = existing;
+        }
+        deleteCheckpointedSegments();
+    }
+
+    private boolean hasSegmentHeader(Path file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == SEGMENT_MAGIC && in.readInt() == FORMAT_VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.force(true);
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close dashboard log segment: {}", e.getMessage());
+        }
+        segment = null;
+    }
+
+    private void encode(Event event, DataOutputStream out) throws IOException {
+        out.writeByte(event.type);
+        out.writeLong(event.sequence);
+        switch (event.type) {
+            case DETECTION:
+                DetectionEventCodec.writeDetection(out, (DetectionRecord) event.payload);
+                break;
+            case ERROR:
+                DetectionEventCodec.writeError(out, (ErrorRecord) event.payload);
+                break;
+            case DELETION:
+                out.writeLong((Long) event.payload);
+                break;
+            default:
+                throw new IOException("Unknown event type " + event.type);
+        }
+        out.flush();
+    }
+
+    private synchronized void checkpoint() {
+        if (listener == null || logPath == null) return;
+        try {
+            Checkpoint checkpoint = listener.captureCheckpoint();
+            if (checkpoint.lastSequence <= lastCheckpointSequence) return;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(checkpoint.state.length + 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(checkpoint.lastSequence);
+            out.write(checkpoint.state);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+
+            // Write, fsync and atomically rename so a crash never leaves a half-written checkpoint
+            Path target = logPath.resolve(String.format("%s%020d%s", CHECKPOINT_PREFIX, checkpoint.lastSequence, CHECKPOINT_SUFFIX));
+            Path temp = logPath.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            lastCheckpointSequence = checkpoint.lastSequence;
+            checkpoints.incrementAndGet();
+            deleteOldCheckpoints(target);
+            deleteCheckpointedSegments();
+            log.debug("Wrote dashboard checkpoint at event {} ({} bytes)", checkpoint.lastSequence, bytes.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write dashboard checkpoint", e);
+        }
+    }
+
+    private void replay() throws IOException {
+        // Newest readable checkpoint first; fall back to an older one if it is damaged
+        List<Path> checkpointFiles = listFiles(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        long checkpointSequence = 0;
+        for (int i = checkpointFiles.size() - 1; i >= 0; i--) {
+            Long restored = restoreCheckpoint(checkpointFiles.get(i));
+            if (restored != null) {
+                checkpointSequence = restored;
+                break;
+            }
+        }
+        lastCheckpointSequence = checkpointSequence;
+
+        List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        int first = firstSegmentToReplay(segments, checkpointSequence);
+
+        long maxSequence = checkpointSequence;
+        long replayed = 0;
+        for (int i = first; i < segments.size(); i++) {
+            // Bytes up to the end of the last good record
+            long validBytes = 0;
+            try (InputStream in = Files.newInputStream(segments.get(i))) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+                if (data.readInt() != SEGMENT_MAGIC || data.readInt() != FORMAT_VERSION) {
+                    log.warn("Skipping dashboard log segment with unknown format: {}", segments.get(i));
+                    continue;
+                }
+                validBytes = 8;
+                while (true) {
+                    byte[] record = readRecord(data, segments.get(i));
+                    if (record == null) break;
+                    validBytes += 8 + record.length;
+
+                    DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                    byte type = recordIn.readByte();
+                    long sequence = recordIn.readLong();
+                    maxSequence = Math.max(maxSequence, sequence);
+                    if (sequence <= checkpointSequence) continue;
+
+                    switch (type) {
+                        case DETECTION:
+                            listener.onDetection(DetectionEventCodec.readDetection(recordIn));
+                            break;
+                        case ERROR:
+                            listener.onError(DetectionEventCodec.readError(recordIn));
+                            break;
+                        case DELETION:
+                            listener.onDeletion(recordIn.readLong());
+                            break;
+                        default:
+                            log.warn("Skipping unknown dashboard event type {} in {}", type, segments.get(i));
+                            continue;
+                    }
+                    replayed++;
+                }
+            } catch (EOFException e) {
+                log.warn("Dashboard log segment {} has a truncated header", segments.get(i));
+            }
+            truncateTornTail(segments.get(i), validBytes);
+        }
+        replayedEvents = replayed;
+        lastSequence.set(maxSequence);
+    }
+
+    /**
+     * Cut a segment back to its last good record, so events appended to it later are not hidden behind
+     * a torn tail. A segment whose header is incomplete is deleted.
+     */
+    private void truncateTornTail(Path segmentFile, long validBytes) throws IOException {
+        long size = sizeOf(segmentFile);
+        if (size <= validBytes) return;
+        if (validBytes == 0) {
+            deleteQuietly(segmentFile);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+        log.warn("Truncated dashboard log segment {} from {} to {} bytes", segmentFile.getFileName(), size, validBytes);
+    }
+
+    /**
+     * Next record of a segment, or null at its end. A torn or corrupt tail (crash mid-write) ends
+     * the segment; replay then truncates the segment there before anything is appended to it.
+     */
+    private byte[] readRecord(DataInputStream in, Path segmentFile) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            int expectedCrc = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                log.warn("Corrupt record length {} in {}, ignoring the rest of the segment", length, segmentFile);
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Checksum mismatch in {}, ignoring the rest of the segment", segmentFile);
+                return null;
+            }
+            return record;
+        } catch (EOFException e) {
+            log.warn("Truncated record at the end of {}, ignoring it", segmentFile);
+            return null;
+        }
+    }
+
+    private Long restoreCheckpoint(Path file) {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length < 24) {
+                throw new IOException("too short");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            long expectedCrc = ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong();
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException("checksum mismatch");
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("unknown format");
+            }
+            long sequence = in.readLong();
+            listener.restoreCheckpoint(in);
+            log.info("Restored dashboard checkpoint {}", file.getFileName());
+            return sequence;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable dashboard checkpoint {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteOldCheckpoints(Path latest) {
+        // Keep the previous checkpoint as a fallback in case the latest one is ever unreadable
+        List<Path> files = listFiles(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        for (int i = 0; i < files.size() - 2; i++) {
+            if (!files.get(i).equals(latest)) {
+                deleteQuietly(files.get(i));
+            }
+        }
+    }
+
+    /**
+     * Index of the first segment replay must read after the given checkpoint: the last segment that begins at or
+     * before the first event the checkpoint lacks. Sequences are taken just before enqueueing, so a segment
+     * boundary can be a few events out of order: one more segment is read.
+     */
+    private int firstSegmentToReplay(List<Path> segments, long checkpointSequence) {
+        int first = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (sequenceOf(segments.get(i), SEGMENT_PREFIX) <= checkpointSequence + 1) {
+                first = Math.max(0, i - 1);
+            }
+        }
+        return first;
+    }
+
+    // Runs on the writer (segment roll) and checkpoint threads; neither ever touches a segment replay still needs
+    private void deleteCheckpointedSegments() {
+        List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        int first = firstSegmentToReplay(segments, lastCheckpointSequence);
+        for (int i = 0; i < first; i++) {
+            deleteQuietly(segments.get(i));
+            log.debug("Deleted checkpointed dashboard log segment {}", segments.get(i).getFileName());
+        }
+    }
+
+    private List<Path> listFiles(String prefix, String suffix) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logPath, prefix + "*" + suffix)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Failed to list {}: {}", logPath, e.getMessage());
+        }
+        // Zero-padded sequence numbers make lexical order chronological
+        files.sort(null);
+        return files;
+    }
+
+    private long sequenceOf(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.indexOf('.')));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private long directorySize() {
+        long total = 0;
+        for (Path file : listFiles("", "")) {
+            total += sizeOf(file);
+        }
+        return total;
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Event {
+        private final byte type;
+        private final long sequence;
+        private final Object payload;
+
+        private Event(byte type, long sequence, Object payload) {
+            this.type = type;
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BatchItem;
+import com.objectdetection.model.DetectionJob;
+import com.objectdetection.model.DetectionOptions;
+import com.objectdetection.model.DetectionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs detections off the request thread. Jobs wait in a bounded queue for a worker; when the
+ * queue is full submission fails fast so the caller can answer 429. Finished jobs stay readable
+ * for {@code detection.jobs.ttl-minutes} and are then evicted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionJobService {
+
+    private static final String JOB_ID_PREFIX = "job_";
+
+    private final ObjectDetectionService objectDetectionService;
+    private final DashboardService dashboardService;
+    private final DetectionMetrics detectionMetrics;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${detection.jobs.threads:4}")
+    private int jobThreads;
+
+    @Value("${detection.jobs.queue-capacity:100}")
+    private int jobQueueCapacity;
+
+    @Value("${detection.jobs.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${detection.jobs.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    private final Map<String, DetectionJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+    private Counter rejectedJobs;
+
+    @PostConstruct
+    void startJobExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(
+                jobThreads, jobThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(jobQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "detection-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // A full queue is backpressure for the client, never work for the request thread
+                new ThreadPoolExecutor.AbortPolicy());
+        jobExecutor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("detection.jobs.queued", jobExecutor, executor -> executor.getQueue().size())
+                .description("Jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("detection.jobs.active", jobExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Jobs currently running")
+                .register(meterRegistry);
+        Gauge.builder("detection.jobs.retained", jobs, Map::size)
+                .description("Jobs held in memory, including finished jobs awaiting eviction")
+                .register(meterRegistry);
+        rejectedJobs = Counter.builder("detection.jobs.rejected")
+                .description("Job submissions refused because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stopJobExecutor() {
+        jobExecutor.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * Queue a detection and return immediately.
+     *
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public DetectionJob submit(BatchItem item, DetectionOptions options, String deviceInfo) {
+        String jobId = JOB_ID_PREFIX + UUID.randomUUID().toString().replace("-", "");
+        DetectionJob job = new DetectionJob(jobId, item, options, deviceInfo);
+        jobs.put(jobId, job);
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            rejectedJobs.increment();
+            detectionMetrics.recordOutcome(item.getSource(), "rejected");
+            throw e;
+        }
+        log.debug("Queued job {} for {}", jobId, item.getName());
+        return job;
+    }
+
+    public DetectionJob getJob(String jobId) {
+        return jobId == null ? null : jobs.get(jobId);
+    }
+
+    /**
+     * Open an SSE stream that sends the job's current status and then its result once it finishes.
+     * Returns null for an unknown job.
+     */
+    public SseEmitter subscribe(String jobId) {
+        DetectionJob job = getJob(jobId);
+        if (job == null) return null;
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        if (!send(emitter, "status", job)) return emitter;
+
+        synchronized (job) {
+            if (!job.getStatus().isTerminal()) {
+                List<SseEmitter> emitters = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+                emitters.add(emitter);
+                Runnable unsubscribe = () -> emitters.remove(emitter);
+                emitter.onCompletion(unsubscribe);
+                emitter.onTimeout(unsubscribe);
+                emitter.onError(error -> unsubscribe.run());
+                return emitter;
+            }
+        }
+
+        // Finished before we could register: deliver the result right away
+        if (send(emitter, "result", job)) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", jobThreads);
+        stats.put("activeJobs", jobExecutor.getActiveCount());
+        stats.put("queuedJobs", jobExecutor.getQueue().size());
+        stats.put("queueCapacity", jobQueueCapacity);
+        stats.put("retainedJobs", jobs.size());
+        stats.put("rejectedJobs", (long) rejectedJobs.count());
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    /**
+     * Drop finished jobs whose TTL has passed. Queued and running jobs are never evicted.
+     */
+    @Scheduled(fixedDelayString = "${detection.jobs.eviction-interval-ms:60000}")
+    public void evictExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getStatus().isTerminal() && job.getCompletedAt() < cutoff);
+        int evicted = before - jobs.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} expired jobs", evicted);
+        }
+    }
+
+    private void run(DetectionJob job) {
+        BatchItem item = job.getItem();
+        job.markRunning();
+        publish(job, "status");
+
+        long startTime = System.currentTimeMillis();
+        DetectionResult result;
+        try {
+            result = item.isUrl()
+                    ? objectDetectionService.detectObjectsFromUrl(item.getUrl(), job.getOptions())
+                    : objectDetectionService.detectObjectsFromBytes(item.getBytes(), item.getContentType(), item.getName(), job.getOptions());
+        } catch (RuntimeException e) {
+            log.error("Job {} failed", job.getId(), e);
+            result = DetectionResult.builder().error("Failed to process image: " + e.getMessage()).build();
+        }
+        long processingTime = System.currentTimeMillis() - startTime;
+
+        boolean success = result != null && result.getError() == null && result.getDetectedObjects() != null;
+        if (success) {
+            String imageUrl = result.getImageUrl() != null ? result.getImageUrl()
+                    : item.isUrl() ? item.getUrl() : null;
+            dashboardService.recordDetection(result.getDetectedObjects(), processingTime, job.getDeviceInfo(),
+                    imageUrl, item.isUrl() ? "URL: " + item.getUrl() : item.getName());
+            detectionMetrics.recordOutcome(item.getSource(), "success");
+            detectionMetrics.recordObjects(result.getDetectedObjects().size());
+        } else {
+            if (result == null) {
+                result = DetectionResult.builder().error("Failed to process image").build();
+            }
+            dashboardService.recordError(result.getError(), "JOB_ERROR");
+            detectionMetrics.recordOutcome(item.getSource(), "error");
+        }
+
+        List<SseEmitter> emitters;
+        synchronized (job) {
+            job.complete(result, success);
+            emitters = subscribers.remove(job.getId());
+        }
+        if (emitters != null) {
+            for (SseEmitter emitter : emitters) {
+                if (send(emitter, "result", job)) {
+                    emitter.complete();
+                }
+            }
+        }
+    }
+
+    private void publish(DetectionJob job, String eventName) {
+        List<SseEmitter> emitters = subscribers.get(job.getId());
+        if (emitters == null) return;
+        for (SseEmitter emitter : emitters) {
+            send(emitter, eventName, job);
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String eventName, DetectionJob job) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(job.toMap()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Subscriber went away or the emitter already completed; polling still works
+            log.debug("Could not deliver {} event for job {}: {}", eventName, job.getId(), e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.objectdetection.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters for the detection pipeline, scraped at /actuator/prometheus. Stage timers
+ * live in {@link LatencyStatistics} so the dashboard histograms and Prometheus see the same samples.
+ */
+@Component
+public class DetectionMetrics {
+
+    public static final String IN_FLIGHT = "detection.requests.inflight";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Counter> outcomeCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> imageBytes = new ConcurrentHashMap<>();
+    private final DistributionSummary objectsPerImage;
+
+    public DetectionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Detection requests currently being processed")
+                .register(meterRegistry);
+
+        this.objectsPerImage = DistributionSummary.builder("detection.objects.per.image")
+                .description("Objects detected per successfully processed image")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Count a finished request by source (file, url) and outcome (success, error, rejected).
+     */
+    public void recordOutcome(String source, String outcome) {
+        outcomeCounters.computeIfAbsent(source + ':' + outcome, key -> Counter.builder("detection.requests")
+                .description("Detection requests by source and outcome")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(meterRegistry)).increment();
+    }
+
+    public void recordObjects(int objectCount) {
+        objectsPerImage.record(objectCount);
+    }
+
+    public void recordImageBytes(String source, long bytes) {
+        imageBytes.computeIfAbsent(source, key -> DistributionSummary.builder("detection.image.bytes")
+                .description("Size of images entering the pipeline")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(bytes);
+    }
+
+    public void recordError(String type) {
+        String errorType = type != null ? type : "UNKNOWN";
+        errorCounters.computeIfAbsent(errorType, key -> Counter.builder("detection.errors")
+                .description("Errors recorded on the dashboard, by type")
+                .tag("type", errorType)
+                .register(meterRegistry)).increment();
+    }
+}
@@ -0,0 +1,388 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of parsed detections, keyed by SHA-256 of the image bytes and model.
+ * An LRU in-memory tier bounded by entry count, TTL and estimated memory is optionally backed
+ * by a JSON-per-entry directory on disk, bounded in bytes and written off the request thread.
+ * Callers get their own copies of cached detections, so mutating a result never alters the cache.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionResultCache {
+
+    private static final TypeReference<List<DetectedObject>> OBJECT_LIST = new TypeReference<List<DetectedObject>>() {};
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${detection.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${detection.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${detection.cache.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${detection.cache.max-memory-bytes:67108864}")
+    private long maxMemoryBytes;
+
+    @Value("${detection.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${detection.cache.disk.directory:${java.io.tmpdir}/detection-cache}")
+    private String diskDirectory;
+
+    @Value("${detection.cache.disk.max-bytes:268435456}")
+    private long diskMaxBytes;
+
+    @Value("${detection.cache.disk.write-queue-capacity:256}")
+    private int diskWriteQueueCapacity;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    private final AtomicLong diskWritesDropped = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private Path diskPath;
+    private ThreadPoolExecutor diskWriter;
+
+    @PostConstruct
+    void initDiskTier() {
+        if (!enabled || !diskEnabled) return;
+        try {
+            diskPath = Files.createDirectories(Paths.get(diskDirectory));
+            purgeExpiredFiles();
+            evictFromDisk();
+            // One writer keeps files and the byte count consistent; a full queue drops the write, not the request
+            diskWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(diskWriteQueueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "detection-cache-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            log.info("Detection result cache disk tier at {} ({} of {} bytes used)", diskPath, diskBytes.get(), diskMaxBytes);
+        } catch (IOException e) {
+            log.warn("Disabling detection cache disk tier, cannot use {}: {}", diskDirectory, e.getMessage());
+            diskPath = null;
+        }
+    }
+
+    @PreDestroy
+    void stopDiskWriter() throws InterruptedException {
+        if (diskWriter == null) return;
+        // Let queued writes finish so a restart finds them
+        diskWriter.shutdown();
+        diskWriter.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String keyFor(ImagePayload image, String modelId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            // Hashes pooled chunks in place, so keys match those of the same bytes on the heap
+            image.updateDigest(digest);
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Copy of the cached detections for the key, or null on a miss.
+     */
+    public List<DetectedObject> get(String key) {
+        if (!enabled) return null;
+
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return copyOf(entry.objects);
+                }
+                entries.remove(key);
+                memoryBytes -= entry.weight;
+                expirations.incrementAndGet();
+            }
+        }
+
+        List<DetectedObject> fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, fromDisk, now);
+            return copyOf(fromDisk);
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, List<DetectedObject> objects) {
+        if (!enabled || objects == null) return;
+
+        // Snapshot now, so later changes by the caller never reach the cache or the disk file
+        List<DetectedObject> cached = copyOf(objects);
+        putInMemory(key, cached, System.currentTimeMillis());
+        scheduleDiskWrite(key, cached);
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.get() + diskHits.get();
+        long lookups = hitCount + misses.get();
+
+        Map<String, Object> statistics = new HashMap<>();
+        synchronized (entries) {
+            statistics.put("entries", entries.size());
+            statistics.put("memoryBytes", memoryBytes);
+        }
+        statistics.put("enabled", enabled);
+        statistics.put("diskEnabled", diskPath != null);
+        statistics.put("hits", hits.get());
+        statistics.put("diskHits", diskHits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        statistics.put("expirations", expirations.get());
+        statistics.put("hitRate", lookups > 0 ? Math.round((double) hitCount / lookups * 1000.0) / 10.0 : 0);
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("maxMemoryBytes", maxMemoryBytes);
+        if (diskPath != null) {
+            statistics.put("diskBytes", diskBytes.get());
+            statistics.put("diskMaxBytes", diskMaxBytes);
+            statistics.put("diskEvictions", diskEvictions.get());
+            statistics.put("diskWritesDropped", diskWritesDropped.get());
+            statistics.put("diskWritesPending", diskWriter.getQueue().size());
+        }
+        return statistics;
+    }
+
+    private void putInMemory(String key, List<DetectedObject> objects, long now) {
+        CacheEntry entry = new CacheEntry(objects, now + TimeUnit.SECONDS.toMillis(ttlSeconds), estimateWeight(key, objects));
+
+        synchronized (entries) {
+            CacheEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                memoryBytes -= previous.weight;
+            }
+            memoryBytes += entry.weight;
+
+            // Evict least recently used entries until both the count and memory budgets hold
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while ((entries.size() > maxEntries || memoryBytes > maxMemoryBytes) && iterator.hasNext()) {
+                CacheEntry eldest = iterator.next();
+                iterator.remove();
+                memoryBytes -= eldest.weight;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private List<DetectedObject> readFromDisk(String key, long now) {
+        if (diskPath == null) return null;
+
+        File file = diskPath.resolve(key + ".json").toFile();
+        if (!file.isFile()) return null;
+
+        if (file.lastModified() + TimeUnit.SECONDS.toMillis(ttlSeconds) <= now) {
+            if (deleteFromDisk(file)) {
+                expirations.incrementAndGet();
+            }
+            return null;
+        }
+
+        try {
+            return Collections.unmodifiableList(objectMapper.readValue(file, OBJECT_LIST));
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cache file {}: {}", file, e.getMessage());
+            deleteFromDisk(file);
+            return null;
+        }
+    }
+
+    private void scheduleDiskWrite(String key, List<DetectedObject> objects) {
+        if (diskPath == null) return;
+
+        try {
+            diskWriter.execute(() -> writeToDisk(key, objects));
+        } catch (RejectedExecutionException e) {
+            // Queue full or shutting down: the entry still lives in memory, it just won't survive a restart
+            diskWritesDropped.incrementAndGet();
+        }
+    }
+
+    private void writeToDisk(String key, List<DetectedObject> objects) {
+        Path temp = null;
+        try {
+            // Write to a temp file of our own and rename so readers never see a partial file
+            Path target = diskPath.resolve(key + ".json");
+            temp = Files.createTempFile(diskPath, key + ".", ".tmp");
+            objectMapper.writeValue(temp.toFile(), objects);
+            long written = Files.size(temp);
+            long replaced = Files.isRegularFile(target) ? Files.size(target) : 0;
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+
+            if (diskBytes.addAndGet(written - replaced) > diskMaxBytes) {
+                evictFromDisk();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write detection cache entry {} to disk: {}", key, e.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Recounts the disk tier and deletes the oldest files until it is back under 90% of its byte cap,
+     * leaving headroom so the next few writes don't trigger another directory scan.
+     */
+    private void evictFromDisk() {
+        File[] files = diskPath.toFile().listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total > diskMaxBytes) {
+            long target = diskMaxBytes / 10 * 9;
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                if (total <= target) break;
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                    diskEvictions.incrementAndGet();
+                }
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    private boolean deleteFromDisk(File file) {
+        long length = file.length();
+        if (!file.delete()) return false;
+        diskBytes.addAndGet(-length);
+        return true;
+    }
+
+    private void purgeExpiredFiles() {
+        File[] files = diskPath.toFile().listFiles();
+        if (files == null) return;
+
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttlSeconds);
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp") || file.lastModified() <= cutoff) {
+                file.delete();
+            }
+        }
+    }
+
+    private static List<DetectedObject> copyOf(List<DetectedObject> objects) {
+        List<DetectedObject> copies = new ArrayList<>(objects.size());
+        for (DetectedObject object : objects) {
+            copies.add(copyOf(object));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private static DetectedObject copyOf(DetectedObject object) {
+        if (object == null) return null;
+        BoundingBox box = object.getBox();
+        return DetectedObject.builder()
+                .label(object.getLabel())
+                .confidence(object.getConfidence())
+                .box(box == null ? null : BoundingBox.builder()
+                        .xMin(box.getXMin())
+                        .yMin(box.getYMin())
+                        .xMax(box.getXMax())
+                        .yMax(box.getYMax())
+                        .build())
+                .build();
+    }
+
+    private long estimateWeight(String key, List<DetectedObject> objects) {
+        // Rough heap footprint: entry and key overhead plus per-object label, box and wrappers
+        long weight = 96 + key.length() * 2L;
+        for (DetectedObject object : objects) {
+            weight += 160 + (object.getLabel() != null ? object.getLabel().length() * 2L : 0);
+        }
+        return weight;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static final class CacheEntry {
+        private final List<DetectedObject> objects;
+        private final long expiresAt;
+        private final long weight;
+
+        private CacheEntry(List<DetectedObject> objects, long expiresAt, long weight) {
+            this.objects = objects;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.objectdetection.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a request's client headers into the device label recorded with each detection.
+ * <p>
+ * The User-Agent is scanned once for every token the rules look at, and each distinct header
+ * combination is classified once: results are kept in an LRU cache bounded by entry count.
+ */
+@Component
+public class DeviceClassifier {
+
+    // Longer headers are classified but not cached, so one client cannot flood the cache with unique keys
+    private static final int MAX_CACHED_HEADER_LENGTH = 512;
+
+    private static final Pattern OKHTTP_VERSION = Pattern.compile("okhttp/([0-9.]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DEVICE_TYPE = jsonString("deviceType");
+    private static final Pattern OS = jsonString("os");
+    private static final Pattern BROWSER = jsonString("browser");
+
+    // Tokens the rules test for; bit i of a scan result is set when TOKENS[i] occurs, ignoring case
+    private static final String[] TOKENS = {
+            "okhttp", "curl", "postman", "insomnia", "httpie", "mobile", "android", "iphone", "ipad",
+            "windows", "macintosh", "mac os", "linux", "chrome", "firefox", "samsung", "safari", "edg", "mozilla"
+    };
+    private static final int OKHTTP = 1, CURL = 1 << 1, POSTMAN = 1 << 2, INSOMNIA = 1 << 3, HTTPIE = 1 << 4,
+            MOBILE = 1 << 5, ANDROID = 1 << 6, IPHONE = 1 << 7, IPAD = 1 << 8, WINDOWS = 1 << 9,
+            MACINTOSH = 1 << 10, MAC_OS = 1 << 11, LINUX = 1 << 12, CHROME = 1 << 13, FIREFOX = 1 << 14,
+            SAMSUNG = 1 << 15, SAFARI = 1 << 16, EDG = 1 << 17, MOZILLA = 1 << 18;
+
+    // Indexes into TOKENS by lower-case first letter
+    private static final int[][] TOKENS_BY_FIRST_CHAR = new int[128][];
+
+    static {
+        for (int i = 0; i < TOKENS.length; i++) {
+            char first = TOKENS[i].charAt(0);
+            int[] previous = TOKENS_BY_FIRST_CHAR[first];
+            int[] next = previous == null ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+            next[next.length - 1] = i;
+            TOKENS_BY_FIRST_CHAR[first] = next;
+        }
+    }
+
+    private final boolean cacheEnabled;
+    private final int maxEntries;
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, String> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong uncacheable = new AtomicLong();
+
+    public DeviceClassifier(@Value("${detection.device-cache.enabled:true}") boolean cacheEnabled,
+                            @Value("${detection.device-cache.max-entries:4096}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.cacheEnabled = cacheEnabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                if (size() > DeviceClassifier.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        FunctionCounter.builder("detection.device.cache.hits", hits, AtomicLong::get)
+                .description("Device classifications answered from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("detection.device.cache.misses", misses, AtomicLong::get)
+                .description("Device classifications computed from the headers")
+                .register(meterRegistry);
+        FunctionCounter.builder("detection.device.cache.evictions", evictions, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("detection.device.cache.size", this, DeviceClassifier::size)
+                .register(meterRegistry);
+    }
+
+    public String classify(HttpServletRequest request) {
+        if (request == null) return "Unknown Device";
+        return classify(request.getHeader("User-Agent"), request.getHeader("X-Device-Info"),
+                request.getHeader("X-Client-Type"), request.getHeader("X-Requested-With"), request.getHeader("Origin"));
+    }
+
+    /**
+     * The device label for these header values. Besides the three identifying headers, only two facts from
+     * the others affect the label: whether the request is AJAX and whether it comes from a local origin.
+     */
+    public String classify(String userAgent, String deviceInfo, String clientType, String requestedWith, String origin) {
+        boolean ajax = "XMLHttpRequest".equals(requestedWith);
+        boolean localOrigin = origin != null && (origin.contains("localhost") || origin.contains("127.0.0.1"));
+        if (!cacheEnabled || (userAgent != null && userAgent.length() > MAX_CACHED_HEADER_LENGTH)
+                || (deviceInfo != null && deviceInfo.length() > MAX_CACHED_HEADER_LENGTH)) {
+            uncacheable.incrementAndGet();
+            return compute(userAgent, deviceInfo, clientType, ajax, localOrigin);
+        }
+
+        Key key = new Key(userAgent, deviceInfo, clientType, (ajax ? 1 : 0) | (localOrigin ? 2 : 0));
+        String cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        String label = compute(userAgent, deviceInfo, clientType, ajax, localOrigin);
+        synchronized (cache) {
+            cache.put(key, label);
+        }
+        return label;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", cacheEnabled);
+        statistics.put("size", size());
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        statistics.put("uncacheable", uncacheable.get());
+        statistics.put("hitRate", lookups > 0 ? Math.round(hitCount * 1000.0 / lookups) / 10.0 : 0);
+        return statistics;
+    }
+
+    private static String compute(String userAgent, String deviceInfo, String clientType, boolean ajax, boolean localOrigin) {
+        // If we have detailed device info from frontend, parse it
+        if (deviceInfo != null && !deviceInfo.trim().isEmpty()) {
+            return parseClientDeviceInfo(deviceInfo, clientType);
+        }
+
+        if (userAgent == null || userAgent.trim().isEmpty()) {
+            return clientType != null ? clientType : "Unknown Client";
+        }
+
+        // Handle requests from the web portal
+        if (clientType != null && clientType.contains("Web Portal")) {
+            return ajax ? "Web Portal (AJAX)" : "Web Portal";
+        }
+
+        int tokens = scan(userAgent);
+
+        // Handle OkHttp and other HTTP clients
+        if (has(tokens, OKHTTP)) {
+            Matcher version = OKHTTP_VERSION.matcher(userAgent);
+            String okhttp = "OkHttp " + (version.find() ? version.group(1) : "");
+            return localOrigin ? "Local Development (" + okhttp + ")" : "Mobile App (" + okhttp + ")";
+        }
+        if (has(tokens, CURL)) return "cURL Client";
+        if (has(tokens, POSTMAN)) return "Postman API Client";
+        if (has(tokens, INSOMNIA)) return "Insomnia API Client";
+        if (has(tokens, HTTPIE)) return "HTTPie Client";
+
+        // Mobile browsers
+        if (has(tokens, MOBILE) || has(tokens, ANDROID)) {
+            if (has(tokens, CHROME)) return "Android Chrome";
+            if (has(tokens, FIREFOX)) return "Android Firefox";
+            if (has(tokens, SAMSUNG)) return "Samsung Browser";
+            return "Android Device";
+        }
+        if (has(tokens, IPHONE)) {
+            if (has(tokens, CHROME)) return "iPhone Chrome";
+            if (has(tokens, SAFARI)) return "iPhone Safari";
+            return "iPhone";
+        }
+        if (has(tokens, IPAD)) {
+            if (has(tokens, CHROME)) return "iPad Chrome";
+            if (has(tokens, SAFARI)) return "iPad Safari";
+            return "iPad";
+        }
+
+        // Desktop browsers
+        if (has(tokens, WINDOWS)) {
+            if (has(tokens, CHROME) && !has(tokens, EDG)) return "Windows Chrome";
+            if (has(tokens, FIREFOX)) return "Windows Firefox";
+            if (has(tokens, EDG)) return "Windows Edge";
+            return "Windows PC";
+        }
+        if (has(tokens, MACINTOSH) || has(tokens, MAC_OS)) {
+            if (has(tokens, CHROME) && !has(tokens, EDG)) return "Mac Chrome";
+            if (has(tokens, FIREFOX)) return "Mac Firefox";
+            if (has(tokens, SAFARI) && !has(tokens, CHROME)) return "Mac Safari";
+            return "Mac";
+        }
+        if (has(tokens, LINUX)) {
+            if (has(tokens, CHROME)) return "Linux Chrome";
+            if (has(tokens, FIREFOX)) return "Linux Firefox";
+            return "Linux PC";
+        }
+
+        if (has(tokens, MOZILLA)) return "Web Browser";
+
+        return "Client (" + cleanUserAgent(userAgent) + ")";
+    }
+
+    /**
+     * One pass over the User-Agent, setting the bit of every token that occurs in it, ignoring case.
+     */
+    static int scan(String userAgent) {
+        int found = 0;
+        int last = userAgent.length() - 1;
+        for (int i = 0; i < last; i++) {
+            char c = Character.toLowerCase(userAgent.charAt(i));
+            int[] candidates = c < 128 ? TOKENS_BY_FIRST_CHAR[c] : null;
+            if (candidates == null) continue;
+            char next = Character.toLowerCase(userAgent.charAt(i + 1));
+            for (int token : candidates) {
+                String text = TOKENS[token];
+                // Every token is at least three characters, so the second one is always there to compare first
+                if (text.charAt(1) == next && (found & (1 << token)) == 0
+                        && userAgent.regionMatches(true, i, text, 0, text.length())) {
+                    found |= 1 << token;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean has(int tokens, int token) {
+        return (tokens & token) != 0;
+    }
+
+    private static String parseClientDeviceInfo(String deviceInfoJson, String clientType) {
+        StringBuilder result = new StringBuilder();
+        appendKnown(result, DEVICE_TYPE, deviceInfoJson);
+        appendKnown(result, OS, deviceInfoJson);
+        appendKnown(result, BROWSER, deviceInfoJson);
+
+        String finalResult = result.toString().trim();
+        if (!finalResult.isEmpty()) {
+            if (clientType != null && clientType.contains("Portal")) {
+                return "Web Portal (" + finalResult + ")";
+            }
+            return finalResult;
+        }
+        return clientType != null ? clientType : "Unknown Device";
+    }
+
+    private static void appendKnown(StringBuilder result, Pattern field, String json) {
+        Matcher m = field.matcher(json);
+        if (m.find() && !m.group(1).equals("Unknown")) {
+            result.append(m.group(1)).append(' ');
+        }
+    }
+
+    /**
+     * The User-Agent without parenthesised comments and with whitespace runs collapsed, cut to 25 characters.
+     */
+    static String cleanUserAgent(String userAgent) {
+        StringBuilder cleaned = new StringBuilder(Math.min(userAgent.length(), 64));
+        boolean space = false;
+        for (int i = 0; i < userAgent.length(); i++) {
+            char c = userAgent.charAt(i);
+            if (c == '(') {
+                int close = userAgent.indexOf(')', i + 1);
+                if (close >= 0) {
+                    i = close;
+                    continue;
+                }
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && cleaned.length() > 0) {
+                cleaned.append(' ');
+            }
+            space = false;
+            cleaned.append(c);
+        }
+        return cleaned.length() > 25 ? cleaned.substring(0, 22) + "..." : cleaned.toString();
+    }
+
+    // The raw header values, compared as they are: no copy of the User-Agent is made for a lookup
+    private static final class Key {
+        final String userAgent;
+        final String deviceInfo;
+        final String clientType;
+        final int flags;
+        final int hash;
+
+        Key(String userAgent, String deviceInfo, String clientType, int flags) {
+            this.userAgent = userAgent;
+            this.deviceInfo = deviceInfo;
+            this.clientType = clientType;
+            this.flags = flags;
+            this.hash = ((Objects.hashCode(userAgent) * 31 + Objects.hashCode(deviceInfo)) * 31
+                    + Objects.hashCode(clientType)) * 31 + flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && flags == other.flags && Objects.equals(userAgent, other.userAgent)
+                    && Objects.equals(deviceInfo, other.deviceInfo) && Objects.equals(clientType, other.clientType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Simple JSON value extraction (without a JSON parser): "key" : "value"
+    private static Pattern jsonString(String key) {
+        return Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]+)\"");
+    }
+}
@@ -0,0 +1,164 @@
+package com.objectdetection.service;
+
+import com.objectdetection.exception.InferenceException;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.Futures;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remote inference through the Hugging Face Inference API over the shared pooled HTTP client.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HuggingFaceDetectionEngine implements DetectionEngine {
+
+    public static final String NAME = "huggingface";
+
+    private final HuggingFaceResponseParser huggingFaceResponseParser;
+    private final LatencyStatistics latencyStatistics;
+    private final MeterRegistry meterRegistry;
+    private final CloseableHttpClient huggingFaceHttpClient;
+    private final PoolingHttpClientConnectionManager huggingFaceConnectionManager;
+    private final HttpClient asyncHttpClient;
+
+    @Value("${huggingface.api.url}")
+    private String huggingFaceApiUrl;
+
+    @Value("${huggingface.api.token}")
+    private String huggingFaceApiToken;
+
+    @Value("${huggingface.http.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    @PostConstruct
+    void registerPoolGauges() {
+        // Leased vs. max connections of the shared Hugging Face client
+        Gauge.builder("huggingface.pool.leased", huggingFaceConnectionManager, manager -> manager.getTotalStats().getLeased())
+                .description("Inference connections currently in use")
+                .register(meterRegistry);
+        Gauge.builder("huggingface.pool.pending", huggingFaceConnectionManager, manager -> manager.getTotalStats().getPending())
+                .description("Requests waiting for an inference connection")
+                .register(meterRegistry);
+        Gauge.builder("huggingface.pool.available", huggingFaceConnectionManager, manager -> manager.getTotalStats().getAvailable())
+                .register(meterRegistry);
+        Gauge.builder("huggingface.pool.max", huggingFaceConnectionManager, manager -> manager.getTotalStats().getMax())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // The model URL, so cache keys written before engines existed stay valid
+    @Override
+    public String getModelId() {
+        return huggingFaceApiUrl;
+    }
+
+    @Override
+    public List<DetectedObject> detect(ImagePayload image) throws IOException {
+        HttpPost request = new HttpPost(huggingFaceApiUrl);
+
+        // Set headers
+        request.setHeader("Authorization", "Bearer " + huggingFaceApiToken);
+
+        // Stream the image as the request body from wherever it is held, heap or pooled chunks
+        ContentType contentType = image.getContentType() != null ?
+                ContentType.parse(image.getContentType()) : ContentType.IMAGE_JPEG;
+        HttpEntity entity = new ImagePayloadEntity(image, contentType);
+        request.setEntity(entity);
+
+        // Execute request on the shared pooled client; closing the consumed stream returns the connection to the pool
+        long inferenceStart = System.nanoTime();
+        try (CloseableHttpResponse response = huggingFaceHttpClient.execute(request)) {
+            latencyStatistics.record(LatencyStatistics.Stage.INFERENCE, inferenceStart);
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity responseEntity = response.getEntity();
+            if (responseEntity == null) {
+                throw new InferenceException("Empty response from Hugging Face (HTTP " + statusCode + ")", statusCode, (Double) null);
+            }
+
+            // Decode detections straight from the response stream
+            long parseStart = System.nanoTime();
+            try (InputStream body = responseEntity.getContent()) {
+                return huggingFaceResponseParser.parse(body, statusCode);
+            } finally {
+                latencyStatistics.record(LatencyStatistics.Stage.PARSE, parseStart);
+            }
+        }
+    }
+
+    /**
+     * The same request over the non-blocking client: the image is streamed as the body and the detections are
+     * parsed on the client's completion threads, so no thread waits for the model.
+     */
+    @Override
+    public CompletableFuture<List<DetectedObject>> detectAsync(ImagePayload image) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(huggingFaceApiUrl))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Authorization", "Bearer " + huggingFaceApiToken)
+                .header("Content-Type", image.getContentType() != null ? image.getContentType() : "image/jpeg")
+                .POST(HttpRequest.BodyPublishers.fromPublisher(
+                        HttpRequest.BodyPublishers.ofInputStream(image::openStream), image.getSize()))
+                .build();
+
+        long inferenceStart = System.nanoTime();
+        return asyncHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    latencyStatistics.record(LatencyStatistics.Stage.INFERENCE, inferenceStart);
+                    long parseStart = System.nanoTime();
+                    try {
+                        return huggingFaceResponseParser.parse(new ByteArrayInputStream(response.body()), response.statusCode());
+                    } catch (IOException e) {
+                        throw Futures.wrap(e);
+                    } finally {
+                        latencyStatistics.record(LatencyStatistics.Stage.PARSE, parseStart);
+                    }
+                });
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        PoolStats stats = huggingFaceConnectionManager.getTotalStats();
+
+        Map<String, Object> poolStats = new HashMap<>();
+        poolStats.put("modelUrl", huggingFaceApiUrl);
+        poolStats.put("leased", stats.getLeased());
+        poolStats.put("pending", stats.getPending());
+        poolStats.put("available", stats.getAvailable());
+        poolStats.put("max", stats.getMax());
+        poolStats.put("maxPerRoute", huggingFaceConnectionManager.getDefaultMaxPerRoute());
+        poolStats.put("saturation", stats.getMax() > 0 ?
+                Math.round((double) stats.getLeased() / stats.getMax() * 1000.0) / 10.0 : 0);
+        return poolStats;
+    }
+}
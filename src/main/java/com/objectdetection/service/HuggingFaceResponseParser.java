@@ -0,0 +1,175 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.exception.InferenceException;
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes the Hugging Face object-detection response straight from the HTTP entity stream
+ * into {@link DetectedObject}s, without building an intermediate String or JSON tree.
+ */
+@Component
+public class HuggingFaceResponseParser {
+
+    private final JsonFactory jsonFactory;
+
+    public HuggingFaceResponseParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public List<DetectedObject> parse(InputStream body, int statusCode) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.START_ARRAY) {
+                List<DetectedObject> detectedObjects = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    detectedObjects.add(parseObject(parser));
+                }
+                return detectedObjects;
+            }
+
+            if (token == JsonToken.START_OBJECT) {
+                // {"error": "...", "estimated_time": 20.0} when the model is loading or the call is rejected
+                parseErrorObject(parser, statusCode);
+            }
+
+            if (statusCode >= 400) {
+                throw new InferenceException("Hugging Face returned HTTP " + statusCode, statusCode, (Double) null);
+            }
+            return Collections.emptyList();
+        } catch (JsonParseException e) {
+            throw new InferenceException("Unreadable response from Hugging Face (HTTP " + statusCode + ")", statusCode, e);
+        }
+    }
+
+    private DetectedObject parseObject(JsonParser parser) throws IOException {
+        String label = null;
+        float score = 0f;
+        BoundingBox box = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "label":
+                    label = textValue(parser, value);
+                    break;
+                case "score":
+                    score = floatValue(parser, value);
+                    break;
+                case "box":
+                    box = value == JsonToken.START_OBJECT ? parseBox(parser) : null;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return DetectedObject.builder()
+                .label(label)
+                .confidence(score)
+                .box(box)
+                .build();
+    }
+
+    private BoundingBox parseBox(JsonParser parser) throws IOException {
+        float xMin = 0f, yMin = 0f, xMax = 0f, yMax = 0f;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "xmin":
+                    xMin = floatValue(parser, value);
+                    break;
+                case "ymin":
+                    yMin = floatValue(parser, value);
+                    break;
+                case "xmax":
+                    xMax = floatValue(parser, value);
+                    break;
+                case "ymax":
+                    yMax = floatValue(parser, value);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return BoundingBox.builder()
+                .xMin(xMin)
+                .yMin(yMin)
+                .xMax(xMax)
+                .yMax(yMax)
+                .build();
+    }
+
+    // Null or non-numeric values read as 0, as JsonNode.floatValue() did before streaming parsing
+    private static float floatValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value != null && value.isNumeric()) {
+            return parser.getFloatValue();
+        }
+        parser.skipChildren();
+        return 0f;
+    }
+
+    // A null label reads as "null" and a non-scalar one as "", as JsonNode.asText() did before streaming parsing
+    private static String textValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return "null";
+        }
+        if (value != null && value.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return "";
+    }
+
+    private void parseErrorObject(JsonParser parser, int statusCode) throws IOException {
+        String error = null;
+        Double estimatedTime = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("error".equals(field)) {
+                if (value == JsonToken.START_ARRAY) {
+                    // Validation errors arrive as a list of messages
+                    StringBuilder messages = new StringBuilder();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (messages.length() > 0) messages.append("; ");
+                        messages.append(parser.getValueAsString());
+                    }
+                    error = messages.toString();
+                } else {
+                    error = parser.getValueAsString();
+                }
+            } else if ("estimated_time".equals(field) && value.isNumeric()) {
+                estimatedTime = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (error != null) {
+            String message = "Hugging Face inference error: " + error;
+            if (estimatedTime != null) {
+                message += " (estimated time " + estimatedTime + "s)";
+            }
+            throw new InferenceException(message, statusCode, estimatedTime);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.Futures;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageDownloadService {
+
+    private final LatencyStatistics latencyStatistics;
+    private final HttpClient asyncHttpClient;
+
+    @Value("${detection.download.max-bytes:10485760}")
+    private long maxBytes;
+
+    @Value("${detection.download.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${detection.download.read-timeout-ms:15000}")
+    private int readTimeoutMs;
+
+    /**
+     * Fetch a remote image exactly once into memory, enforcing the size cap while streaming.
+     */
+    public ImagePayload download(String imageUrl) throws IOException {
+        long startNanos = System.nanoTime();
+        URLConnection connection = new URL(imageUrl).openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        connection.setRequestProperty("Accept", "image/*");
+
+        try {
+            if (connection instanceof HttpURLConnection) {
+                int status = ((HttpURLConnection) connection).getResponseCode();
+                if (status < 200 || status >= 300) {
+                    throw new IOException("Image download failed with HTTP status " + status);
+                }
+            }
+
+            // Reject early when the origin already tells us the image is too large
+            long contentLength = connection.getContentLengthLong();
+            if (contentLength > maxBytes) {
+                throw new IOException("Image exceeds maximum size of " + maxBytes + " bytes");
+            }
+
+            byte[] bytes;
+            try (InputStream in = connection.getInputStream()) {
+                bytes = readCapped(in, contentLength);
+            }
+            return toPayload(bytes, connection.getContentType(), imageUrl);
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+            latencyStatistics.record(LatencyStatistics.Stage.URL_DOWNLOAD, startNanos);
+        }
+    }
+
+    /**
+     * {@link #download} over the non-blocking client, for http and https URLs. The body is collected as it
+     * arrives, under the same size cap, without a thread waiting on the origin.
+     */
+    public CompletableFuture<ImagePayload> downloadAsync(String imageUrl) {
+        long startNanos = System.nanoTime();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(imageUrl))
+                    .timeout(Duration.ofMillis(readTimeoutMs))
+                    .header("Accept", "image/*")
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid image URL: " + e.getMessage(), e));
+        }
+
+        HttpResponse.BodyHandler<byte[]> capped = responseInfo -> {
+            int status = responseInfo.statusCode();
+            if (status < 200 || status >= 300) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            long contentLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+            return new CappedBodySubscriber(contentLength, maxBytes);
+        };
+        return asyncHttpClient.sendAsync(request, capped)
+                .thenApply(response -> {
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw Futures.wrap(new IOException("Image download failed with HTTP status " + response.statusCode()));
+                    }
+                    try {
+                        return toPayload(response.body(), response.headers().firstValue("Content-Type").orElse(null), imageUrl);
+                    } catch (IOException e) {
+                        throw Futures.wrap(e);
+                    }
+                })
+                .whenComplete((image, error) -> latencyStatistics.record(LatencyStatistics.Stage.URL_DOWNLOAD, startNanos));
+    }
+
+    private ImagePayload toPayload(byte[] bytes, String declaredType, String imageUrl) throws IOException {
+        String contentType = ImagePayload.sniffContentType(bytes);
+        if (contentType == null) {
+            if (declaredType == null || !declaredType.startsWith("image/")) {
+                throw new IOException("URL does not point to a supported image (content type: " + declaredType + ")");
+            }
+            contentType = declaredType.split(";")[0].trim();
+        }
+
+        log.debug("Downloaded {} bytes ({}) from {}", bytes.length, contentType, imageUrl);
+
+        return ImagePayload.builder()
+                .bytes(bytes)
+                .contentType(contentType)
+                .fileName(fileNameOf(imageUrl))
+                .build();
+    }
+
+    private byte[] readCapped(InputStream in, long contentLength) throws IOException {
+        int initialSize = contentLength > 0 ? (int) contentLength : 64 * 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(initialSize);
+        byte[] buffer = new byte[16 * 1024];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new IOException("Image exceeds maximum size of " + maxBytes + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // Collects the body into one array, giving up as soon as it is over the cap instead of reading the rest
+    private static final class CappedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final long contentLength;
+        private final long maxBytes;
+        private final ByteArrayOutputStream out;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        CappedBodySubscriber(long contentLength, long maxBytes) {
+            this.contentLength = contentLength;
+            this.maxBytes = maxBytes;
+            this.out = new ByteArrayOutputStream(contentLength > 0 && contentLength <= maxBytes ? (int) contentLength : 64 * 1024);
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            // Reject early when the origin already tells us the image is too large
+            if (contentLength > maxBytes) {
+                tooLarge();
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                if (out.size() + (long) buffer.remaining() > maxBytes) {
+                    tooLarge();
+                    return;
+                }
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            body.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(out.toByteArray());
+        }
+
+        private void tooLarge() {
+            subscription.cancel();
+            body.completeExceptionally(new IOException("Image exceeds maximum size of " + maxBytes + " bytes"));
+        }
+    }
+
+    private String fileNameOf(String imageUrl) {
+        String path = imageUrl;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 && slash < path.length() - 1 ? path.substring(slash + 1) : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.ImagePayload;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request body that writes an {@link ImagePayload} straight from its heap array or pooled chunks.
+ * Repeatable, so the client can resend it on a retried connection.
+ */
+class ImagePayloadEntity extends AbstractHttpEntity {
+
+    private final ImagePayload image;
+
+    ImagePayloadEntity(ImagePayload image, ContentType contentType) {
+        this.image = image;
+        setContentType(contentType.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return image.getSize();
+    }
+
+    @Override
+    public InputStream getContent() {
+        return image.openStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        image.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,387 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.DetectionOptions;
+import com.objectdetection.model.ImagePayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks images before they are sent to a remote engine. DETR resizes every input so its shorter
+ * side is 800px and its longer side at most 1333px, so pixels beyond that only cost upload time.
+ * Oversized images are decoded, scaled to those limits, re-encoded and sent instead of the original;
+ * the returned boxes are scaled back to the original image. Storage always receives the original.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImagePreprocessor {
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+    // The Exif segment sits right after SOI (and at most a JFIF header) and is capped at 64KB
+    private static final int EXIF_SCAN_BYTES = 72 * 1024;
+
+    private final LatencyStatistics latencyStatistics;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${detection.preprocess.enabled:true}")
+    private boolean enabled;
+
+    // Engines whose input is sent over the network; in-process engines resize the decoded image themselves
+    @Value("${detection.preprocess.engines:huggingface}")
+    private String[] engines;
+
+    @Value("${detection.preprocess.max-dimension:1333}")
+    private int maxDimension;
+
+    @Value("${detection.preprocess.max-short-side:800}")
+    private int maxShortSide;
+
+    @Value("${detection.preprocess.jpeg-quality:0.9}")
+    private float jpegQuality;
+
+    // Used only to estimate the upload time saved, which the dashboard sets against the time spent here
+    @Value("${detection.preprocess.uplink-bytes-per-second:1250000}")
+    private long uplinkBytesPerSecond;
+
+    private Set<String> engineNames;
+
+    private final AtomicLong images = new AtomicLong();
+    private final AtomicLong downscaled = new AtomicLong();
+    private final AtomicLong withinLimits = new AtomicLong();
+    private final AtomicLong skippedByRequest = new AtomicLong();
+    private final AtomicLong notSmaller = new AtomicLong();
+    private final AtomicLong exifRotated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong preprocessNanos = new AtomicLong();
+    private Counter bytesSavedCounter;
+
+    @PostConstruct
+    void initialize() {
+        engineNames = Arrays.stream(engines)
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        bytesSavedCounter = Counter.builder("detection.preprocess.bytes.saved")
+                .description("Bytes not sent to inference because the image was downscaled first")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether images for this engine and request are downscaled before inference.
+     */
+    public boolean appliesTo(DetectionEngine engine, DetectionOptions options) {
+        return enabled && !options.isSkipPreprocessing() && engineNames.contains(engine.getName());
+    }
+
+    /**
+     * Part of the result cache key: detections on a downscaled image may differ slightly from the original's.
+     */
+    public String cacheKeySuffix(DetectionEngine engine, DetectionOptions options) {
+        return appliesTo(engine, options)
+                ? "|downscale:" + maxDimension + "x" + maxShortSide + "@" + jpegQuality
+                : "";
+    }
+
+    /**
+     * The image to send to the engine. Falls back to the original whenever it is already small enough,
+     * cannot be decoded, or would not get smaller.
+     */
+    public PreparedImage prepare(ImagePayload image, DetectionEngine engine, DetectionOptions options) {
+        if (!enabled || !engineNames.contains(engine.getName())) {
+            return PreparedImage.unchanged(image);
+        }
+        images.incrementAndGet();
+        bytesIn.addAndGet(image.getSize());
+        if (options.isSkipPreprocessing()) {
+            skippedByRequest.incrementAndGet();
+            return sent(PreparedImage.unchanged(image));
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            return sent(downscale(image));
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.debug("Could not downscale {}, sending original: {}", image.getFileName(), e.toString());
+            return sent(PreparedImage.unchanged(image));
+        } finally {
+            preprocessNanos.addAndGet(System.nanoTime() - startNanos);
+            latencyStatistics.record(LatencyStatistics.Stage.PREPROCESS, startNanos);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long saved = bytesIn.get() - bytesOut.get();
+        long spentMs = TimeUnit.NANOSECONDS.toMillis(preprocessNanos.get());
+        long uploadMsSaved = uplinkBytesPerSecond > 0 ? saved * 1000 / uplinkBytesPerSecond : 0;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("engines", engineNames);
+        stats.put("maxDimension", maxDimension);
+        stats.put("maxShortSide", maxShortSide);
+        stats.put("jpegQuality", jpegQuality);
+        stats.put("images", images.get());
+        stats.put("downscaled", downscaled.get());
+        stats.put("withinLimits", withinLimits.get());
+        stats.put("skippedByRequest", skippedByRequest.get());
+        stats.put("notSmaller", notSmaller.get());
+        stats.put("exifRotated", exifRotated.get());
+        stats.put("failed", failed.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        stats.put("bytesSaved", saved);
+        stats.put("preprocessMs", spentMs);
+        stats.put("estimatedUploadMsSaved", uploadMsSaved);
+        stats.put("estimatedNetMsSaved", uploadMsSaved - spentMs);
+        stats.put("uplinkBytesPerSecond", uplinkBytesPerSecond);
+        return stats;
+    }
+
+    private PreparedImage sent(PreparedImage prepared) {
+        bytesOut.addAndGet(prepared.getImage().getSize());
+        return prepared;
+    }
+
+    private PreparedImage downscale(ImagePayload image) throws IOException {
+        // A rotated photo is shown upright by the model's loader; its boxes would not match the stored pixels
+        if (exifOrientation(image.head(EXIF_SCAN_BYTES)) > 1) {
+            exifRotated.incrementAndGet();
+            return PreparedImage.unchanged(image);
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.openStream())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + image.getContentType());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Dimensions come from the header, so images within limits are never decoded
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                double scale = Math.min(
+                        (double) maxDimension / Math.max(width, height),
+                        (double) maxShortSide / Math.min(width, height));
+                if (scale >= 1) {
+                    withinLimits.incrementAndGet();
+                    return PreparedImage.unchanged(image);
+                }
+                int targetWidth = Math.max(1, (int) Math.round(width * scale));
+                int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+                // Decode every n-th pixel when the image is n times too large, then finish with a smooth resize
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = (int) Math.floor(1 / scale);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+                boolean alpha = decoded.getColorModel().hasAlpha();
+                BufferedImage resized = resize(decoded, targetWidth, targetHeight, alpha);
+
+                byte[] encoded = alpha ? encodePng(resized) : encodeJpeg(resized);
+                if (encoded.length >= image.getSize()) {
+                    notSmaller.incrementAndGet();
+                    return PreparedImage.unchanged(image);
+                }
+
+                downscaled.incrementAndGet();
+                bytesSavedCounter.increment(image.getSize() - encoded.length);
+                ImagePayload smaller = ImagePayload.builder()
+                        .bytes(encoded)
+                        .contentType(alpha ? "image/png" : "image/jpeg")
+                        .fileName(image.getFileName())
+                        .build();
+                return new PreparedImage(smaller, (float) width / targetWidth, (float) height / targetHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+        if (!ImageIO.write(image, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The EXIF orientation of a JPEG (1 = upright), read from the APP1 segment without decoding the image.
+     */
+    static int exifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            // Metadata segments precede the first scan
+            if (marker == 0xDA || length < 2) {
+                return 1;
+            }
+            int segment = offset + 4;
+            if (marker == 0xE1 && segment + 14 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                return tiffOrientation(jpeg, segment + 6, Math.min(jpeg.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                return 1;
+            }
+            if (readShort(data, entry, littleEndian) == EXIF_ORIENTATION_TAG) {
+                return readShort(data, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+
+    /**
+     * The image actually sent to the engine and the factors that map its boxes back to the original.
+     */
+    public static final class PreparedImage {
+        private final ImagePayload image;
+        private final float scaleX;
+        private final float scaleY;
+
+        PreparedImage(ImagePayload image, float scaleX, float scaleY) {
+            this.image = image;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+
+        static PreparedImage unchanged(ImagePayload image) {
+            return new PreparedImage(image, 1f, 1f);
+        }
+
+        public ImagePayload getImage() {
+            return image;
+        }
+
+        public boolean isScaled() {
+            return scaleX != 1f || scaleY != 1f;
+        }
+
+        /**
+         * Detections with their boxes in original-image coordinates.
+         */
+        public List<DetectedObject> toOriginal(List<DetectedObject> detectedObjects) {
+            if (!isScaled() || detectedObjects == null) {
+                return detectedObjects;
+            }
+            List<DetectedObject> mapped = new ArrayList<>(detectedObjects.size());
+            for (DetectedObject object : detectedObjects) {
+                BoundingBox box = object.getBox();
+                mapped.add(DetectedObject.builder()
+                        .label(object.getLabel())
+                        .confidence(object.getConfidence())
+                        .box(box == null ? null : BoundingBox.builder()
+                                .xMin(scale(box.getXMin(), scaleX))
+                                .yMin(scale(box.getYMin(), scaleY))
+                                .xMax(scale(box.getXMax(), scaleX))
+                                .yMax(scale(box.getYMax(), scaleY))
+                                .build())
+                        .build());
+            }
+            return mapped;
+        }
+
+        private static Float scale(Float value, float factor) {
+            return value == null ? null : value * factor;
+        }
+    }
+}
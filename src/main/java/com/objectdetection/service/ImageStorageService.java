@@ -2,16 +2,46 @@ package com.objectdetection.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.Futures;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -19,41 +49,230 @@ import java.util.UUID;
 public class ImageStorageService {
 
     private final Cloudinary cloudinary;
+    private final LatencyStatistics latencyStatistics;
+    private final ObjectMapper objectMapper;
+    private final HttpClient asyncHttpClient;
 
-    public String uploadImage(MultipartFile multipartFile) throws IOException {
-        File file = convertMultipartToFile(multipartFile);
+    @Value("${cloudinary.http.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${cloudinary.http.timeout-ms:30000}")
+    private int timeoutMs;
+
+    // Blocking uploads; the SDK gives no handle to abort one, so every payload goes through this client
+    private CloseableHttpClient streamingClient;
+
+    @PostConstruct
+    void startStreamingClient() {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutMs)
+                .setSocketTimeout(timeoutMs)
+                .setConnectionRequestTimeout(timeoutMs)
+                .build();
+        streamingClient = HttpClients.custom()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    void stopStreamingClient() throws IOException {
+        streamingClient.close();
+    }
+
+    /**
+     * Upload the image and return its URL. Once {@code cancellation} completes exceptionally (or is
+     * cancelled), a request still on the wire is aborted and this throws.
+     */
+    public String uploadImage(ImagePayload image, CompletableFuture<?> cancellation) throws IOException {
+        long startNanos = System.nanoTime();
         try {
-            Map uploadResult = cloudinary.uploader().upload(file, ObjectUtils.emptyMap());
-            boolean isDeleted = file.delete();
-            if (!isDeleted) {
-                log.warn("Failed to delete temporary file: {}", file.getAbsolutePath());
-            }
-            return (String) uploadResult.get("url");
+            return uploadStreaming(image, cancellation);
         } catch (IOException e) {
-            log.error("Failed to upload image to Cloudinary", e);
+            if (cancellation.isCompletedExceptionally()) {
+                log.debug("Aborted upload of {} after the request failed", image.getFileName());
+            } else {
+                log.error("Failed to upload image to Cloudinary: {}", image.getFileName(), e);
+            }
             throw e;
+        } finally {
+            latencyStatistics.record(LatencyStatistics.Stage.STORAGE_UPLOAD, startNanos);
         }
     }
 
-    public String uploadImage(String imageUrl) throws IOException {
-        try {
-            Map uploadResult = cloudinary.uploader().upload(imageUrl, ObjectUtils.emptyMap());
-            return (String) uploadResult.get("url");
-        } catch (IOException e) {
-            log.error("Failed to upload image from URL to Cloudinary: {}", imageUrl, e);
-            throw e;
+    /**
+     * The same signed multipart request the SDK would build, with the file part written straight from the
+     * payload's heap array or pooled chunks.
+     */
+    private String uploadStreaming(ImagePayload image, CompletableFuture<?> cancellation) throws IOException {
+        MultipartEntityBuilder multipart = MultipartEntityBuilder.create();
+        signedParams().forEach((name, value) -> multipart.addTextBody(name, value.toString()));
+        multipart.addPart("file", new PayloadBody(image, fileNameOf(image)));
+
+        HttpPost request = new HttpPost(cloudinary.cloudinaryApiUrl("upload", ObjectUtils.emptyMap()));
+        request.setEntity(multipart.build());
+        // Aborting before execute makes execute fail at once; during it, the connection is shut down
+        cancellation.whenComplete((value, error) -> {
+            if (error != null) {
+                request.abort();
+            }
+        });
+        try (CloseableHttpResponse response = streamingClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            JsonNode body;
+            try (InputStream content = entity != null ? entity.getContent() : InputStream.nullInputStream()) {
+                body = objectMapper.readTree(content);
+            }
+            return urlOf(statusCode, body);
+        }
+    }
+
+    /**
+     * {@link #uploadImage} over the non-blocking client. The caller keeps the image valid until the returned
+     * future completes; by then the request body is shut, so the image is never read afterwards, even when
+     * an aborted exchange is still winding down.
+     */
+    public CompletableFuture<String> uploadImageAsync(ImagePayload image, CompletableFuture<?> cancellation) {
+        long startNanos = System.nanoTime();
+        BodyGate gate = new BodyGate();
+        String boundary = "detection-" + UUID.randomUUID();
+        StringBuilder head = new StringBuilder();
+        signedParams().forEach((name, value) -> head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"")
+                .append(fileNameOf(image).replace("\"", "%22")).append("\"\r\n")
+                .append("Content-Type: application/octet-stream\r\n\r\n");
+        byte[] preamble = head.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] epilogue = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(cloudinary.cloudinaryApiUrl("upload", ObjectUtils.emptyMap())))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() ->
+                                new SequenceInputStream(Collections.enumeration(List.of(new ByteArrayInputStream(preamble),
+                                        gate.guard(image.openStream()), new ByteArrayInputStream(epilogue))))),
+                        preamble.length + image.getSize() + epilogue.length))
+                .build();
+
+        CompletableFuture<HttpResponse<byte[]>> exchange = asyncHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        // Since JDK 16 cancelling the exchange aborts it; older runtimes finish the upload and drop the response
+        cancellation.whenComplete((value, error) -> {
+            if (error != null) {
+                exchange.cancel(true);
+            }
+        });
+        return exchange
+                .thenApply(response -> {
+                    try {
+                        byte[] body = response.body();
+                        return urlOf(response.statusCode(), body.length > 0 ? objectMapper.readTree(body) : null);
+                    } catch (IOException e) {
+                        throw Futures.wrap(e);
+                    }
+                })
+                .whenComplete((url, error) -> {
+                    gate.shut();
+                    if (error != null && cancellation.isCompletedExceptionally()) {
+                        log.debug("Aborted upload of {} after the request failed", image.getFileName());
+                    } else if (error != null) {
+                        log.error("Failed to upload image to Cloudinary: {}", image.getFileName(), Futures.unwrap(error));
+                    }
+                    latencyStatistics.record(LatencyStatistics.Stage.STORAGE_UPLOAD, startNanos);
+                });
+    }
+
+    // What the SDK sends with a signed upload that has no other options
+    private Map<String, Object> signedParams() {
+        Map<String, Object> params = new TreeMap<>();
+        params.put("timestamp", Long.toString(System.currentTimeMillis() / 1000));
+        params.put("signature", cloudinary.apiSignRequest(params, cloudinary.config.apiSecret));
+        params.put("api_key", cloudinary.config.apiKey);
+        return params;
+    }
+
+    private static String urlOf(int statusCode, JsonNode body) throws IOException {
+        if (statusCode != 200 || body == null || !body.hasNonNull("url")) {
+            String message = body != null ? body.path("error").path("message").asText("") : "";
+            throw new IOException("Cloudinary upload failed with HTTP " + statusCode + (message.isEmpty() ? "" : ": " + message));
         }
+        return body.get("url").asText();
+    }
+
+    private static String fileNameOf(ImagePayload image) {
+        return image.getFileName() != null ? image.getFileName() : "file";
     }
 
-    private File convertMultipartToFile(MultipartFile multipartFile) throws IOException {
-        String originalFilename = multipartFile.getOriginalFilename();
-        String extension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        File file = new File(System.getProperty("java.io.tmpdir") + "/" + filename);
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(multipartFile.getBytes());
+    /**
+     * Lets the request body be shut before the image is released: a read either finished before
+     * {@link #shut()} returned or fails, so no chunk is read after it went back to the pool.
+     */
+    private static final class BodyGate {
+        private boolean shut;
+
+        InputStream guard(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    synchronized (BodyGate.this) {
+                        ensureOpen();
+                        return super.read();
+                    }
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    synchronized (BodyGate.this) {
+                        ensureOpen();
+                        return super.read(bytes, offset, length);
+                    }
+                }
+            };
+        }
+
+        synchronized void shut() {
+            shut = true;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (shut) {
+                throw new IOException("Upload body already closed");
+            }
+        }
+    }
+
+    private static final class PayloadBody extends AbstractContentBody {
+        private final ImagePayload image;
+        private final String fileName;
+
+        PayloadBody(ImagePayload image, String fileName) {
+            super(ContentType.APPLICATION_OCTET_STREAM);
+            this.image = image;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            image.writeTo(out);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return image.getSize();
         }
-        return file;
     }
 }
\ No newline at end of file
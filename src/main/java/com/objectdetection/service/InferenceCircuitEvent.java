@@ -0,0 +1,15 @@
+package com.objectdetection.service;
+
+import com.objectdetection.util.CircuitBreaker;
+import lombok.Value;
+
+/**
+ * Published when an engine's circuit breaker changes state; {@link DashboardService} logs it.
+ */
+@Value
+public class InferenceCircuitEvent {
+    String engine;
+    CircuitBreaker.State from;
+    CircuitBreaker.State to;
+    String reason;
+}
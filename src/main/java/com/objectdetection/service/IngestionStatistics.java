@@ -0,0 +1,66 @@
+package com.objectdetection.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how many payload bytes each request copies onto the heap or streams into pooled off-heap buffers,
+ * and estimates how many of them the container spooled to disk.
+ */
+@Component
+public class IngestionStatistics {
+
+    // Tomcat keeps multipart parts up to this size in memory and spools larger ones to disk. The part does not
+    // say where it was kept, so the disk figures apply this rule to the part size rather than measure the spool
+    @Value("${spring.servlet.multipart.file-size-threshold:0B}")
+    private DataSize fileSizeThreshold;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private final AtomicLong estimatedDiskBytes = new AtomicLong();
+    private final AtomicLong estimatedDiskSpooledRequests = new AtomicLong();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong pooledRequests = new AtomicLong();
+
+    public void recordMultipartRead(long size) {
+        requests.incrementAndGet();
+        bytesCopied.addAndGet(size);
+        if (size > fileSizeThreshold.toBytes()) {
+            estimatedDiskBytes.addAndGet(size);
+            estimatedDiskSpooledRequests.incrementAndGet();
+        }
+    }
+
+    // Streamed straight off the request body into direct buffers: neither heap copy nor disk spool
+    public void recordPooledRead(long size) {
+        requests.incrementAndGet();
+        pooledBytes.addAndGet(size);
+        pooledRequests.incrementAndGet();
+    }
+
+    public void recordDownload(long size) {
+        requests.incrementAndGet();
+        bytesCopied.addAndGet(size);
+    }
+
+    public Map<String, Object> getStatistics() {
+        long requestCount = requests.get();
+        
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("requests", requestCount);
+        statistics.put("bytesCopied", bytesCopied.get());
+        statistics.put("estimatedDiskBytes", estimatedDiskBytes.get());
+        statistics.put("estimatedDiskSpooledRequests", estimatedDiskSpooledRequests.get());
+        statistics.put("pooledBytes", pooledBytes.get());
+        statistics.put("pooledRequests", pooledRequests.get());
+        statistics.put("avgBytesCopiedPerRequest", requestCount > 0 ? bytesCopied.get() / requestCount : 0);
+        statistics.put("avgEstimatedDiskBytesPerRequest", requestCount > 0 ? estimatedDiskBytes.get() / requestCount : 0);
+        statistics.put("fileSizeThreshold", fileSizeThreshold.toBytes());
+        return statistics;
+    }
+}
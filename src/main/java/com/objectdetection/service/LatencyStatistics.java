@@ -0,0 +1,113 @@
+package com.objectdetection.service;
+
+import com.objectdetection.util.LatencyHistogram;
+import com.objectdetection.util.WindowedLatencyHistogram;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage latency histograms for the detection pipeline, kept in one-minute windows.
+ */
+@Component
+public class LatencyStatistics {
+
+    public enum Stage {
+        END_TO_END("endToEnd"),
+        STORAGE_UPLOAD("storageUpload"),
+        URL_DOWNLOAD("urlDownload"),
+        PREPROCESS("preprocess"),
+        INFERENCE("inference"),
+        PARSE("parse");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Stage fromKey(String key) {
+            for (Stage stage : values()) {
+                if (stage.key.equalsIgnoreCase(key) || stage.name().equalsIgnoreCase(key)) {
+                    return stage;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Map<Stage, WindowedLatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    // The same samples go to Micrometer, so /actuator/prometheus and the dashboard agree
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final int windowMinutes;
+
+    public LatencyStatistics(@Value("${dashboard.latency.window-minutes:60}") int windowMinutes,
+                             MeterRegistry meterRegistry) {
+        this.windowMinutes = windowMinutes;
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new WindowedLatencyHistogram(TimeUnit.MINUTES.toMillis(1), windowMinutes));
+            timers.put(stage, Timer.builder("detection.stage.latency")
+                    .description("Latency of each detection pipeline stage")
+                    .tag("stage", stage.getKey())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Record a stage duration measured with {@link System#nanoTime()}; the windowed histogram update is allocation-free.
+     */
+    public void record(Stage stage, long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        histograms.get(stage).recordNanos(System.currentTimeMillis(), elapsedNanos);
+        timers.get(stage).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Percentiles per stage over the last {@code minutes} minutes, or since startup when zero.
+     */
+    public Map<String, Object> getStatistics(int minutes) {
+        int window = Math.min(Math.max(minutes, 0), windowMinutes);
+        long now = System.currentTimeMillis();
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            stages.put(stage.getKey(), summarize(histograms.get(stage).snapshot(now, window)));
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("windowMinutes", window);
+        statistics.put("stages", stages);
+        return statistics;
+    }
+
+    public Map<String, Object> getStageStatistics(Stage stage, int minutes) {
+        int window = Math.min(Math.max(minutes, 0), windowMinutes);
+        return summarize(histograms.get(stage).snapshot(System.currentTimeMillis(), window));
+    }
+
+    private Map<String, Object> summarize(LatencyHistogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getCount());
+        summary.put("p50", toMillis(histogram.getPercentileMicros(50)));
+        summary.put("p95", toMillis(histogram.getPercentileMicros(95)));
+        summary.put("p99", toMillis(histogram.getPercentileMicros(99)));
+        summary.put("max", toMillis(histogram.getMaxMicros()));
+        summary.put("mean", Math.round(histogram.getMeanMicros() / 10.0) / 100.0);
+        return summary;
+    }
+
+    private double toMillis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+}
@@ -0,0 +1,210 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.MicroBatcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps a batch-capable engine so that concurrent single-image calls are grouped into
+ * micro-batches by a {@link MicroBatcher} and each caller receives its own detections.
+ */
+@Slf4j
+class MicroBatchingDetectionEngine implements DetectionEngine, AutoCloseable {
+
+    private final DetectionEngine delegate;
+    private final MicroBatcher<BatchRequest, BatchOutcome> batcher;
+    private final long timeoutMs;
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+
+    MicroBatchingDetectionEngine(DetectionEngine delegate, MeterRegistry meterRegistry,
+                                 long maxWaitMicros, int queueCapacity, int workers, long timeoutMs) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        this.batcher = new MicroBatcher<>(delegate.getName(), delegate.getMaxBatchSize(),
+                maxWaitMicros, TimeUnit.MICROSECONDS, queueCapacity, workers, this::runBatch);
+
+        this.batchSize = DistributionSummary.builder("inference.batch.size")
+                .description("Images per inference call")
+                .tag("engine", delegate.getName())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("inference.batch.queue.delay")
+                .description("Time an image waited to join an inference batch")
+                .tag("engine", delegate.getName())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("inference.batch.target.size", batcher, MicroBatcher::getTargetBatchSize)
+                .tag("engine", delegate.getName())
+                .register(meterRegistry);
+        Gauge.builder("inference.batch.queued", batcher, MicroBatcher::getQueueSize)
+                .tag("engine", delegate.getName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModelId() {
+        return delegate.getModelId();
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return delegate.getMaxBatchSize();
+    }
+
+    @Override
+    public List<DetectedObject> detect(ImagePayload image) throws IOException {
+        BatchRequest request = new BatchRequest(image.retain(), System.nanoTime());
+        BatchOutcome outcome;
+        try {
+            outcome = batcher.submit(request, timeoutMs);
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Inference queue for " + getName() + " is full", e);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (TimeoutException e) {
+            throw new IOException(e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IOException("Batched inference failed: " + e.getMessage(), e);
+        } finally {
+            request.abandon();
+        }
+        if (outcome.error != null) {
+            throw outcome.error;
+        }
+        return outcome.objects;
+    }
+
+    @Override
+    public List<List<DetectedObject>> detectBatch(List<ImagePayload> images) throws IOException {
+        // Already a batch: no reason to queue it behind single images
+        return delegate.detectBatch(images);
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = delegate.getStatistics();
+        stats.put("microBatching", batcher.getStatistics());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+
+    private List<BatchOutcome> runBatch(List<BatchRequest> requests) {
+        // A caller that gave up between dispatch and now may already have released its image
+        List<BatchRequest> claimed = new ArrayList<>(requests.size());
+        for (BatchRequest request : requests) {
+            if (request.claim()) {
+                claimed.add(request);
+            }
+        }
+        try {
+            List<BatchOutcome> claimedOutcomes = claimed.isEmpty() ? Collections.emptyList() : runClaimed(claimed);
+            if (claimed.size() == requests.size()) {
+                return claimedOutcomes;
+            }
+            List<BatchOutcome> outcomes = new ArrayList<>(requests.size());
+            int next = 0;
+            for (BatchRequest request : requests) {
+                outcomes.add(next < claimed.size() && claimed.get(next) == request ? claimedOutcomes.get(next++) : BatchOutcome.ABANDONED);
+            }
+            return outcomes;
+        } finally {
+            claimed.forEach(request -> request.image.release());
+        }
+    }
+
+    private List<BatchOutcome> runClaimed(List<BatchRequest> requests) {
+        long now = System.nanoTime();
+        List<ImagePayload> images = new ArrayList<>(requests.size());
+        for (BatchRequest request : requests) {
+            queueDelay.record(now - request.submittedNanos, TimeUnit.NANOSECONDS);
+            images.add(request.image);
+        }
+        batchSize.record(requests.size());
+
+        if (images.size() > 1) {
+            try {
+                List<List<DetectedObject>> results = delegate.detectBatch(images);
+                List<BatchOutcome> outcomes = new ArrayList<>(results.size());
+                for (List<DetectedObject> objects : results) {
+                    outcomes.add(new BatchOutcome(objects, null));
+                }
+                return outcomes;
+            } catch (IOException | RuntimeException e) {
+                // One bad image must not fail its neighbours: rerun them one by one
+                log.debug("Batch of {} failed, retrying individually: {}", images.size(), e.getMessage());
+            }
+        }
+
+        List<BatchOutcome> outcomes = new ArrayList<>(images.size());
+        for (ImagePayload image : images) {
+            try {
+                outcomes.add(new BatchOutcome(delegate.detect(image), null));
+            } catch (IOException e) {
+                outcomes.add(new BatchOutcome(Collections.emptyList(), e));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Holds its own reference to the image. Exactly one side releases it: the batch that claims the request,
+     * or the caller when it stops waiting before any batch did.
+     */
+    private static final class BatchRequest {
+        final ImagePayload image;
+        final long submittedNanos;
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        BatchRequest(ImagePayload image, long submittedNanos) {
+            this.image = image;
+            this.submittedNanos = submittedNanos;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void abandon() {
+            if (claim()) {
+                image.release();
+            }
+        }
+    }
+
+    private static final class BatchOutcome {
+        static final BatchOutcome ABANDONED = new BatchOutcome(Collections.emptyList(), null);
+
+        final List<DetectedObject> objects;
+        final IOException error;
+
+        BatchOutcome(List<DetectedObject> objects, IOException error) {
+            this.objects = objects;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.objectdetection.service;
+
+import com.objectdetection.util.DirectBufferPool;
+import com.objectdetection.util.MultipartStream;
+import com.objectdetection.util.PooledBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an image part straight off the request body into a pooled off-heap buffer, chunk by chunk,
+ * instead of letting the container parse the whole multipart body onto the heap first.
+ */
+@Service
+public class MultipartIngestService {
+
+    // Heap scratch space for the parser, the only array an upload passes through
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    // Text fields are URLs; anything longer is not one
+    private static final int MAX_FIELD_SIZE = 16 * 1024;
+
+    private final boolean enabled;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+    private final DirectBufferPool pool;
+
+    public MultipartIngestService(@Value("${detection.ingest.streaming.enabled:true}") boolean enabled,
+                                  @Value("${detection.ingest.buffer.chunk-size:64KB}") DataSize chunkSize,
+                                  @Value("${detection.ingest.buffer.max-size:128MB}") DataSize maxPoolSize,
+                                  @Value("${detection.ingest.buffer.acquire-timeout-ms:1000}") long acquireTimeoutMs,
+                                  @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxFileSize,
+                                  @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+        int chunkBytes = (int) chunkSize.toBytes();
+        this.pool = new DirectBufferPool(chunkBytes, (int) Math.max(1, maxPoolSize.toBytes() / chunkBytes), acquireTimeoutMs);
+
+        Gauge.builder("detection.ingest.buffer.leased", pool, DirectBufferPool::getLeasedChunks)
+                .description("Pooled upload chunks currently holding image bytes")
+                .register(meterRegistry);
+        Gauge.builder("detection.ingest.buffer.allocated", pool, DirectBufferPool::getAllocatedChunks)
+                .description("Direct upload chunks allocated so far, leased or free")
+                .register(meterRegistry);
+        Gauge.builder("detection.ingest.buffer.max", pool, DirectBufferPool::getMaxChunks)
+                .register(meterRegistry);
+        FunctionCounter.builder("detection.ingest.buffer.exhausted", pool, DirectBufferPool::getExhaustedCount)
+                .description("Uploads refused because every pooled chunk was in use")
+                .register(meterRegistry);
+        FunctionCounter.builder("detection.ingest.buffer.leaks", pool, DirectBufferPool::getLeakCount)
+                .description("Pooled upload buffers reclaimed by the garbage collector instead of released")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stream the named file part of a multipart request into a pooled buffer. Only the body up to the end
+     * of that part is read. The caller owns the returned upload and must release its buffer.
+     *
+     * @return null when the request has no file part of that name
+     * @throws MaxUploadSizeExceededException when the part or the body before it is over the configured limit
+     */
+    public StreamedUpload readFilePart(HttpServletRequest request, String partName) throws IOException {
+        MultipartStream multipart = open(request, maxRequestSize);
+        while (multipart.nextPart()) {
+            if (partName.equals(multipart.getFieldName()) && multipart.getFileName() != null) {
+                return readFile(multipart);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stream every non-empty file part named {@code filePartName} into a pooled buffer of its own and collect
+     * the text fields named {@code fieldName}. The body may be up to {@code maxRequestSize} bytes; each file
+     * part is still held to max-file-size. The caller owns the returned uploads and must release every buffer.
+     *
+     * @throws MaxUploadSizeExceededException when a part or the whole body is over its limit
+     */
+    public StreamedParts readParts(HttpServletRequest request, String filePartName, String fieldName,
+                                   long maxRequestSize) throws IOException {
+        MultipartStream multipart = open(request, maxRequestSize);
+        StreamedParts parts = new StreamedParts();
+        try {
+            while (multipart.nextPart()) {
+                if (filePartName.equals(multipart.getFieldName()) && multipart.getFileName() != null) {
+                    StreamedUpload upload = readFile(multipart);
+                    if (upload.getBuffer().size() == 0) {
+                        upload.getBuffer().release();
+                    } else {
+                        parts.files.add(upload);
+                    }
+                } else if (fieldName.equals(multipart.getFieldName())) {
+                    parts.fields.add(readField(multipart));
+                }
+            }
+            return parts;
+        } catch (IOException | RuntimeException e) {
+            parts.release();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = pool.getStatistics();
+        statistics.put("enabled", enabled);
+        return statistics;
+    }
+
+    private MultipartStream open(HttpServletRequest request, long maxRequestSize) throws IOException {
+        String boundary = boundaryOf(request.getContentType());
+        return new MultipartStream(new CappedInputStream(request.getInputStream(), maxRequestSize),
+                boundary, READ_BUFFER_SIZE);
+    }
+
+    private StreamedUpload readFile(MultipartStream multipart) throws IOException {
+        PooledBuffer buffer = pool.newBuffer();
+        try {
+            multipart.readBody((bytes, offset, length) -> {
+                if (buffer.size() + length > maxFileSize) {
+                    throw new MaxUploadSizeExceededException(maxFileSize);
+                }
+                buffer.write(bytes, offset, length);
+            });
+            return new StreamedUpload(buffer, multipart.getFileName(), multipart.getContentType());
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    private static String readField(MultipartStream multipart) throws IOException {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        multipart.readBody((bytes, offset, length) -> {
+            if (value.size() + length > MAX_FIELD_SIZE) {
+                throw new IOException("Form field '" + multipart.getFieldName() + "' exceeds " + MAX_FIELD_SIZE + " bytes");
+            }
+            value.write(bytes, offset, length);
+        });
+        return value.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String boundaryOf(String contentType) throws IOException {
+        String boundary = contentType != null ? MediaType.parseMediaType(contentType).getParameter("boundary") : null;
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IOException("Multipart request without a boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary;
+    }
+
+    /**
+     * A file part held in pooled chunks, with the metadata the client sent for it.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class StreamedUpload {
+        private final PooledBuffer buffer;
+        private final String fileName;
+        private final String contentType;
+    }
+
+    /**
+     * The file parts and text fields of a streamed multipart body.
+     */
+    @Getter
+    public static final class StreamedParts {
+        private final List<StreamedUpload> files = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+
+        public void release() {
+            files.forEach(upload -> upload.getBuffer().release());
+        }
+    }
+
+    // The container does not apply max-request-size to a body read as a raw stream
+    private static final class CappedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        CappedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) {
+            count += read;
+            if (count > limit) {
+                throw new MaxUploadSizeExceededException(limit);
+            }
+        }
+    }
+}
@@ -1,31 +1,35 @@
 package com.objectdetection.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.objectdetection.model.BoundingBox;
 import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.DetectionOptions;
 import com.objectdetection.model.DetectionResult;
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.Futures;
+import com.objectdetection.util.PooledBuffer;
+import com.objectdetection.util.SingleFlight;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.entity.ContentType;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -33,121 +37,488 @@ import java.util.concurrent.TimeUnit;
 public class ObjectDetectionService {
 
     private final ImageStorageService imageStorageService;
-    private final ObjectMapper objectMapper;
+    private final ImageDownloadService imageDownloadService;
+    private final IngestionStatistics ingestionStatistics;
+    private final DetectionResultCache detectionResultCache;
+    private final DetectionEngines detectionEngines;
+    private final ImagePreprocessor imagePreprocessor;
+    private final LatencyStatistics latencyStatistics;
+    private final DetectionMetrics detectionMetrics;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${huggingface.api.url}")
-    private String huggingFaceApiUrl;
+    @Value("${detection.pipeline.threads:8}")
+    private int pipelineThreads;
 
-    @Value("${huggingface.api.token}")
-    private String huggingFaceApiToken;
+    @Value("${detection.pipeline.queue-capacity:100}")
+    private int pipelineQueueCapacity;
+
+    @Value("${detection.pipeline.storage-timeout-ms:30000}")
+    private long storageTimeoutMs;
+
+    // When false, a failed or timed-out upload still returns the detections with a null imageUrl
+    @Value("${detection.pipeline.require-storage:false}")
+    private boolean requireStorage;
+
+    @Value("${detection.singleflight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    // How long a follower waits for the leader of an identical request before giving up
+    @Value("${detection.singleflight.timeout-ms:90000}")
+    private long singleFlightTimeoutMs;
+
+    private final SingleFlight<String, DetectionResult> inFlightDetections = new SingleFlight<>();
+
+    // Storage uploads run here while the request thread performs inference
+    private ThreadPoolExecutor pipelineExecutor;
+
+    @PostConstruct
+    void startPipelineExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        pipelineExecutor = new ThreadPoolExecutor(
+                pipelineThreads, pipelineThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pipelineQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "detection-pipeline-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // When saturated or shut down the upload fails fast and is handled like any storage failure
+                new ThreadPoolExecutor.AbortPolicy());
+        pipelineExecutor.allowCoreThreadTimeOut(true);
+        
+        Gauge.builder("detection.pipeline.active", pipelineExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Storage uploads currently running")
+                .register(meterRegistry);
+        Gauge.builder("detection.pipeline.queued", pipelineExecutor, executor -> executor.getQueue().size())
+                .description("Storage uploads waiting for a pipeline thread")
+                .register(meterRegistry);
+        Gauge.builder("detection.pipeline.threads", pipelineExecutor, ThreadPoolExecutor::getMaximumPoolSize)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stopPipelineExecutor() {
+        pipelineExecutor.shutdown();
+    }
 
     public DetectionResult detectObjectsFromFile(MultipartFile file) {
-        long startTime = System.currentTimeMillis();
+        return detectObjectsFromFile(file, DetectionOptions.DEFAULTS);
+    }
+
+    public DetectionResult detectObjectsFromFile(MultipartFile file, DetectionOptions options) {
+        byte[] imageBytes;
         try {
-            // Upload the image to cloud storage
-            String imageUrl = imageStorageService.uploadImage(file);
-            
-            // Process the image with Hugging Face API
-            List<DetectedObject> detectedObjects = processImageWithHuggingFace(file.getBytes());
-            
+            // The only read of the upload; storage and inference share this buffer
+            imageBytes = file.getBytes();
+        } catch (IOException e) {
+            log.error("Error reading uploaded file", e);
             return DetectionResult.builder()
-                    .imageUrl(imageUrl)
-                    .detectedObjects(detectedObjects)
-                    .processingTimeMs(System.currentTimeMillis() - startTime)
+                    .error("Error processing image: " + e.getMessage())
+                    .processingTimeMs(0L)
                     .build();
+        }
+        return detectObjectsFromBytes(imageBytes, file.getContentType(), file.getOriginalFilename(), options);
+    }
+
+    /**
+     * Detect objects in an uploaded image whose bytes the caller has already read, e.g. one part of a batch.
+     */
+    public DetectionResult detectObjectsFromBytes(byte[] imageBytes, String declaredContentType, String fileName, DetectionOptions options) {
+        ingestionStatistics.recordMultipartRead(imageBytes.length);
+        return detectUpload(ImagePayload.builder()
+                .bytes(imageBytes)
+                .contentType(declaredContentType)
+                .fileName(fileName)
+                .build(), options);
+    }
+
+    /**
+     * Detect objects in an upload streamed into pooled buffers. The caller keeps its reference to the
+     * buffer and releases it afterwards; work that outlives this call takes references of its own.
+     */
+    public DetectionResult detectObjectsFromBuffer(PooledBuffer buffer, String declaredContentType, String fileName, DetectionOptions options) {
+        ingestionStatistics.recordPooledRead(buffer.size());
+        return detectUpload(ImagePayload.builder()
+                .buffer(buffer)
+                .contentType(declaredContentType)
+                .fileName(fileName)
+                .build(), options);
+    }
+
+    private DetectionResult detectUpload(ImagePayload upload, DetectionOptions options) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        detectionMetrics.requestStarted();
+        try {
+            detectionMetrics.recordImageBytes("file", upload.getSize());
+            String contentType = ImagePayload.sniffContentType(upload.head(12));
+            ImagePayload image = contentType != null ? upload.withContentType(contentType) : upload;
+            
+            // Identical uploads for the same model arriving together share one storage upload and inference
+            DetectionEngine engine = detectionEngines.resolve(options.getEngine());
+            String contentKey = detectionResultCache.keyFor(image, modelKey(engine, options));
+            return coalesce("sha256:" + contentKey, options, () -> runPipeline(image, engine, contentKey, options, startTime));
         } catch (Exception e) {
             log.error("Error detecting objects from file", e);
             return DetectionResult.builder()
                     .error("Error processing image: " + e.getMessage())
                     .processingTimeMs(System.currentTimeMillis() - startTime)
                     .build();
+        } finally {
+            latencyStatistics.record(LatencyStatistics.Stage.END_TO_END, startNanos);
+            detectionMetrics.requestFinished();
         }
     }
 
     public DetectionResult detectObjectsFromUrl(String url) {
+        return detectObjectsFromUrl(url, DetectionOptions.DEFAULTS);
+    }
+
+    public DetectionResult detectObjectsFromUrl(String url, DetectionOptions options) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        detectionMetrics.requestStarted();
         try {
-            // Download image and upload to cloud storage
-            String imageUrl = imageStorageService.uploadImage(url);
-            
-            // Download image for processing
-            byte[] imageBytes = downloadImage(url);
-            
-            // Process the image with Hugging Face API
-            List<DetectedObject> detectedObjects = processImageWithHuggingFace(imageBytes);
-            
-            return DetectionResult.builder()
-                    .imageUrl(imageUrl)
-                    .detectedObjects(detectedObjects)
-                    .processingTimeMs(System.currentTimeMillis() - startTime)
-                    .build();
+            // Concurrent requests for the same URL and engine share one download, upload and inference
+            DetectionEngine engine = detectionEngines.resolve(options.getEngine());
+            String variant = imagePreprocessor.appliesTo(engine, options) ? "" : ":original";
+            return coalesce("url:" + engine.getName() + variant + ":" + url, options, () -> {
+                // Download the image once and share the bytes between storage and inference
+                ImagePayload image = imageDownloadService.download(url);
+                ingestionStatistics.recordDownload(image.getSize());
+                detectionMetrics.recordImageBytes("url", image.getSize());
+                
+                return runPipeline(image, engine, null, options, startTime);
+            });
         } catch (Exception e) {
             log.error("Error detecting objects from URL: {}", url, e);
             return DetectionResult.builder()
                     .error("Error processing image: " + e.getMessage())
                     .processingTimeMs(System.currentTimeMillis() - startTime)
                     .build();
+        } finally {
+            latencyStatistics.record(LatencyStatistics.Stage.END_TO_END, startNanos);
+            detectionMetrics.requestFinished();
         }
     }
 
-    private List<DetectedObject> processImageWithHuggingFace(byte[] imageBytes) throws IOException {
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(huggingFaceApiUrl);
-            
-            // Set headers
-            request.setHeader("Authorization", "Bearer " + huggingFaceApiToken);
+    /**
+     * Non-blocking {@link #detectObjectsFromFile}, for uploads the container has already parsed.
+     */
+    public CompletableFuture<DetectionResult> detectObjectsFromFileAsync(MultipartFile file, DetectionOptions options) {
+        byte[] imageBytes;
+        try {
+            imageBytes = file.getBytes();
+        } catch (IOException e) {
+            log.error("Error reading uploaded file", e);
+            return CompletableFuture.completedFuture(DetectionResult.builder()
+                    .error("Error processing image: " + e.getMessage())
+                    .processingTimeMs(0L)
+                    .build());
+        }
+        ingestionStatistics.recordMultipartRead(imageBytes.length);
+        return detectUploadAsync(ImagePayload.builder()
+                .bytes(imageBytes)
+                .contentType(file.getContentType())
+                .fileName(file.getOriginalFilename())
+                .build(), options);
+    }
+
+    /**
+     * Non-blocking {@link #detectObjectsFromBuffer}. The caller keeps the buffer until the returned future completes.
+     */
+    public CompletableFuture<DetectionResult> detectObjectsFromBufferAsync(PooledBuffer buffer, String declaredContentType,
+                                                                           String fileName, DetectionOptions options) {
+        ingestionStatistics.recordPooledRead(buffer.size());
+        return detectUploadAsync(ImagePayload.builder()
+                .buffer(buffer)
+                .contentType(declaredContentType)
+                .fileName(fileName)
+                .build(), options);
+    }
+
+    private CompletableFuture<DetectionResult> detectUploadAsync(ImagePayload upload, DetectionOptions options) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        detectionMetrics.requestStarted();
+        CompletableFuture<DetectionResult> result;
+        try {
+            detectionMetrics.recordImageBytes("file", upload.getSize());
+            String contentType = ImagePayload.sniffContentType(upload.head(12));
+            ImagePayload image = contentType != null ? upload.withContentType(contentType) : upload;
+
+            DetectionEngine engine = detectionEngines.resolve(options.getEngine());
+            String contentKey = detectionResultCache.keyFor(image, modelKey(engine, options));
+            result = coalesceAsync("sha256:" + contentKey, options, () -> runPipelineAsync(image, engine, contentKey, options, startTime));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return finishAsync(result, "Error detecting objects from file", startTime, startNanos);
+    }
+
+    /**
+     * Non-blocking {@link #detectObjectsFromUrl}: download, storage upload and inference all run over the
+     * non-blocking client, so the calling thread returns at once.
+     */
+    public CompletableFuture<DetectionResult> detectObjectsFromUrlAsync(String url, DetectionOptions options) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        detectionMetrics.requestStarted();
+        CompletableFuture<DetectionResult> result;
+        try {
+            DetectionEngine engine = detectionEngines.resolve(options.getEngine());
+            String variant = imagePreprocessor.appliesTo(engine, options) ? "" : ":original";
+            result = coalesceAsync("url:" + engine.getName() + variant + ":" + url, options, () -> imageDownloadService.downloadAsync(url)
+                    // Decoding and downscaling are CPU work, kept off the few client threads
+                    .thenComposeAsync(image -> {
+                        ingestionStatistics.recordDownload(image.getSize());
+                        detectionMetrics.recordImageBytes("url", image.getSize());
+                        return runPipelineAsync(image, engine, null, options, startTime);
+                    }, pipelineExecutor));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return finishAsync(result, "Error detecting objects from URL: " + url, startTime, startNanos);
+    }
+
+    // Failures become the same error results the blocking methods return
+    private CompletableFuture<DetectionResult> finishAsync(CompletableFuture<DetectionResult> result, String failureLog,
+                                                           long startTime, long startNanos) {
+        return result.handle((detection, error) -> {
+            latencyStatistics.record(LatencyStatistics.Stage.END_TO_END, startNanos);
+            detectionMetrics.requestFinished();
+            if (error == null) {
+                return detection;
+            }
+            Throwable cause = Futures.unwrap(error);
+            log.error(failureLog, cause);
+            return DetectionResult.builder()
+                    .error("Error processing image: " + cause.getMessage())
+                    .processingTimeMs(System.currentTimeMillis() - startTime)
+                    .build();
+        });
+    }
+
+    private DetectionResult coalesce(String key, DetectionOptions options, Callable<DetectionResult> pipeline) throws Exception {
+        if (!singleFlightEnabled) {
+            return pipeline.call();
+        }
+        return inFlightDetections.execute(flightKey(key, options), singleFlightTimeoutMs, pipeline);
+    }
+
+    private CompletableFuture<DetectionResult> coalesceAsync(String key, DetectionOptions options,
+                                                             Supplier<CompletableFuture<DetectionResult>> pipeline) {
+        if (!singleFlightEnabled) {
+            return pipeline.get();
+        }
+        return inFlightDetections.executeAsync(flightKey(key, options), singleFlightTimeoutMs, pipeline);
+    }
+
+    // A request bypassing the cache must not join one that may be answered from it
+    private static String flightKey(String key, DetectionOptions options) {
+        return options.isBypassCache() ? key + ":fresh" : key;
+    }
+
+    public Map<String, Object> getCoalescingStats() {
+        Map<String, Object> stats = inFlightDetections.getStatistics();
+        stats.put("enabled", singleFlightEnabled);
+        return stats;
+    }
+
+    private DetectionResult runPipeline(ImagePayload image, DetectionEngine engine, String cacheKey,
+                                        DetectionOptions options, long startTime) throws IOException {
+        // Upload the image to cloud storage in parallel with inference
+        CompletableFuture<String> upload = uploadAsync(image);
+        try {
+            List<DetectedObject> detectedObjects = detect(image, engine, cacheKey, options);
             
-            // Set image bytes as request body
-            HttpEntity entity = new ByteArrayEntity(imageBytes, ContentType.IMAGE_JPEG);
-            request.setEntity(entity);
+            String imageUrl = awaitUpload(upload);
             
-            // Execute request
-            try (CloseableHttpResponse response = client.execute(request)) {
-                HttpEntity responseEntity = response.getEntity();
-                String responseString = EntityUtils.toString(responseEntity);
-                
-                // Parse response
-                return parseHuggingFaceResponse(responseString);
+            return DetectionResult.builder()
+                    .imageUrl(imageUrl)
+                    .detectedObjects(detectedObjects)
+                    .processingTimeMs(System.currentTimeMillis() - startTime)
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            cancelUpload(upload);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<DetectionResult> runPipelineAsync(ImagePayload image, DetectionEngine engine, String cacheKey,
+                                                                DetectionOptions options, long startTime) {
+        CompletableFuture<String> upload = storeAsync(image);
+        CompletableFuture<List<DetectedObject>> detections;
+        try {
+            detections = detectAsync(image, engine, cacheKey, options);
+        } catch (RuntimeException e) {
+            detections = CompletableFuture.failedFuture(e);
+        }
+        // A failed detection has no use for the stored image, so its upload is aborted
+        detections.whenComplete((detectedObjects, error) -> {
+            if (error != null) {
+                cancelUpload(upload);
+            }
+        });
+        return detections.thenCompose(detectedObjects -> awaitUploadAsync(upload)
+                .thenApply(imageUrl -> DetectionResult.builder()
+                        .imageUrl(imageUrl)
+                        .detectedObjects(detectedObjects)
+                        .processingTimeMs(System.currentTimeMillis() - startTime)
+                        .build()));
+    }
+
+    private CompletableFuture<List<DetectedObject>> detectAsync(ImagePayload image, DetectionEngine engine, String cacheKey,
+                                                                DetectionOptions options) {
+        if (!detectionResultCache.isEnabled()) {
+            return inferAsync(image, engine, options);
+        }
+
+        String key = cacheKey != null ? cacheKey : detectionResultCache.keyFor(image, modelKey(engine, options));
+        if (!options.isBypassCache()) {
+            List<DetectedObject> cached = detectionResultCache.get(key);
+            if (cached != null) {
+                log.debug("Detection cache hit for {}", key);
+                return CompletableFuture.completedFuture(cached);
             }
         }
+        return inferAsync(image, engine, options).thenApply(detectedObjects -> {
+            detectionResultCache.put(key, detectedObjects);
+            return detectedObjects;
+        });
     }
 
-    private List<DetectedObject> parseHuggingFaceResponse(String responseString) throws JsonProcessingException {
-        List<DetectedObject> detectedObjects = new ArrayList<>();
-        
-        JsonNode rootNode = objectMapper.readTree(responseString);
-        
-        System.out.println("Hugging Face response: " + responseString);
+    private CompletableFuture<List<DetectedObject>> inferAsync(ImagePayload image, DetectionEngine engine,
+                                                              DetectionOptions options) {
+        ImagePreprocessor.PreparedImage prepared = imagePreprocessor.prepare(image, engine, options);
+        return engine.detectAsync(prepared.getImage()).thenApply(prepared::toOriginal);
+    }
+
+    private List<DetectedObject> detect(ImagePayload image, DetectionEngine engine, String cacheKey,
+                                        DetectionOptions options) throws IOException {
+        if (!detectionResultCache.isEnabled()) {
+            return infer(image, engine, options);
+        }
         
-        if (rootNode.isArray()) {
-            for (JsonNode objectNode : rootNode) {
-                String label = objectNode.path("label").asText();
-                float score = objectNode.path("score").floatValue();
-                
-                JsonNode boxNode = objectNode.path("box");
-                BoundingBox box = BoundingBox.builder()
-                        .xMin(boxNode.path("xmin").floatValue())
-                        .yMin(boxNode.path("ymin").floatValue())
-                        .xMax(boxNode.path("xmax").floatValue())
-                        .yMax(boxNode.path("ymax").floatValue())
-                        .build();
-                
-                DetectedObject detectedObject = DetectedObject.builder()
-                        .label(label)
-                        .confidence(score)
-                        .box(box)
-                        .build();
-                
-                detectedObjects.add(detectedObject);
+        // Identical bytes against the same model always produce the same detections
+        if (cacheKey == null) {
+            cacheKey = detectionResultCache.keyFor(image, modelKey(engine, options));
+        }
+        if (!options.isBypassCache()) {
+            List<DetectedObject> cached = detectionResultCache.get(cacheKey);
+            if (cached != null) {
+                log.debug("Detection cache hit for {}", cacheKey);
+                return cached;
             }
         }
         
+        List<DetectedObject> detectedObjects = infer(image, engine, options);
+        detectionResultCache.put(cacheKey, detectedObjects);
         return detectedObjects;
     }
 
-    private byte[] downloadImage(String imageUrl) throws IOException {
-        try (InputStream in = new URL(imageUrl).openStream()) {
-            return in.readAllBytes();
+    // Engines may see a downscaled copy; the boxes returned are always in original-image coordinates
+    private List<DetectedObject> infer(ImagePayload image, DetectionEngine engine, DetectionOptions options) throws IOException {
+        ImagePreprocessor.PreparedImage prepared = imagePreprocessor.prepare(image, engine, options);
+        return prepared.toOriginal(engine.detect(prepared.getImage()));
+    }
+
+    private String modelKey(DetectionEngine engine, DetectionOptions options) {
+        return engine.getModelId() + imagePreprocessor.cacheKeySuffix(engine, options);
+    }
+
+    private CompletableFuture<String> uploadAsync(ImagePayload image) {
+        CompletableFuture<String> upload = new CompletableFuture<>();
+        // The upload may outlive the request until its abort lands, so it holds its own reference to pooled bytes.
+        // Once accepted the task always runs, even when cancelled while queued, so that reference is always released.
+        ImagePayload retained = image.retain();
+        try {
+            pipelineExecutor.execute(() -> {
+                try {
+                    if (!upload.isDone()) {
+                        upload.complete(imageStorageService.uploadImage(retained, upload));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    upload.completeExceptionally(e);
+                } finally {
+                    retained.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            retained.release();
+            upload.completeExceptionally(e);
+        }
+        return upload;
+    }
+
+    // Holds its own reference to pooled bytes until the exchange is over, which may be after the upload was cancelled
+    private CompletableFuture<String> storeAsync(ImagePayload image) {
+        CompletableFuture<String> upload = new CompletableFuture<>();
+        ImagePayload retained = image.retain();
+        CompletableFuture<String> sent;
+        try {
+            sent = imageStorageService.uploadImageAsync(retained, upload);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((url, error) -> {
+            retained.release();
+            if (error == null) {
+                upload.complete(url);
+            } else {
+                upload.completeExceptionally(Futures.unwrap(error));
+            }
+        });
+        return upload;
+    }
+
+    private CompletableFuture<String> awaitUploadAsync(CompletableFuture<String> upload) {
+        return upload.copy().orTimeout(storageTimeoutMs, TimeUnit.MILLISECONDS).handle((imageUrl, error) -> {
+            if (error == null) {
+                return imageUrl;
+            }
+            // An upload that took too long would otherwise still land, unreferenced, in storage
+            cancelUpload(upload);
+            Throwable cause = Futures.unwrap(error);
+            if (requireStorage) {
+                throw Futures.wrap(new IOException("Image storage failed: " + cause.getMessage(), cause));
+            }
+            log.warn("Image storage failed, returning detections without image URL: {}", cause.toString());
+            return null;
+        });
+    }
+
+    private String awaitUpload(CompletableFuture<String> upload) throws IOException {
+        try {
+            return upload.get(storageTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            // An upload that took too long would otherwise still land, unreferenced, in storage
+            cancelUpload(upload);
+            if (requireStorage) {
+                throw new IOException("Image storage failed: " + cause.getMessage(), cause);
+            }
+            log.warn("Image storage failed, returning detections without image URL: {}", cause.toString());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for image storage", e);
+        }
+    }
+
+    private void cancelUpload(CompletableFuture<String> upload) {
+        // Skips an upload that is still queued and aborts one already on the wire
+        if (upload != null) {
+            upload.cancel(false);
         }
     }
+
+    public Map<String, Object> getInferencePoolStats() {
+        return detectionEngines.resolve(HuggingFaceDetectionEngine.NAME).getStatistics();
+    }
+
+    public Map<String, Object> getEngineStats() {
+        return detectionEngines.getStatistics();
+    }
 }
\ No newline at end of file
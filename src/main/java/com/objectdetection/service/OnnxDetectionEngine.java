@@ -0,0 +1,378 @@
+package com.objectdetection.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process CPU inference with ONNX Runtime, for DETR-style models exported with a
+ * {@code pixel_values [1,3,H,W]} input and {@code logits [1,Q,C+1]} / {@code pred_boxes [1,Q,4]} outputs
+ * (the layout of facebook/detr-resnet-* exported through Optimum). Post-processing matches the
+ * Hugging Face object-detection pipeline, so both engines return comparable detections.
+ * <p>
+ * Sessions are pooled: each one runs a single image at a time with its own intra-op threads,
+ * so {@code session-pool-size x intra-op-threads} should not exceed the cores given to inference.
+ */
+@Component
+@ConditionalOnProperty(name = "detection.engine.onnx.enabled", havingValue = "true")
+@Slf4j
+public class OnnxDetectionEngine implements DetectionEngine {
+
+    public static final String NAME = "onnx";
+
+    // ImageNet normalisation used by DETR's image processor
+    private static final float[] MEAN = {0.485f, 0.456f, 0.406f};
+    private static final float[] STD = {0.229f, 0.224f, 0.225f};
+
+    private final LatencyStatistics latencyStatistics;
+    private final ResourceLoader resourceLoader;
+    private final String modelPath;
+    private final String labelsPath;
+    private final int sessionPoolSize;
+    private final int intraOpThreads;
+    private final int inputWidth;
+    private final int inputHeight;
+    private final float scoreThreshold;
+    private final long acquireTimeoutMs;
+    private final boolean warmUp;
+    private int maxBatchSize;
+
+    private final AtomicLong inferences = new AtomicLong();
+
+    private OrtEnvironment environment;
+    private BlockingQueue<OrtSession> sessions;
+    private String inputName;
+    private List<String> labels;
+    private String modelId;
+    private long warmUpMs;
+
+    public OnnxDetectionEngine(LatencyStatistics latencyStatistics,
+                               ResourceLoader resourceLoader,
+                               @Value("${detection.engine.onnx.model-path}") String modelPath,
+                               @Value("${detection.engine.onnx.labels-path:}") String labelsPath,
+                               @Value("${detection.engine.onnx.session-pool-size:2}") int sessionPoolSize,
+                               @Value("${detection.engine.onnx.intra-op-threads:2}") int intraOpThreads,
+                               @Value("${detection.engine.onnx.input-width:800}") int inputWidth,
+                               @Value("${detection.engine.onnx.input-height:800}") int inputHeight,
+                               @Value("${detection.engine.onnx.score-threshold:0.5}") float scoreThreshold,
+                               @Value("${detection.engine.onnx.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+                               @Value("${detection.engine.onnx.warm-up:true}") boolean warmUp,
+                               @Value("${detection.engine.onnx.max-batch-size:1}") int maxBatchSize) {
+        this.latencyStatistics = latencyStatistics;
+        this.resourceLoader = resourceLoader;
+        this.modelPath = modelPath;
+        this.labelsPath = labelsPath;
+        this.sessionPoolSize = sessionPoolSize;
+        this.intraOpThreads = intraOpThreads;
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.scoreThreshold = scoreThreshold;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.warmUp = warmUp;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        byte[] model = read(resourceLoader.getResource(modelPath));
+        modelId = NAME + ":" + sha256(model);
+        labels = labelsPath.isEmpty() ? Collections.emptyList() : readLabels(resourceLoader.getResource(labelsPath));
+
+        environment = OrtEnvironment.getEnvironment();
+        sessions = new ArrayBlockingQueue<>(sessionPoolSize);
+        try {
+            for (int i = 0; i < sessionPoolSize; i++) {
+                try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                    options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+                    options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+                    options.setIntraOpNumThreads(intraOpThreads);
+                    options.setInterOpNumThreads(1);
+                    sessions.add(environment.createSession(model, options));
+                }
+            }
+            inputName = sessions.peek().getInputNames().iterator().next();
+
+            // Batching needs a dynamic (or large enough) leading dimension on the input
+            long[] inputShape = ((TensorInfo) sessions.peek().getInputInfo().get(inputName).getInfo()).getShape();
+            if (maxBatchSize > 1 && inputShape[0] > 0 && inputShape[0] < maxBatchSize) {
+                log.warn("ONNX model input {} has fixed batch dimension {}; max-batch-size {} reduced to it",
+                        inputName, inputShape[0], maxBatchSize);
+                maxBatchSize = (int) inputShape[0];
+            }
+
+            // The first run of a session allocates its buffers; pay that (at full batch size) before serving traffic
+            if (warmUp) {
+                long start = System.nanoTime();
+                for (OrtSession session : sessions) {
+                    try (OnnxTensor input = OnnxTensor.createTensor(environment,
+                            FloatBuffer.allocate(maxBatchSize * 3 * inputWidth * inputHeight),
+                            new long[]{maxBatchSize, 3, inputHeight, inputWidth})) {
+                        // Only the allocation matters; the output is freed at once
+                        session.run(Collections.singletonMap(inputName, input)).close();
+                    }
+                }
+                warmUpMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        } catch (OrtException e) {
+            close();
+            throw new IOException("Could not load ONNX model " + modelPath + ": " + e.getMessage(), e);
+        }
+
+        log.info("ONNX engine ready: model {} ({}), {} sessions x {} intra-op threads, input {}x{}, max batch {}, warm-up {}ms",
+                modelPath, modelId, sessionPoolSize, intraOpThreads, inputWidth, inputHeight, maxBatchSize, warmUpMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sessions == null) return;
+        for (OrtSession session : sessions) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.warn("Error closing ONNX session: {}", e.getMessage());
+            }
+        }
+        sessions.clear();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getModelId() {
+        return modelId;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public List<DetectedObject> detect(ImagePayload image) throws IOException {
+        return detectBatch(Collections.singletonList(image)).get(0);
+    }
+
+    @Override
+    public List<List<DetectedObject>> detectBatch(List<ImagePayload> images) throws IOException {
+        int batchSize = images.size();
+        int plane = inputWidth * inputHeight;
+        FloatBuffer pixels = FloatBuffer.allocate(batchSize * 3 * plane);
+        int[] widths = new int[batchSize];
+        int[] heights = new int[batchSize];
+        for (int b = 0; b < batchSize; b++) {
+            ImagePayload image = images.get(b);
+            BufferedImage decoded = ImageIO.read(image.openStream());
+            if (decoded == null) {
+                throw new IOException("Unsupported image format for local inference: " + image.getContentType());
+            }
+            widths[b] = decoded.getWidth();
+            heights[b] = decoded.getHeight();
+            writePixelValues(decoded, pixels);
+        }
+        pixels.flip();
+
+        OrtSession session = acquire();
+        long inferenceStart = System.nanoTime();
+        try (OnnxTensor input = OnnxTensor.createTensor(environment, pixels, new long[]{batchSize, 3, inputHeight, inputWidth});
+             OrtSession.Result result = session.run(Collections.singletonMap(inputName, input))) {
+            latencyStatistics.record(LatencyStatistics.Stage.INFERENCE, inferenceStart);
+            inferences.addAndGet(batchSize);
+
+            long parseStart = System.nanoTime();
+            try {
+                OnnxTensor logits = tensor(result, "logits");
+                long[] shape = logits.getInfo().getShape();
+                FloatBuffer logitValues = logits.getFloatBuffer();
+                FloatBuffer boxValues = tensor(result, "pred_boxes").getFloatBuffer();
+
+                List<List<DetectedObject>> results = new ArrayList<>(batchSize);
+                for (int b = 0; b < batchSize; b++) {
+                    results.add(postProcess(logitValues, boxValues, b, (int) shape[1], (int) shape[2], widths[b], heights[b]));
+                }
+                return results;
+            } finally {
+                latencyStatistics.record(LatencyStatistics.Stage.PARSE, parseStart);
+            }
+        } catch (OrtException e) {
+            throw new IOException("ONNX inference failed: " + e.getMessage(), e);
+        } finally {
+            sessions.offer(session);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("modelPath", modelPath);
+        stats.put("modelId", modelId);
+        stats.put("sessions", sessionPoolSize);
+        stats.put("availableSessions", sessions.size());
+        stats.put("intraOpThreads", intraOpThreads);
+        stats.put("inputWidth", inputWidth);
+        stats.put("inputHeight", inputHeight);
+        stats.put("scoreThreshold", scoreThreshold);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("inferences", inferences.get());
+        stats.put("warmUpMs", warmUpMs);
+        return stats;
+    }
+
+    private OrtSession acquire() throws IOException {
+        try {
+            OrtSession session = sessions.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            if (session == null) {
+                throw new IOException("No ONNX session available within " + acquireTimeoutMs + "ms");
+            }
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an ONNX session", e);
+        }
+    }
+
+    // Resize to the model input and append the pixels as normalised CHW floats
+    private void writePixelValues(BufferedImage source, FloatBuffer target) {
+        BufferedImage resized = new BufferedImage(inputWidth, inputHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, inputWidth, inputHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        int plane = inputWidth * inputHeight;
+        int[] rgb = resized.getRGB(0, 0, inputWidth, inputHeight, null, 0, inputWidth);
+        float[] chw = new float[3 * plane];
+        for (int i = 0; i < plane; i++) {
+            int pixel = rgb[i];
+            chw[i] = (((pixel >> 16) & 0xFF) / 255f - MEAN[0]) / STD[0];
+            chw[plane + i] = (((pixel >> 8) & 0xFF) / 255f - MEAN[1]) / STD[1];
+            chw[2 * plane + i] = ((pixel & 0xFF) / 255f - MEAN[2]) / STD[2];
+        }
+        target.put(chw);
+    }
+
+    /**
+     * Softmax each query over its classes, drop the trailing "no object" class, keep queries whose best
+     * class scores above the threshold, and scale the normalised (cx, cy, w, h) boxes to the original image.
+     */
+    private List<DetectedObject> postProcess(FloatBuffer logitValues, FloatBuffer boxValues, int batchIndex,
+                                             int queries, int classes, int imageWidth, int imageHeight) {
+        List<DetectedObject> detectedObjects = new ArrayList<>();
+        float[] row = new float[classes];
+        for (int q = 0; q < queries; q++) {
+            int query = batchIndex * queries + q;
+            logitValues.position(query * classes);
+            logitValues.get(row);
+
+            float max = Float.NEGATIVE_INFINITY;
+            for (float value : row) max = Math.max(max, value);
+            double sum = 0;
+            for (float value : row) sum += Math.exp(value - max);
+
+            int best = 0;
+            for (int c = 1; c < classes - 1; c++) {
+                if (row[c] > row[best]) best = c;
+            }
+            float score = (float) (Math.exp(row[best] - max) / sum);
+
+            if (score <= scoreThreshold) continue;
+
+            int offset = query * 4;
+            float cx = boxValues.get(offset);
+            float cy = boxValues.get(offset + 1);
+            float w = boxValues.get(offset + 2);
+            float h = boxValues.get(offset + 3);
+            detectedObjects.add(DetectedObject.builder()
+                    .label(labelOf(best))
+                    .confidence(score)
+                    .box(BoundingBox.builder()
+                            .xMin((cx - w / 2) * imageWidth)
+                            .yMin((cy - h / 2) * imageHeight)
+                            .xMax((cx + w / 2) * imageWidth)
+                            .yMax((cy + h / 2) * imageHeight)
+                            .build())
+                    .build());
+        }
+        return detectedObjects;
+    }
+
+    private String labelOf(int classIndex) {
+        return classIndex < labels.size() ? labels.get(classIndex) : "LABEL_" + classIndex;
+    }
+
+    private static OnnxTensor tensor(OrtSession.Result result, String name) throws OrtException {
+        OnnxValue value = result.get(name)
+                .orElseThrow(() -> new OrtException("Model has no '" + name + "' output"));
+        return (OnnxTensor) value;
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+    // One label per line, in class-index order
+    private static List<String> readLabels(Resource resource) throws IOException {
+        List<String> labels = new ArrayList<>();
+        for (String line : new String(read(resource), StandardCharsets.UTF_8).split("\\r?\\n")) {
+            labels.add(line.trim());
+        }
+        while (!labels.isEmpty() && labels.get(labels.size() - 1).isEmpty()) {
+            labels.remove(labels.size() - 1);
+        }
+        return labels;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
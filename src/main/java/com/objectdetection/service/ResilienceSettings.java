@@ -0,0 +1,82 @@
+package com.objectdetection.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@code detection.resilience.*} settings for the bulkhead, circuit breaker and hedging applied by
+ * {@link ResilientDetectionEngine}.
+ */
+@Component
+@Getter
+public class ResilienceSettings {
+
+    @Value("${detection.resilience.enabled:true}")
+    private boolean enabled;
+
+    // Engines wrapped by the resilience layer; in-process engines already bound themselves with a session pool
+    @Value("${detection.resilience.engines:huggingface}")
+    private String[] engines;
+
+    // Upper bound a request thread waits for one inference, hedges included
+    @Value("${detection.resilience.call-timeout-ms:30000}")
+    private long callTimeoutMs;
+
+    @Value("${detection.resilience.bulkhead.max-concurrent:20}")
+    private int maxConcurrentCalls;
+
+    @Value("${detection.resilience.bulkhead.max-wait-ms:500}")
+    private long bulkheadMaxWaitMs;
+
+    @Value("${detection.resilience.breaker.window-size:50}")
+    private int breakerWindowSize;
+
+    @Value("${detection.resilience.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${detection.resilience.breaker.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    @Value("${detection.resilience.breaker.slow-call-rate-threshold:80}")
+    private double slowCallRateThreshold;
+
+    @Value("${detection.resilience.breaker.slow-call-ms:10000}")
+    private long slowCallMs;
+
+    @Value("${detection.resilience.breaker.open-ms:30000}")
+    private long openMs;
+
+    @Value("${detection.resilience.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${detection.resilience.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    // The hedge goes out after the recent p95 latency, but never sooner than this
+    @Value("${detection.resilience.hedging.min-delay-ms:200}")
+    private long hedgeMinDelayMs;
+
+    // Successful calls needed in the latency window before hedging starts
+    @Value("${detection.resilience.hedging.min-samples:20}")
+    private int hedgeMinSamples;
+
+    // Hedges as a share of calls, so a slow backend is not sent extra load across the board
+    @Value("${detection.resilience.hedging.max-percent:10}")
+    private double hedgeMaxPercent;
+
+    public boolean appliesTo(String engineName) {
+        if (!enabled || engines == null) {
+            return false;
+        }
+        Set<String> names = Arrays.stream(engines)
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        return names.contains(engineName);
+    }
+}
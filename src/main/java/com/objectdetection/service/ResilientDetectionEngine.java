@@ -0,0 +1,489 @@
+package com.objectdetection.service;
+
+import com.objectdetection.exception.InferenceException;
+import com.objectdetection.exception.InferenceRejectedException;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import com.objectdetection.util.CircuitBreaker;
+import com.objectdetection.util.Futures;
+import com.objectdetection.util.LatencyHistogram;
+import com.objectdetection.util.WindowedLatencyHistogram;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a remote engine in a concurrency bulkhead, a circuit breaker and a call timeout, so a slow or
+ * failing backend costs callers a fast error instead of a parked request thread.
+ * <p>
+ * Each attempt runs on this engine's own threads while the caller waits on the result. With hedging on,
+ * a call that is still running after the recent p95 latency gets a second, identical attempt and the
+ * first answer wins. Hedges need a free bulkhead permit, a closed breaker and room in the hedge budget.
+ * <p>
+ * {@link #detectAsync} applies the same breaker, bulkhead and timeout around the delegate's non-blocking call,
+ * without threads of its own: a full bulkhead rejects at once rather than waiting, and calls are not hedged.
+ */
+@Slf4j
+class ResilientDetectionEngine implements DetectionEngine, AutoCloseable {
+
+    private static final int LATENCY_WINDOW_MINUTES = 5;
+
+    // The hedge delay is a p95 over several minutes; recomputing it once a second is plenty
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final DetectionEngine delegate;
+    private final ResilienceSettings settings;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final ThreadPoolExecutor callExecutor;
+    private final WindowedLatencyHistogram latencies =
+            new WindowedLatencyHistogram(TimeUnit.MINUTES.toMillis(1), LATENCY_WINDOW_MINUTES);
+
+    private volatile long hedgeDelayNanos;
+    private volatile long hedgeDelayComputedNanos = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong circuitRejections = new AtomicLong();
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+
+    private final Counter circuitRejectedCounter;
+    private final Counter bulkheadRejectedCounter;
+    private final Counter timeoutCounter;
+    private final Counter hedgesSentCounter;
+    private final Counter hedgesWonCounter;
+
+    ResilientDetectionEngine(DetectionEngine delegate, ResilienceSettings settings, MeterRegistry meterRegistry,
+                             ApplicationEventPublisher eventPublisher) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.bulkhead = new Semaphore(settings.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(settings.getBreakerWindowSize(), settings.getBreakerMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getSlowCallRateThreshold(),
+                settings.getSlowCallMs(), settings.getOpenMs(), TimeUnit.MILLISECONDS, settings.getHalfOpenCalls(),
+                (from, to, reason) -> {
+                    log.warn("{} circuit breaker {} -> {}: {}", delegate.getName(), from, to, reason);
+                    Counter.builder("inference.circuit.transitions")
+                            .description("Circuit breaker state changes, by target state")
+                            .tag("engine", delegate.getName())
+                            .tag("to", to.name().toLowerCase(Locale.ROOT))
+                            .register(meterRegistry)
+                            .increment();
+                    eventPublisher.publishEvent(new InferenceCircuitEvent(delegate.getName(), from, to, reason));
+                });
+
+        // Bulkhead permits bound the attempts in flight, so the queue never holds more than that either
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callExecutor = new ThreadPoolExecutor(
+                settings.getMaxConcurrentCalls(), settings.getMaxConcurrentCalls(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, delegate.getName() + "-inference-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        callExecutor.allowCoreThreadTimeOut(true);
+
+        String engine = delegate.getName();
+        Gauge.builder("inference.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("engine", engine)
+                .register(meterRegistry);
+        Gauge.builder("inference.bulkhead.active", bulkhead, permits -> settings.getMaxConcurrentCalls() - permits.availablePermits())
+                .description("Inference attempts holding a bulkhead permit")
+                .tag("engine", engine)
+                .register(meterRegistry);
+        Gauge.builder("inference.bulkhead.max", settings, ResilienceSettings::getMaxConcurrentCalls)
+                .tag("engine", engine)
+                .register(meterRegistry);
+        this.circuitRejectedCounter = rejectionCounter(meterRegistry, engine, "circuit_open");
+        this.bulkheadRejectedCounter = rejectionCounter(meterRegistry, engine, "bulkhead_full");
+        this.timeoutCounter = Counter.builder("inference.calls.timeouts")
+                .description("Inference calls abandoned after detection.resilience.call-timeout-ms")
+                .tag("engine", engine)
+                .register(meterRegistry);
+        this.hedgesSentCounter = hedgeCounter(meterRegistry, engine, "sent");
+        this.hedgesWonCounter = hedgeCounter(meterRegistry, engine, "won");
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModelId() {
+        return delegate.getModelId();
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return delegate.getMaxBatchSize();
+    }
+
+    @Override
+    public List<DetectedObject> detect(ImagePayload image) throws IOException {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitRejections.incrementAndGet();
+            circuitRejectedCounter.increment();
+            throw new InferenceRejectedException(getName() + " inference is unavailable (circuit breaker open)",
+                    Math.max(circuitBreaker.getRemainingOpenMillis(), 1000));
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.releasePermission();
+            bulkheadRejections.incrementAndGet();
+            bulkheadRejectedCounter.increment();
+            throw new InferenceRejectedException("Too many concurrent " + getName() + " inference calls",
+                    Math.max(settings.getBulkheadMaxWaitMs(), 1000));
+        }
+        calls.incrementAndGet();
+
+        Call call = new Call(image);
+        call.launch(false);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.getCallTimeoutMs());
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            long hedgeDelay = currentHedgeDelayNanos();
+            if (hedgeDelay > 0 && hedgeDelay < timeoutNanos) {
+                try {
+                    return call.result.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    maybeHedge(call);
+                }
+            }
+            return call.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            timeoutCounter.increment();
+            call.abandon(true);
+            throw new IOException(getName() + " inference timed out after " + settings.getCallTimeoutMs() + "ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Inference failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.abandon(false);
+            throw new IOException("Interrupted while waiting for " + getName() + " inference", e);
+        } finally {
+            // The losing attempt of a hedged pair is no longer needed
+            call.abandon(false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<DetectedObject>> detectAsync(ImagePayload image) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitRejections.incrementAndGet();
+            circuitRejectedCounter.increment();
+            return CompletableFuture.failedFuture(new InferenceRejectedException(
+                    getName() + " inference is unavailable (circuit breaker open)",
+                    Math.max(circuitBreaker.getRemainingOpenMillis(), 1000)));
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releasePermission();
+            bulkheadRejections.incrementAndGet();
+            bulkheadRejectedCounter.increment();
+            return CompletableFuture.failedFuture(new InferenceRejectedException(
+                    "Too many concurrent " + getName() + " inference calls", Math.max(settings.getBulkheadMaxWaitMs(), 1000)));
+        }
+        calls.incrementAndGet();
+
+        // The permit and the image reference are held until the delegate's call really ends, even after a timeout
+        CompletableFuture<List<DetectedObject>> result = new CompletableFuture<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        long startNanos = System.nanoTime();
+        image.retain();
+        CompletableFuture<List<DetectedObject>> attempt;
+        try {
+            attempt = delegate.detectAsync(image);
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((objects, error) -> {
+            image.release();
+            bulkhead.release();
+            long elapsed = System.nanoTime() - startNanos;
+            if (error == null) {
+                latencies.recordNanos(System.currentTimeMillis(), elapsed);
+                if (settled.compareAndSet(false, true)) {
+                    circuitBreaker.onSuccess(elapsed);
+                }
+                result.complete(objects);
+                return;
+            }
+            Throwable cause = Futures.unwrap(error);
+            if (settled.compareAndSet(false, true)) {
+                if (!(cause instanceof Exception) || isBackendFailure((Exception) cause)) {
+                    circuitBreaker.onFailure(elapsed);
+                } else {
+                    circuitBreaker.onSuccess(elapsed);
+                }
+            }
+            result.completeExceptionally(cause);
+        });
+        if (!result.isDone()) {
+            CompletableFuture.delayedExecutor(settings.getCallTimeoutMs(), TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.completeExceptionally(new IOException(
+                        getName() + " inference timed out after " + settings.getCallTimeoutMs() + "ms"))) {
+                    timeouts.incrementAndGet();
+                    timeoutCounter.increment();
+                    if (settled.compareAndSet(false, true)) {
+                        circuitBreaker.onFailure(System.nanoTime() - startNanos);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = delegate.getStatistics();
+
+        Map<String, Object> bulkheadStats = new HashMap<>();
+        bulkheadStats.put("maxConcurrent", settings.getMaxConcurrentCalls());
+        bulkheadStats.put("active", settings.getMaxConcurrentCalls() - bulkhead.availablePermits());
+        bulkheadStats.put("waiting", bulkhead.getQueueLength());
+        bulkheadStats.put("rejected", bulkheadRejections.get());
+
+        Map<String, Object> hedgingStats = new HashMap<>();
+        hedgingStats.put("enabled", settings.isHedgingEnabled());
+        hedgingStats.put("delayMs", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+        hedgingStats.put("sent", hedgesSent.get());
+        hedgingStats.put("won", hedgesWon.get());
+
+        Map<String, Object> circuitStats = circuitBreaker.getStatistics();
+        circuitStats.put("rejected", circuitRejections.get());
+
+        Map<String, Object> resilience = new HashMap<>();
+        resilience.put("calls", calls.get());
+        resilience.put("timeouts", timeouts.get());
+        resilience.put("callTimeoutMs", settings.getCallTimeoutMs());
+        resilience.put("circuitBreaker", circuitStats);
+        resilience.put("bulkhead", bulkheadStats);
+        resilience.put("hedging", hedgingStats);
+        stats.put("resilience", resilience);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        callExecutor.shutdownNow();
+    }
+
+    private boolean acquireBulkhead() throws IOException {
+        try {
+            return bulkhead.tryAcquire(settings.getBulkheadMaxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.releasePermission();
+            throw new IOException("Interrupted while waiting for an inference slot", e);
+        }
+    }
+
+    private void maybeHedge(Call call) {
+        // Only while healthy, within budget, and never by waiting for a permit
+        if (call.result.isDone()
+                || circuitBreaker.getState() != CircuitBreaker.State.CLOSED
+                || hedgesSent.get() >= calls.get() * settings.getHedgeMaxPercent() / 100.0
+                || !bulkhead.tryAcquire()) {
+            return;
+        }
+        hedgesSent.incrementAndGet();
+        hedgesSentCounter.increment();
+        call.launch(true);
+    }
+
+    // Zero when hedging is off or there are too few samples to trust the p95
+    private long currentHedgeDelayNanos() {
+        if (!settings.isHedgingEnabled()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedNanos >= HEDGE_DELAY_REFRESH_NANOS) {
+            hedgeDelayComputedNanos = now;
+            LatencyHistogram recent = latencies.snapshot(System.currentTimeMillis(), LATENCY_WINDOW_MINUTES);
+            hedgeDelayNanos = recent.getCount() < settings.getHedgeMinSamples() ? 0 : Math.max(
+                    TimeUnit.MICROSECONDS.toNanos(recent.getPercentileMicros(95)),
+                    TimeUnit.MILLISECONDS.toNanos(settings.getHedgeMinDelayMs()));
+        }
+        return hedgeDelayNanos;
+    }
+
+    // Client errors such as an undecodable image say nothing about the backend's health
+    private static boolean isBackendFailure(Exception e) {
+        if (e instanceof InferenceException) {
+            int statusCode = ((InferenceException) e).getStatusCode();
+            return statusCode >= 500 || statusCode == 429;
+        }
+        return true;
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String engine, String reason) {
+        return Counter.builder("inference.calls.rejected")
+                .description("Inference calls refused before reaching the backend")
+                .tag("engine", engine)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String engine, String outcome) {
+        return Counter.builder("inference.hedges")
+                .description("Hedged inference attempts sent, and those that answered first")
+                .tag("engine", engine)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * One caller's inference: the primary attempt plus at most one hedge, completing with the first success
+     * or, once every attempt has failed, with the last failure.
+     */
+    private final class Call {
+        final ImagePayload image;
+        final CompletableFuture<List<DetectedObject>> result = new CompletableFuture<>();
+        final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        Call(ImagePayload image) {
+            this.image = image;
+        }
+
+        // The caller already holds a bulkhead permit for this attempt; the attempt releases it. An abandoned
+        // attempt outlives detect(), so it also holds its own reference to a pooled image
+        void launch(boolean hedge) {
+            Attempt attempt = new Attempt(this, hedge);
+            outstanding.incrementAndGet();
+            attempts.add(attempt);
+            image.retain();
+            try {
+                callExecutor.execute(attempt);
+            } catch (RuntimeException e) {
+                image.release();
+                bulkhead.release();
+                attempt.fail(e, 0);
+            }
+        }
+
+        /**
+         * Stop waiting for attempts still running. On timeout they count as failures for the breaker;
+         * otherwise they are losers of a finished call and are not recorded at all.
+         */
+        void abandon(boolean timedOut) {
+            for (Attempt attempt : attempts) {
+                if (attempt.settle()) {
+                    if (timedOut) {
+                        circuitBreaker.onFailure(System.nanoTime() - attempt.startNanos);
+                    }
+                    // Only interrupts an attempt that is running; a queued one still releases its permit
+                    attempt.interrupt();
+                }
+            }
+        }
+    }
+
+    private final class Attempt implements Runnable {
+        final Call call;
+        final boolean hedge;
+        final AtomicBoolean settled = new AtomicBoolean();
+        volatile long startNanos = System.nanoTime();
+        // Guarded by this: the thread running the attempt, and whether abandon() interrupted it
+        private Thread runner;
+        private boolean interrupted;
+
+        Attempt(Call call, boolean hedge) {
+            this.call = call;
+            this.hedge = hedge;
+        }
+
+        // Exactly one of the attempt itself or the abandoning caller records its outcome
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+
+        /**
+         * Interrupts the attempt's thread only while it still runs this attempt, never a later task of the pool.
+         */
+        synchronized void interrupt() {
+            if (runner != null) {
+                interrupted = true;
+                runner.interrupt();
+            }
+        }
+
+        // After this no interrupt can reach the thread on this attempt's behalf, and one already sent is cleared
+        private synchronized void finish() {
+            runner = null;
+            if (interrupted) {
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public void run() {
+            startNanos = System.nanoTime();
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                List<DetectedObject> objects = delegate.detect(call.image);
+                long elapsed = System.nanoTime() - startNanos;
+                latencies.recordNanos(System.currentTimeMillis(), elapsed);
+                if (settle()) {
+                    circuitBreaker.onSuccess(elapsed);
+                }
+                if (call.result.complete(objects) && hedge) {
+                    hedgesWon.incrementAndGet();
+                    hedgesWonCounter.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e, System.nanoTime() - startNanos);
+            } finally {
+                finish();
+                call.image.release();
+                bulkhead.release();
+            }
+        }
+
+        void fail(Exception e, long elapsed) {
+            if (settle()) {
+                if (isBackendFailure(e)) {
+                    circuitBreaker.onFailure(elapsed);
+                } else {
+                    circuitBreaker.onSuccess(elapsed);
+                }
+            }
+            if (call.outstanding.decrementAndGet() == 0) {
+                call.result.completeExceptionally(e);
+            }
+        }
+    }
+}
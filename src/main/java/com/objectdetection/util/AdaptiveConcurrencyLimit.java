@@ -0,0 +1,93 @@
+package com.objectdetection.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight limit that adapts to latency with additive increase, multiplicative decrease (AIMD).
+ * <p>
+ * A long-term moving average of request latency is the baseline. A completion slower than
+ * {@code tolerance} times the baseline, or one that was dropped, is taken as queueing: the limit is
+ * multiplied by {@code backoffRatio}, at most once per baseline latency so one burst of slow requests
+ * backs off once. Otherwise, while at least half the limit is in use, each completion adds
+ * {@code 1 / limit}, which grows the limit by about one per limit's worth of requests.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // The baseline follows sustained latency shifts but not single slow requests
+    private static final double BASELINE_SMOOTHING = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    private double baselineNanos;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Take an in-flight slot if one is free under the current limit. Every successful call must be
+     * matched by one {@link #release}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (baselineNanos == 0) {
+                baselineNanos = latencyNanos;
+            }
+            if (dropped || latencyNanos > baselineNanos * tolerance) {
+                if (now - lastDecreaseNanos >= baselineNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_SMOOTHING;
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("limit", (int) limit);
+        statistics.put("inFlight", inFlight.get());
+        statistics.put("minLimit", minLimit);
+        statistics.put("maxLimit", maxLimit);
+        statistics.put("baselineLatencyMs", Math.round(baselineNanos / 10_000.0) / 100.0);
+        return statistics;
+    }
+}
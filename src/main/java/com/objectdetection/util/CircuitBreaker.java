@@ -0,0 +1,227 @@
+package com.objectdetection.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-based circuit breaker over the outcomes of the last {@code windowSize} calls.
+ * <p>
+ * CLOSED lets every call through. Once at least {@code minimumCalls} outcomes are in the window and
+ * the failure rate or the slow-call rate reaches its threshold, the breaker OPENs and refuses calls
+ * for {@code openDuration}. It then goes HALF_OPEN and admits {@code halfOpenCalls} trial calls: if all
+ * of them succeed quickly it CLOSEs with an empty window, any failed or slow trial OPENs it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @FunctionalInterface
+    public interface StateListener {
+        /**
+         * Called after a transition, outside the breaker's lock.
+         */
+        void onStateChange(State from, State to, String reason);
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final StateListener listener;
+
+    // Ring of the most recent outcomes in CLOSED state, as FAILED/SLOW bit flags
+    private final byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+    private long openUntilNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private final AtomicLong notPermitted = new AtomicLong();
+    private final AtomicLong openings = new AtomicLong();
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallDuration, long openDuration, TimeUnit unit, int halfOpenCalls,
+                          StateListener listener) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = unit.toNanos(slowCallDuration);
+        this.openNanos = unit.toNanos(openDuration);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.listener = listener;
+        this.outcomes = new byte[this.windowSize];
+    }
+
+    /**
+     * Whether a call may proceed now. A caller that was permitted but then did not make the call must
+     * hand the permission back with {@link #releasePermission()}.
+     */
+    public boolean tryAcquirePermission() {
+        String transition = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+                transition = moveTo(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                permitted = true;
+            } else if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+                halfOpenPermits--;
+                permitted = true;
+            } else {
+                permitted = false;
+            }
+        }
+        if (!permitted) {
+            notPermitted.incrementAndGet();
+        }
+        notify(transition, State.OPEN, State.HALF_OPEN, "open interval elapsed, admitting " + halfOpenCalls + " trial calls");
+        return permitted;
+    }
+
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    public void onFailure(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Milliseconds until an OPEN breaker admits trial calls, zero otherwise.
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openUntilNanos - System.nanoTime()));
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("state", state.name());
+        statistics.put("bufferedCalls", recorded);
+        statistics.put("failureRate", recorded > 0 ? Math.round(failures * 1000.0 / recorded) / 10.0 : 0);
+        statistics.put("slowCallRate", recorded > 0 ? Math.round(slowCalls * 1000.0 / recorded) / 10.0 : 0);
+        statistics.put("failureRateThreshold", failureRateThreshold);
+        statistics.put("slowCallRateThreshold", slowCallRateThreshold);
+        statistics.put("slowCallMs", TimeUnit.NANOSECONDS.toMillis(slowCallNanos));
+        statistics.put("notPermittedCalls", notPermitted.get());
+        statistics.put("openings", openings.get());
+        statistics.put("remainingOpenMs", getRemainingOpenMillis());
+        return statistics;
+    }
+
+    private void record(boolean failed, long durationNanos) {
+        boolean slow = durationNanos >= slowCallNanos;
+        State from;
+        State to;
+        String transition = null;
+        String reason = null;
+        synchronized (this) {
+            from = state;
+            if (state == State.HALF_OPEN) {
+                if (failed || slow) {
+                    transition = moveTo(State.OPEN);
+                    reason = failed ? "trial call failed" : "trial call took " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + "ms";
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    transition = moveTo(State.CLOSED);
+                    reason = halfOpenCalls + " trial calls succeeded";
+                }
+            } else if (state == State.CLOSED) {
+                reason = add((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+                if (reason != null) {
+                    transition = moveTo(State.OPEN);
+                }
+            }
+            // Late outcomes of calls started before the breaker opened are ignored
+            to = state;
+        }
+        notify(transition, from, to, reason);
+    }
+
+    // Returns why the breaker should open, or null
+    private String add(byte outcome) {
+        if (recorded == windowSize) {
+            byte evicted = outcomes[next];
+            if ((evicted & FAILED) != 0) failures--;
+            if ((evicted & SLOW) != 0) slowCalls--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % windowSize;
+        if ((outcome & FAILED) != 0) failures++;
+        if ((outcome & SLOW) != 0) slowCalls++;
+
+        if (recorded < minimumCalls) {
+            return null;
+        }
+        double failureRate = failures * 100.0 / recorded;
+        double slowCallRate = slowCalls * 100.0 / recorded;
+        if (failureRate >= failureRateThreshold) {
+            return String.format("failure rate %.1f%% over %d calls", failureRate, recorded);
+        }
+        if (slowCallRate >= slowCallRateThreshold) {
+            return String.format("slow-call rate %.1f%% over %d calls", slowCallRate, recorded);
+        }
+        return null;
+    }
+
+    // Caller holds the lock; returns a non-null marker when the state actually changed
+    private String moveTo(State target) {
+        if (state == target) {
+            return null;
+        }
+        state = target;
+        switch (target) {
+            case OPEN:
+                openUntilNanos = System.nanoTime() + openNanos;
+                openings.incrementAndGet();
+                break;
+            case HALF_OPEN:
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                break;
+            case CLOSED:
+                next = 0;
+                recorded = 0;
+                failures = 0;
+                slowCalls = 0;
+                break;
+        }
+        return target.name();
+    }
+
+    private void notify(String transition, State from, State to, String reason) {
+        if (transition != null && listener != null) {
+            listener.onStateChange(from, to, reason);
+        }
+    }
+}
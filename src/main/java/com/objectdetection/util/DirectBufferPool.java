@@ -0,0 +1,132 @@
+package com.objectdetection.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of fixed-size direct {@link ByteBuffer} chunks backing {@link PooledBuffer}s.
+ * <p>
+ * Chunks are allocated lazily up to {@code maxChunks} and recycled rather than freed, so steady-state
+ * uploads allocate nothing. When every chunk is leased, a writer waits up to {@code acquireTimeoutMs}
+ * and then fails instead of growing the pool. A buffer that becomes unreachable without being released
+ * is reported as a leak and its chunks are reclaimed.
+ */
+@Slf4j
+public class DirectBufferPool {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int chunkSize;
+    private final int maxChunks;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    public DirectBufferPool(int chunkSize, int maxChunks, long acquireTimeoutMs) {
+        this.chunkSize = Math.max(1024, chunkSize);
+        this.maxChunks = Math.max(1, maxChunks);
+        this.acquireTimeoutMs = Math.max(0, acquireTimeoutMs);
+        this.permits = new Semaphore(this.maxChunks);
+    }
+
+    /**
+     * An empty buffer that takes chunks from this pool as it is written. The caller owns one reference.
+     */
+    public PooledBuffer newBuffer() {
+        leases.incrementAndGet();
+        return new PooledBuffer(this);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    public int getAllocatedChunks() {
+        return allocated.get();
+    }
+
+    public int getLeasedChunks() {
+        return maxChunks - permits.availablePermits();
+    }
+
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        int leased = getLeasedChunks();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("chunkSize", chunkSize);
+        statistics.put("maxChunks", maxChunks);
+        statistics.put("maxBytes", (long) maxChunks * chunkSize);
+        statistics.put("allocatedChunks", allocated.get());
+        statistics.put("allocatedBytes", (long) allocated.get() * chunkSize);
+        statistics.put("leasedChunks", leased);
+        statistics.put("freeChunks", free.size());
+        statistics.put("utilization", Math.round(leased * 1000.0 / maxChunks) / 10.0);
+        statistics.put("buffers", leases.get());
+        statistics.put("exhausted", exhausted.get());
+        statistics.put("leaks", leaks.get());
+        return statistics;
+    }
+
+    Cleaner.Cleanable register(PooledBuffer buffer, Runnable reclaim) {
+        return CLEANER.register(buffer, reclaim);
+    }
+
+    ByteBuffer acquireChunk() throws IOException {
+        boolean permitted;
+        try {
+            permitted = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an upload buffer", e);
+        }
+        if (!permitted) {
+            exhausted.incrementAndGet();
+            throw new IOException("Upload buffer pool exhausted (" + maxChunks + " chunks of " + chunkSize + " bytes in use)");
+        }
+        ByteBuffer chunk = free.poll();
+        if (chunk == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocateDirect(chunkSize);
+        }
+        chunk.clear();
+        return chunk;
+    }
+
+    void releaseChunk(ByteBuffer chunk) {
+        free.offer(chunk);
+        permits.release();
+    }
+
+    void leaked(int chunks, long size) {
+        leaks.incrementAndGet();
+        log.warn("Pooled upload buffer of {} bytes was garbage collected without being released; reclaimed {} chunks",
+                size, chunks);
+    }
+}
@@ -0,0 +1,31 @@
+package com.objectdetection.util;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for the {@link java.util.concurrent.CompletableFuture} chains of the non-blocking request path.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * The failure a stage actually raised, without the wrappers that dependent stages add around it.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Wrap a checked failure so it can leave a stage function; dependent stages see the original through {@link #unwrap}.
+     */
+    public static CompletionException wrap(Throwable error) {
+        return error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+    }
+}
@@ -0,0 +1,229 @@
+package com.objectdetection.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects concurrent single-item calls into batches. Callers block in {@link #submit} while worker
+ * threads take queued items, run them through the batch function together and hand each caller its
+ * own result.
+ * <p>
+ * The batch size and wait adapt to load. The target size is the number of items expected to arrive
+ * while one batch runs, capped at {@code maxBatchSize}. A worker waits at most long enough for that
+ * many to arrive, and never longer than {@code maxWait} after the oldest item was queued. At low
+ * load the target is 1, so items dispatch immediately and pay no batching delay.
+ */
+public class MicroBatcher<T, R> implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchFunction<T, R> {
+        /**
+         * Process a batch and return one result per item, in the same order.
+         */
+        List<R> apply(List<T> batch) throws Exception;
+    }
+
+    // Weight of the newest sample in the arrival-gap and batch-latency averages
+    private static final double SMOOTHING = 0.2;
+
+    // Gaps longer than this mean the batcher was idle, not that traffic is slow
+    private static final long MAX_GAP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BatchFunction<T, R> batchFunction;
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    private final AtomicLong lastArrivalNanos = new AtomicLong();
+    private volatile double arrivalGapNanos = MAX_GAP_NANOS;
+    private volatile double batchLatencyNanos;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public MicroBatcher(String name, int maxBatchSize, long maxWait, TimeUnit unit, int queueCapacity,
+                        int workerCount, BatchFunction<T, R> batchFunction) {
+        this.batchFunction = batchFunction;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.workers = new Thread[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::run, name + "-batcher-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queue one item and wait for its result.
+     *
+     * @throws RejectedExecutionException when the queue is full or the batcher is closed
+     * @throws TimeoutException when no result arrives within {@code timeoutMs}
+     */
+    public R submit(T item, long timeoutMs) throws Exception {
+        Pending<T, R> pending = new Pending<>(item, System.nanoTime());
+        recordArrival(pending.enqueuedNanos);
+        if (!running || !queue.offer(pending)) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Micro-batch queue is full");
+        }
+
+        try {
+            return pending.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A worker that has not picked it up yet will skip it
+            pending.future.cancel(false);
+            throw new TimeoutException("Timed out after " + timeoutMs + "ms waiting for batched execution");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new ExecutionException(cause);
+        }
+    }
+
+    public int getTargetBatchSize() {
+        double gap = arrivalGapNanos;
+        double latency = batchLatencyNanos;
+        if (gap <= 0 || latency <= 0) return 1;
+        // Arrivals each worker can expect while it is busy with one batch
+        long expected = (long) Math.ceil(latency / (gap * workers.length));
+        return (int) Math.max(1, Math.min(maxBatchSize, expected));
+    }
+
+    public long getTargetWaitNanos() {
+        int target = getTargetBatchSize();
+        if (target <= 1) return 0;
+        return Math.min(maxWaitNanos, (long) ((target - 1) * arrivalGapNanos));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long batchCount = batches.get();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("maxBatchSize", maxBatchSize);
+        statistics.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+        statistics.put("workers", workers.length);
+        statistics.put("targetBatchSize", getTargetBatchSize());
+        statistics.put("targetWaitMicros", TimeUnit.NANOSECONDS.toMicros(getTargetWaitNanos()));
+        statistics.put("arrivalsPerSecond", Math.round(TimeUnit.SECONDS.toNanos(1) / arrivalGapNanos * 10.0) / 10.0);
+        statistics.put("queued", queue.size());
+        statistics.put("batches", batchCount);
+        statistics.put("items", items.get());
+        statistics.put("averageBatchSize", batchCount > 0 ? Math.round((double) items.get() / batchCount * 100.0) / 100.0 : 0);
+        statistics.put("rejected", rejected.get());
+        statistics.put("failedBatches", failedBatches.get());
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        Pending<T, R> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new RejectedExecutionException("Micro-batcher closed"));
+        }
+    }
+
+    private void recordArrival(long now) {
+        long previous = lastArrivalNanos.getAndSet(now);
+        if (previous != 0) {
+            long gap = Math.min(Math.max(now - previous, 1), MAX_GAP_NANOS);
+            arrivalGapNanos = arrivalGapNanos + SMOOTHING * (gap - arrivalGapNanos);
+        }
+    }
+
+    private void run() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending<T, R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                int target = getTargetBatchSize();
+                long deadline = first.enqueuedNanos + getTargetWaitNanos();
+                queue.drainTo(batch, target - batch.size());
+                while (batch.size() < target) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, target - batch.size());
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> pending.future.completeExceptionally(new RejectedExecutionException("Micro-batcher closed")));
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<Pending<T, R>> batch) {
+        // Callers that already timed out are not worth processing
+        batch.removeIf(pending -> pending.future.isDone());
+        if (batch.isEmpty()) return;
+
+        List<T> inputs = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            inputs.add(pending.item);
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<R> results = batchFunction.apply(inputs);
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Batch function returned " + results.size() + " results for " + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (Throwable t) {
+            failedBatches.incrementAndGet();
+            batch.forEach(pending -> pending.future.completeExceptionally(t));
+        } finally {
+            long latency = System.nanoTime() - start;
+            double previous = batchLatencyNanos;
+            batchLatencyNanos = previous <= 0 ? latency : previous + SMOOTHING * (latency - previous);
+            batches.incrementAndGet();
+            items.addAndGet(batch.size());
+        }
+    }
+
+    private static final class Pending<T, R> {
+        final T item;
+        final long enqueuedNanos;
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        Pending(T item, long enqueuedNanos) {
+            this.item = item;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.objectdetection.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pull parser for a {@code multipart/form-data} body that hands each part's content to a {@link Sink}
+ * as it arrives, through one small reusable buffer, so no part is ever held in memory whole.
+ * <p>
+ * Call {@link #nextPart()} to advance to the next part and read its headers, then optionally
+ * {@link #readBody(Sink)}; content that is not read is skipped by the next {@link #nextPart()}.
+ */
+public class MultipartStream {
+
+    @FunctionalInterface
+    public interface Sink {
+        void write(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    // CRLF "--" boundary: what ends every part's content
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+
+    private boolean bodyPending = true;
+    private boolean finished;
+    private Map<String, String> headers = new HashMap<>();
+
+    public MultipartStream(InputStream in, String boundary, int bufferSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(bufferSize, delimiter.length * 4)];
+        // The first boundary has no line break in front of it; supplying one makes it an ordinary delimiter
+        // and lets nextPart() skip the preamble like any unread content
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        tail = 2;
+    }
+
+    /**
+     * Advance to the next part, skipping whatever is left of the current one.
+     *
+     * @return false once the closing boundary has been reached
+     */
+    public boolean nextPart() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (bodyPending) {
+            copyBody(null);
+        }
+
+        ensure(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return false;
+        }
+        // Transport padding may follow the boundary before its line break
+        ensure(1);
+        while (buffer[head] == ' ' || buffer[head] == '\t') {
+            head++;
+            ensure(1);
+        }
+        ensure(2);
+        if (buffer[head] != '\r' || buffer[head + 1] != '\n') {
+            throw new IOException("Malformed multipart body: boundary not followed by a line break");
+        }
+        head += 2;
+
+        headers = readHeaders();
+        bodyPending = true;
+        return true;
+    }
+
+    /**
+     * A header of the current part by case-insensitive name, or null.
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public String getFieldName() {
+        return dispositionParameter("name");
+    }
+
+    /**
+     * The client's file name, or null when the part is a plain form field.
+     */
+    public String getFileName() {
+        return dispositionParameter("filename");
+    }
+
+    public String getContentType() {
+        return getHeader("content-type");
+    }
+
+    /**
+     * Stream the content of the current part into the sink.
+     *
+     * @return the number of content bytes
+     */
+    public long readBody(Sink sink) throws IOException {
+        if (!bodyPending) {
+            throw new IllegalStateException("Part content already consumed");
+        }
+        return copyBody(sink);
+    }
+
+    // Copies up to the next delimiter and consumes it; a null sink discards
+    private long copyBody(Sink sink) throws IOException {
+        long total = 0;
+        while (true) {
+            int match = indexOfDelimiter();
+            if (match >= 0) {
+                total += emit(sink, match - head);
+                head = match + delimiter.length;
+                bodyPending = false;
+                return total;
+            }
+            // The last delimiter.length - 1 bytes may be the start of a delimiter split across reads
+            int safe = tail - (delimiter.length - 1);
+            if (safe > head) {
+                total += emit(sink, safe - head);
+            }
+            fill();
+        }
+    }
+
+    private long emit(Sink sink, int length) throws IOException {
+        if (sink != null && length > 0) {
+            sink.write(buffer, head, length);
+        }
+        head += length;
+        return length;
+    }
+
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != '\r') continue;
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> parsed = new HashMap<>();
+        byte[] line = new byte[MAX_HEADER_BYTES];
+        int length = 0;
+        int total = 0;
+        String previous = null;
+        while (true) {
+            ensure(1);
+            byte b = buffer[head++];
+            if (++total > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart part headers exceed " + MAX_HEADER_BYTES + " bytes");
+            }
+            if (b != '\n') {
+                line[length++] = b;
+                continue;
+            }
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            length = 0;
+            if (end == 0) {
+                return parsed;
+            }
+            String header = new String(line, 0, end, StandardCharsets.UTF_8);
+            if ((header.charAt(0) == ' ' || header.charAt(0) == '\t') && previous != null) {
+                // A folded line continues the previous header
+                parsed.merge(previous, header.trim(), (value, more) -> value + " " + more);
+                continue;
+            }
+            int colon = header.indexOf(':');
+            if (colon > 0) {
+                previous = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                parsed.put(previous, header.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private String dispositionParameter(String name) {
+        String disposition = getHeader("content-disposition");
+        if (disposition == null) {
+            return null;
+        }
+        int i = disposition.indexOf(';');
+        while (i >= 0 && i < disposition.length()) {
+            int start = i + 1;
+            int equals = disposition.indexOf('=', start);
+            if (equals < 0) {
+                return null;
+            }
+            String key = disposition.substring(start, equals).trim();
+            String value;
+            int next;
+            int valueStart = equals + 1;
+            while (valueStart < disposition.length() && disposition.charAt(valueStart) == ' ') valueStart++;
+            if (valueStart < disposition.length() && disposition.charAt(valueStart) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                int k = valueStart + 1;
+                while (k < disposition.length() && disposition.charAt(k) != '"') {
+                    char c = disposition.charAt(k);
+                    if (c == '\\' && k + 1 < disposition.length()) {
+                        c = disposition.charAt(++k);
+                    }
+                    quoted.append(c);
+                    k++;
+                }
+                value = quoted.toString();
+                next = disposition.indexOf(';', k);
+            } else {
+                next = disposition.indexOf(';', valueStart);
+                value = disposition.substring(valueStart, next < 0 ? disposition.length() : next).trim();
+            }
+            if (key.equalsIgnoreCase(name)) {
+                return value;
+            }
+            i = next;
+        }
+        return null;
+    }
+
+    private void ensure(int count) throws IOException {
+        while (tail - head < count) {
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            throw new EOFException("Multipart body ended before its closing boundary");
+        }
+        tail += read;
+    }
+}
@@ -0,0 +1,218 @@
+package com.objectdetection.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted sequence of direct chunks from a {@link DirectBufferPool}.
+ * <p>
+ * One thread writes the content, then any number of threads may read it: every reader works on
+ * duplicates of the chunks, so reads never disturb each other. Whoever hands the buffer to work that
+ * can outlive them calls {@link #retain()} first, and every holder calls {@link #release()} when done;
+ * the chunks go back to the pool with the last release.
+ */
+public final class PooledBuffer implements Closeable {
+
+    private final DirectBufferPool pool;
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+
+    PooledBuffer(DirectBufferPool pool) {
+        this.pool = pool;
+        this.state = new State(pool);
+        this.cleanable = pool.register(this, state);
+    }
+
+    /**
+     * Append bytes, taking further chunks from the pool as needed. Not safe for concurrent writers.
+     *
+     * @throws IOException when the pool has no chunk to spare within its acquire timeout
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureLive();
+        List<ByteBuffer> chunks = state.chunks;
+        while (length > 0) {
+            ByteBuffer last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (last == null || !last.hasRemaining()) {
+                last = pool.acquireChunk();
+                chunks.add(last);
+            }
+            int n = Math.min(length, last.remaining());
+            last.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+            state.size += n;
+        }
+    }
+
+    public long size() {
+        return state.size;
+    }
+
+    /**
+     * A fresh stream over the whole content.
+     */
+    public InputStream newInputStream() {
+        ensureLive();
+        return new ChunkInputStream(readViews());
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        ensureLive();
+        WritableByteChannel channel = Channels.newChannel(out);
+        for (ByteBuffer view : readViews()) {
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+    }
+
+    public void updateDigest(MessageDigest digest) {
+        ensureLive();
+        for (ByteBuffer view : readViews()) {
+            digest.update(view);
+        }
+    }
+
+    /**
+     * A heap copy of at most the first {@code maxBytes} bytes, for format sniffing and header parsing.
+     */
+    public byte[] head(int maxBytes) {
+        ensureLive();
+        byte[] head = new byte[(int) Math.min(maxBytes, state.size)];
+        int offset = 0;
+        for (ByteBuffer view : readViews()) {
+            if (offset == head.length) break;
+            int n = Math.min(view.remaining(), head.length - offset);
+            view.get(head, offset, n);
+            offset += n;
+        }
+        return head;
+    }
+
+    public PooledBuffer retain() {
+        int previous = state.references.getAndUpdate(count -> count > 0 ? count + 1 : count);
+        if (previous <= 0) {
+            throw new IllegalStateException("Buffer already released");
+        }
+        return this;
+    }
+
+    public void release() {
+        int remaining = state.references.decrementAndGet();
+        if (remaining == 0) {
+            state.released = true;
+            cleanable.clean();
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Buffer released more often than retained");
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    private void ensureLive() {
+        if (state.references.get() <= 0) {
+            throw new IllegalStateException("Buffer already released");
+        }
+    }
+
+    private List<ByteBuffer> readViews() {
+        List<ByteBuffer> views = new ArrayList<>(state.chunks.size());
+        for (ByteBuffer chunk : state.chunks) {
+            ByteBuffer view = chunk.duplicate();
+            view.flip();
+            views.add(view);
+        }
+        return views;
+    }
+
+    // Must not reference the PooledBuffer, or the cleaner could never see it become unreachable
+    private static final class State implements Runnable {
+        final DirectBufferPool pool;
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        final AtomicInteger references = new AtomicInteger(1);
+        volatile boolean released;
+        long size;
+
+        State(DirectBufferPool pool) {
+            this.pool = pool;
+        }
+
+        // Runs once: on the last release, or from the cleaner thread when the buffer leaked
+        @Override
+        public void run() {
+            if (!released) {
+                pool.leaked(chunks.size(), size);
+            }
+            for (ByteBuffer chunk : chunks) {
+                pool.releaseChunk(chunk);
+            }
+            chunks.clear();
+        }
+    }
+
+    private static final class ChunkInputStream extends InputStream {
+        private final List<ByteBuffer> views;
+        private int index;
+
+        ChunkInputStream(List<ByteBuffer> views) {
+            this.views = views;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer view = current();
+            return view == null ? -1 : view.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            ByteBuffer view = current();
+            if (view == null) return -1;
+            int n = Math.min(length, view.remaining());
+            view.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            ByteBuffer view;
+            while (skipped < n && (view = current()) != null) {
+                int step = (int) Math.min(n - skipped, view.remaining());
+                view.position(view.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer view = current();
+            return view == null ? 0 : view.remaining();
+        }
+
+        private ByteBuffer current() {
+            while (index < views.size()) {
+                ByteBuffer view = views.get(index);
+                if (view.hasRemaining()) return view;
+                index++;
+            }
+            return null;
+        }
+    }
+}
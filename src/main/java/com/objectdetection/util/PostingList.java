@@ -0,0 +1,112 @@
+package com.objectdetection.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent, newest-first list of values keyed by a monotonically increasing id. Iteration can
+ * start right after any key, so a page costs O(log n + page size) however long the list grows.
+ */
+public class PostingList<T> {
+
+    private final ConcurrentNavigableMap<Long, T> entries = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    // ConcurrentSkipListMap.size() walks the whole map, so keep our own count
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void add(long key, T value) {
+        if (entries.put(key, value) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    public boolean remove(long key, T value) {
+        if (entries.remove(key, value)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Values with keys strictly lower than {@code beforeKey}, newest first.
+     */
+    public Iterator<T> iterator(long beforeKey) {
+        return entries.tailMap(beforeKey, false).values().iterator();
+    }
+
+    /**
+     * Newest-first merge of several lists, skipping keys not lower than {@code beforeKey}.
+     */
+    public static <T> Iterator<T> merge(List<PostingList<T>> lists, long beforeKey) {
+        if (lists.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        if (lists.size() == 1) {
+            return lists.get(0).iterator(beforeKey);
+        }
+
+        List<Iterator<Map.Entry<Long, T>>> sources = new ArrayList<>(lists.size());
+        for (PostingList<T> list : lists) {
+            sources.add(list.entries.tailMap(beforeKey, false).entrySet().iterator());
+        }
+        return new MergingIterator<>(sources);
+    }
+
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> Long.compare(b.key, a.key));
+
+        private MergingIterator(List<Iterator<Map.Entry<Long, T>>> sources) {
+            for (Iterator<Map.Entry<Long, T>> source : sources) {
+                advance(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.source);
+            return head.value;
+        }
+
+        private void advance(Iterator<Map.Entry<Long, T>> source) {
+            if (source.hasNext()) {
+                Map.Entry<Long, T> entry = source.next();
+                heads.add(new Head<>(entry.getKey(), entry.getValue(), source));
+            }
+        }
+    }
+
+    private static final class Head<T> {
+        private final long key;
+        private final T value;
+        private final Iterator<Map.Entry<Long, T>> source;
+
+        private Head(long key, T value, Iterator<Map.Entry<Long, T>> source) {
+            this.key = key;
+            this.value = value;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.objectdetection.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Fixed-capacity, multi-producer ring buffer. Appends claim a sequence number with a single
+ * atomic increment and publish with a CAS on their slot; once full, each append overwrites
+ * the oldest entry. Readers take lock-free snapshots and never block writers.
+ */
+public class RingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Consumer<T> evictionListener;
+
+    public RingBuffer(int capacity) {
+        this(capacity, evicted -> { });
+    }
+
+    public RingBuffer(int capacity, Consumer<T> evictionListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Append a value built from its sequence number, returning that sequence.
+     */
+    public long append(LongFunction<T> factory) {
+        long sequence = nextSequence.getAndIncrement();
+        T value = factory.apply(sequence);
+        Slot<T> slot = new Slot<>(sequence, value);
+        int index = indexOf(sequence);
+
+        while (true) {
+            Slot<T> current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                // A writer a full lap ahead already took this slot, so our value is already the oldest
+                evictionListener.accept(value);
+                return sequence;
+            }
+            if (slots.compareAndSet(index, current, slot)) {
+                if (current != null) {
+                    evictionListener.accept(current.value);
+                } else {
+                    size.incrementAndGet();
+                }
+                return sequence;
+            }
+        }
+    }
+
+    public long append(T value) {
+        return append(sequence -> value);
+    }
+
+    /**
+     * The value stored under the sequence, or null if it was overwritten or removed.
+     */
+    public T get(long sequence) {
+        Slot<T> slot = slots.get(indexOf(sequence));
+        return slot != null && slot.sequence == sequence ? slot.value : null;
+    }
+
+    public boolean remove(long sequence) {
+        int index = indexOf(sequence);
+        Slot<T> slot = slots.get(index);
+        if (slot != null && slot.sequence == sequence && slots.compareAndSet(index, slot, null)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Up to {@code limit} live values, newest first.
+     */
+    public List<T> snapshot(int limit) {
+        long end = nextSequence.get();
+        long start = Math.max(0, end - capacity);
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(limit, size.get())));
+
+        for (long sequence = end - 1; sequence >= start && result.size() < limit; sequence--) {
+            Slot<T> slot = slots.get(indexOf(sequence));
+            // Skip slots that were removed, or claimed but not yet published
+            if (slot != null && slot.sequence == sequence) {
+                result.add(slot.value);
+            }
+        }
+        return result;
+    }
+
+    public List<T> snapshot() {
+        return snapshot(capacity);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private static final class Slot<T> {
+        private final long sequence;
+        private final T value;
+
+        private Slot(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
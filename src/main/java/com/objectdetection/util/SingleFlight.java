@@ -0,0 +1,227 @@
+package com.objectdetection.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution. The first caller (leader)
+ * runs the task on its own thread; callers arriving while it is in flight (followers) wait
+ * on the leader's future and receive the same value or the same failure.
+ * <p>
+ * {@link #executeAsync} does the same without blocking anyone. Blocking and non-blocking callers
+ * share one in-flight map, so either kind can lead the other.
+ */
+public class SingleFlight<K, V> {
+
+    // One timer thread for every instance; timeouts are cancelled, and removed, as soon as the call settles
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "single-flight-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMEOUTS.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong followers = new AtomicLong();
+    private final AtomicLong followerTimeouts = new AtomicLong();
+    private final AtomicLong leaderTimeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Run the task, or join an identical in-flight one. Followers give up with a
+     * {@link TimeoutException} after {@code timeoutMs}. A leader still running then is timed out too:
+     * its entry is dropped so new callers start afresh, its followers fail, and its thread is
+     * interrupted. If the task still fails afterwards, the leader gets a {@link TimeoutException}.
+     */
+    public V execute(K key, long timeoutMs, Callable<V> task) throws Exception {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            followers.incrementAndGet();
+            return await(existing, timeoutMs);
+        }
+
+        leaders.incrementAndGet();
+        LeaderTimeout timeout = new LeaderTimeout(Thread.currentThread());
+        ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> timeout.expire(() -> {
+            leaderTimeouts.incrementAndGet();
+            inFlight.remove(key, future);
+            future.completeExceptionally(new TimeoutException(
+                    "Timed out after " + timeoutMs + "ms waiting for identical in-flight request"));
+        }), timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            V value = task.call();
+            future.complete(value);
+            return value;
+        } catch (Throwable t) {
+            // Followers must not hang on a leader that died
+            failures.incrementAndGet();
+            future.completeExceptionally(t);
+            if (timeout.finish()) {
+                TimeoutException expired = new TimeoutException("Timed out after " + timeoutMs + "ms");
+                expired.initCause(t);
+                throw expired;
+            }
+            throw t;
+        } finally {
+            timer.cancel(false);
+            timeout.finish();
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #execute}: the leader starts the task and gets its future; followers get a view of
+     * that future. Either fails with a {@link TimeoutException} after {@code timeoutMs}; a timed-out leader
+     * also drops its entry, so a task whose stages never finish cannot hold the key forever.
+     */
+    public CompletableFuture<V> executeAsync(K key, long timeoutMs, Supplier<CompletableFuture<V>> task) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            followers.incrementAndGet();
+            CompletableFuture<V> view = new CompletableFuture<>();
+            existing.whenComplete((value, error) -> {
+                if (error == null) {
+                    view.complete(value);
+                } else {
+                    view.completeExceptionally(Futures.unwrap(error));
+                }
+            });
+            ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> timeOut(view, followerTimeouts, timeoutMs),
+                    timeoutMs, TimeUnit.MILLISECONDS);
+            view.whenComplete((value, error) -> timer.cancel(false));
+            return view;
+        }
+
+        leaders.incrementAndGet();
+        CompletableFuture<V> started;
+        try {
+            started = task.get();
+        } catch (Throwable t) {
+            started = CompletableFuture.failedFuture(t);
+        }
+        started.whenComplete((value, error) -> {
+            if (error == null) {
+                future.complete(value);
+            } else {
+                failures.incrementAndGet();
+                future.completeExceptionally(Futures.unwrap(error));
+            }
+        });
+        ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> {
+            // Dropped first, so a caller woken by the timeout can already lead a fresh execution
+            if (!future.isDone()) {
+                inFlight.remove(key, future);
+                timeOut(future, leaderTimeouts, timeoutMs);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, error) -> {
+            timer.cancel(false);
+            inFlight.remove(key, future);
+        });
+        return future;
+    }
+
+    /**
+     * Fails the future with a timeout unless it already settled; the counter is bumped before completing,
+     * so whoever wakes on the timeout already sees it.
+     */
+    private static void timeOut(CompletableFuture<?> future, AtomicLong counter, long timeoutMs) {
+        if (future.isDone()) {
+            return;
+        }
+        counter.incrementAndGet();
+        if (!future.completeExceptionally(new TimeoutException(
+                "Timed out after " + timeoutMs + "ms waiting for identical in-flight request"))) {
+            counter.decrementAndGet();
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("inFlight", inFlight.size());
+        statistics.put("leaders", leaders.get());
+        statistics.put("followers", followers.get());
+        statistics.put("followerTimeouts", followerTimeouts.get());
+        statistics.put("leaderTimeouts", leaderTimeouts.get());
+        statistics.put("leaderFailures", failures.get());
+        return statistics;
+    }
+
+    /**
+     * Hand-off between a blocking leader and its timer, so the leader's thread is only interrupted while
+     * the task runs and never keeps that interrupt once {@link #execute} returns.
+     */
+    private static final class LeaderTimeout {
+        private final Thread leader;
+        private boolean finished;
+        private boolean expired;
+
+        private LeaderTimeout(Thread leader) {
+            this.leader = leader;
+        }
+
+        /**
+         * Runs {@code onExpiry} and then interrupts the leader, unless the task already finished.
+         */
+        synchronized void expire(Runnable onExpiry) {
+            if (finished || expired) return;
+            expired = true;
+            onExpiry.run();
+            leader.interrupt();
+        }
+
+        /**
+         * Ends the task and returns whether it had timed out; the first call clears the interrupt meant for it.
+         */
+        synchronized boolean finish() {
+            if (!finished) {
+                finished = true;
+                if (expired) {
+                    Thread.interrupted();
+                }
+            }
+            return expired;
+        }
+    }
+
+    private V await(CompletableFuture<V> leader, long timeoutMs) throws Exception {
+        try {
+            return leader.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            followerTimeouts.incrementAndGet();
+            throw new TimeoutException("Timed out after " + timeoutMs + "ms waiting for identical in-flight request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new TimeoutException("Identical in-flight request was cancelled");
+        }
+    }
+}
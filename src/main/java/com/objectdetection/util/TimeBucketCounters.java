@@ -0,0 +1,136 @@
+package com.objectdetection.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring of fixed-width time buckets holding request counts, latency sums and object counts.
+ * Recording is a few atomic adds; a slot is lazily reset when time wraps around to it.
+ * Range queries touch only the buckets in range, independent of how many events were recorded.
+ */
+public class TimeBucketCounters {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+
+    // Absolute bucket number (epoch millis / bucketMillis) currently held by each slot
+    private final AtomicLongArray bucketIds;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray latencySums;
+    private final AtomicLongArray objectCounts;
+
+    public TimeBucketCounters(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.bucketIds = new AtomicLongArray(bucketCount);
+        this.counts = new AtomicLongArray(bucketCount);
+        this.latencySums = new AtomicLongArray(bucketCount);
+        this.objectCounts = new AtomicLongArray(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            bucketIds.set(i, -1);
+        }
+    }
+
+    public void record(long timestampMillis, long latencyMs, int objects) {
+        long bucketId = timestampMillis / bucketMillis;
+        int slot = slotOf(bucketId);
+
+        long current = bucketIds.get(slot);
+        if (current != bucketId) {
+            if (current > bucketId) {
+                return; // Older than the window this ring still covers
+            }
+            rollOver(slot, bucketId);
+        }
+
+        counts.incrementAndGet(slot);
+        latencySums.addAndGet(slot, latencyMs);
+        objectCounts.addAndGet(slot, objects);
+    }
+
+    public long count(long fromMillis, long toMillis) {
+        return sum(counts, fromMillis, toMillis);
+    }
+
+    public long latencySum(long fromMillis, long toMillis) {
+        return sum(latencySums, fromMillis, toMillis);
+    }
+
+    public long objectCount(long fromMillis, long toMillis) {
+        return sum(objectCounts, fromMillis, toMillis);
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Live buckets as flat {@code [bucketId, count, latencySum, objectCount]} quadruples, for checkpointing.
+     */
+    public long[] export() {
+        long[] values = new long[bucketCount * 4];
+        int length = 0;
+        for (int slot = 0; slot < bucketCount; slot++) {
+            long bucketId = bucketIds.get(slot);
+            if (bucketId >= 0) {
+                values[length++] = bucketId;
+                values[length++] = counts.get(slot);
+                values[length++] = latencySums.get(slot);
+                values[length++] = objectCounts.get(slot);
+            }
+        }
+        return Arrays.copyOf(values, length);
+    }
+
+    public void restore(long[] exported) {
+        for (int i = 0; i + 3 < exported.length; i += 4) {
+            long bucketId = exported[i];
+            int slot = slotOf(bucketId);
+            if (bucketIds.get(slot) > bucketId) continue;
+            rollOver(slot, bucketId);
+            counts.addAndGet(slot, exported[i + 1]);
+            latencySums.addAndGet(slot, exported[i + 2]);
+            objectCounts.addAndGet(slot, exported[i + 3]);
+        }
+    }
+
+    /**
+     * Sums the buckets that start within {@code [fromMillis, toMillis)}. Unaligned ranges snap to bucket
+     * boundaries this way, so adjacent ranges never share an edge bucket and together add up to the total.
+     */
+    private long sum(AtomicLongArray values, long fromMillis, long toMillis) {
+        long firstBucket = ceilDiv(fromMillis, bucketMillis);
+        long lastBucket = ceilDiv(toMillis, bucketMillis) - 1;
+        // Never look further back than the ring holds
+        firstBucket = Math.max(firstBucket, lastBucket - bucketCount + 1);
+
+        long total = 0;
+        for (long bucketId = firstBucket; bucketId <= lastBucket; bucketId++) {
+            int slot = slotOf(bucketId);
+            if (bucketIds.get(slot) == bucketId) {
+                total += values.get(slot);
+            }
+        }
+        return total;
+    }
+
+    private void rollOver(int slot, long bucketId) {
+        // Only taken once per bucket period per slot, so the common record path stays lock-free
+        synchronized (this) {
+            if (bucketIds.get(slot) < bucketId) {
+                counts.set(slot, 0);
+                latencySums.set(slot, 0);
+                objectCounts.set(slot, 0);
+                bucketIds.set(slot, bucketId);
+            }
+        }
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private int slotOf(long bucketId) {
+        return (int) Math.floorMod(bucketId, (long) bucketCount);
+    }
+}
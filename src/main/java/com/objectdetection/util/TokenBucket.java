@@ -0,0 +1,46 @@
+package com.objectdetection.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding up to {@code capacity} tokens, refilled continuously at {@code refillPerSecond}.
+ * A new bucket starts full, so a client may burst up to the capacity before being held to the rate.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = Math.max(1, capacity);
+        this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take one token.
+     *
+     * @return zero when a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public synchronized long tryConsume() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return refillPerNano > 0 ? (long) Math.ceil((1 - tokens) / refillPerNano) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Whether the bucket has refilled completely, i.e. dropping it is indistinguishable from keeping it.
+     */
+    public synchronized boolean isFull(long nowNanos) {
+        return tokens + (nowNanos - lastRefillNanos) * refillPerNano >= capacity;
+    }
+}
@@ -0,0 +1,72 @@
+package com.objectdetection.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ring of per-interval {@link LatencyHistogram}s plus a since-startup total, so percentiles
+ * can be read for the last N intervals. Memory is fixed at construction.
+ */
+public class WindowedLatencyHistogram {
+
+    private final long intervalMillis;
+    private final int intervals;
+    private final LatencyHistogram[] histograms;
+    private final AtomicLongArray intervalIds;
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    public WindowedLatencyHistogram(long intervalMillis, int intervals) {
+        this.intervalMillis = intervalMillis;
+        this.intervals = intervals;
+        this.histograms = new LatencyHistogram[intervals];
+        this.intervalIds = new AtomicLongArray(intervals);
+        for (int i = 0; i < intervals; i++) {
+            histograms[i] = new LatencyHistogram();
+            intervalIds.set(i, -1);
+        }
+    }
+
+    public void recordNanos(long nowMillis, long nanos) {
+        long intervalId = nowMillis / intervalMillis;
+        int slot = (int) (intervalId % intervals);
+
+        if (intervalIds.get(slot) != intervalId) {
+            rollOver(slot, intervalId);
+        }
+        histograms[slot].recordNanos(nanos);
+        total.recordNanos(nanos);
+    }
+
+    /**
+     * Merged histogram of the most recent {@code windowIntervals} intervals, or the total when zero or negative.
+     */
+    public LatencyHistogram snapshot(long nowMillis, int windowIntervals) {
+        LatencyHistogram merged = new LatencyHistogram();
+        if (windowIntervals <= 0) {
+            total.addTo(merged);
+            return merged;
+        }
+
+        long currentInterval = nowMillis / intervalMillis;
+        int window = Math.min(windowIntervals, intervals);
+        for (long intervalId = currentInterval - window + 1; intervalId <= currentInterval; intervalId++) {
+            int slot = (int) Math.floorMod(intervalId, (long) intervals);
+            if (intervalIds.get(slot) == intervalId) {
+                histograms[slot].addTo(merged);
+            }
+        }
+        return merged;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    private void rollOver(int slot, long intervalId) {
+        synchronized (histograms[slot]) {
+            if (intervalIds.get(slot) < intervalId) {
+                histograms[slot].reset();
+                intervalIds.set(slot, intervalId);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.DetectionRecord;
+import com.objectdetection.model.ErrorRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Collects replayed errors and never checkpoints, so every reopen replays the whole log.
+     */
+    private static class RecordingListener implements DetectionEventLog.Listener {
+        private final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void onDetection(DetectionRecord detection) {
+        }
+
+        @Override
+        public void onError(ErrorRecord error) {
+            errors.add(error.getMessage());
+        }
+
+        @Override
+        public void onDeletion(long detectionId) {
+        }
+
+        @Override
+        public void restoreCheckpoint(DataInput in) {
+        }
+
+        @Override
+        public DetectionEventLog.Checkpoint captureCheckpoint() {
+            return new DetectionEventLog.Checkpoint(0, new byte[0]);
+        }
+    }
+
+    private DetectionEventLog open(RecordingListener listener) {
+        DetectionEventLog eventLog = new DetectionEventLog();
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "directory", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentBytes", 1L << 20);
+        ReflectionTestUtils.setField(eventLog, "fsync", false);
+        ReflectionTestUtils.setField(eventLog, "queueCapacity", 100);
+        ReflectionTestUtils.setField(eventLog, "checkpointIntervalSeconds", 3600L);
+        eventLog.open(listener);
+        return eventLog;
+    }
+
+    private static ErrorRecord error(String message) {
+        return ErrorRecord.builder().timestamp(1L).message(message).type("test").level("error").build();
+    }
+
+    @Test
+    void eventsAppendedAfterATornFirstRecordSurviveTheNextRestart() throws IOException {
+        DetectionEventLog eventLog = open(new RecordingListener());
+        eventLog.appendError(error("a"));
+        eventLog.appendError(error("b"));
+        eventLog.close();
+
+        // Crash while writing the first record of the next segment: header plus half a record
+        Path torn = directory.resolve(String.format("segment-%020d.log", 3));
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(torn))) {
+            out.writeInt(0x444C4F47);
+            out.writeInt(1);
+            out.writeInt(100);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+
+        RecordingListener afterCrash = new RecordingListener();
+        eventLog = open(afterCrash);
+        assertEquals(List.of("a", "b"), afterCrash.errors);
+        assertEquals(8, Files.size(torn));
+
+        // Sequence 3 again, so the writer reopens the torn segment's name
+        eventLog.appendError(error("c"));
+        eventLog.appendError(error("d"));
+        eventLog.close();
+
+        RecordingListener afterRestart = new RecordingListener();
+        open(afterRestart).close();
+        assertEquals(List.of("a", "b", "c", "d"), afterRestart.errors);
+    }
+
+    @Test
+    void segmentWithTruncatedHeaderIsReplacedOnRestart() throws IOException {
+        DetectionEventLog eventLog = open(new RecordingListener());
+        eventLog.appendError(error("a"));
+        eventLog.close();
+
+        Path torn = directory.resolve(String.format("segment-%020d.log", 2));
+        Files.write(torn, new byte[] {0x44, 0x4C});
+
+        eventLog = open(new RecordingListener());
+        eventLog.appendError(error("b"));
+        eventLog.close();
+
+        RecordingListener afterRestart = new RecordingListener();
+        open(afterRestart).close();
+        assertEquals(List.of("a", "b"), afterRestart.errors);
+    }
+
+    @Test
+    void segmentsAreDeletedOnceACheckpointCoversThem() throws IOException, InterruptedException {
+        DetectionEventLog eventLog = new DetectionEventLog();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public DetectionEventLog.Checkpoint captureCheckpoint() {
+                return new DetectionEventLog.Checkpoint(eventLog.lastSequence(), new byte[0]);
+            }
+        };
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "directory", directory.toString());
+        // Every batch starts a new segment
+        ReflectionTestUtils.setField(eventLog, "segmentBytes", 1L);
+        ReflectionTestUtils.setField(eventLog, "fsync", false);
+        ReflectionTestUtils.setField(eventLog, "queueCapacity", 100);
+        ReflectionTestUtils.setField(eventLog, "checkpointIntervalSeconds", 3600L);
+        eventLog.open(listener);
+        for (int i = 0; i < 5; i++) {
+            eventLog.appendError(error("e" + i));
+            Thread.sleep(300);
+        }
+        eventLog.close();
+
+        long segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(file -> file.getFileName().toString().startsWith("segment-")).count();
+        }
+        // The active segment and the one before it, which replay reads in case of out-of-order boundaries
+        assertTrue(segments <= 2, segments + " segments left");
+    }
+}
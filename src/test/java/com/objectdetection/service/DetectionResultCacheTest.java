@@ -0,0 +1,90 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private DetectionResultCache cache;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (cache != null) {
+            cache.stopDiskWriter();
+        }
+    }
+
+    private DetectionResultCache cache(boolean disk, long diskMaxBytes) {
+        cache = new DetectionResultCache(new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(cache, "maxMemoryBytes", 1L << 20);
+        ReflectionTestUtils.setField(cache, "diskEnabled", disk);
+        ReflectionTestUtils.setField(cache, "diskDirectory", directory.toString());
+        ReflectionTestUtils.setField(cache, "diskMaxBytes", diskMaxBytes);
+        ReflectionTestUtils.setField(cache, "diskWriteQueueCapacity", 1000);
+        cache.initDiskTier();
+        return cache;
+    }
+
+    private static DetectedObject cat() {
+        return new DetectedObject("cat", 0.9f, new BoundingBox(1f, 2f, 3f, 4f));
+    }
+
+    @Test
+    void callersCannotMutateCachedDetections() {
+        DetectionResultCache cache = cache(false, 0);
+        List<DetectedObject> stored = new ArrayList<>(Collections.singletonList(cat()));
+        cache.put("key", stored);
+
+        // Changing the list that was cached or a list that was returned must not reach the cache
+        stored.get(0).setLabel("dog");
+        List<DetectedObject> first = cache.get("key");
+        first.get(0).setConfidence(0.1f);
+        first.get(0).getBox().setXMin(99f);
+
+        DetectedObject cached = cache.get("key").get(0);
+        assertEquals("cat", cached.getLabel());
+        assertEquals(0.9f, cached.getConfidence());
+        assertEquals(1f, cached.getBox().getXMin());
+    }
+
+    @Test
+    void diskTierStaysUnderItsByteCap() throws InterruptedException {
+        DetectionResultCache cache = cache(true, 1000);
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, Collections.singletonList(cat()));
+        }
+        cache.stopDiskWriter();
+
+        long total = 0;
+        File[] files = directory.toFile().listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            assertTrue(file.getName().endsWith(".json"), "leftover " + file.getName());
+            total += file.length();
+        }
+        assertTrue(total <= 1000, "disk tier holds " + total + " bytes");
+        assertTrue((long) cache.getStatistics().get("diskEvictions") > 0);
+        assertEquals(total, cache.getStatistics().get("diskBytes"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.objectdetection.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Opt-in allocation and latency benchmark for {@link DeviceClassifier}; only runs with -Pbenchmark.
+ */
+class DeviceClassifierBenchmark {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Benchmark over the corpus: the original per-request classification against a cold (cache disabled) and a
+     * warm classifier.
+     */
+    @Test
+    void cachedClassificationIsCheaperThanTheOriginal() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        DeviceClassifier cold = new DeviceClassifier(false, 1, meterRegistry);
+        DeviceClassifier warm = new DeviceClassifier(true, 1000, meterRegistry);
+        int rounds = 2_000;
+        int operations = rounds * DeviceClassifierTest.USER_AGENTS.size();
+        for (int i = 0; i < 500; i++) {
+            for (String userAgent : DeviceClassifierTest.USER_AGENTS) {
+                DeviceClassifierTest.LegacyDeviceInfo.classify(userAgent, null, null, null, null);
+                cold.classify(userAgent, null, null, null, null);
+                warm.classify(userAgent, null, null, null, null);
+            }
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long[] bytes = new long[3];
+        long[] nanos = new long[3];
+        for (int variant = 0; variant < 3; variant++) {
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                for (String userAgent : DeviceClassifierTest.USER_AGENTS) {
+                    if (variant == 0) {
+                        DeviceClassifierTest.LegacyDeviceInfo.classify(userAgent, null, null, null, null);
+                    } else {
+                        (variant == 1 ? cold : warm).classify(userAgent, null, null, null, null);
+                    }
+                }
+            }
+            nanos[variant] = (System.nanoTime() - start) / operations;
+            bytes[variant] = (threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / operations;
+        }
+
+        String results = String.format("Device classification over %d User-Agents: original=%d ns/op %d B/op, "
+                        + "uncached=%d ns/op %d B/op, cached=%d ns/op %d B/op, hit rate %s%%",
+                DeviceClassifierTest.USER_AGENTS.size(), nanos[0], bytes[0], nanos[1], bytes[1], nanos[2], bytes[2],
+                warm.getStatistics().get("hitRate"));
+        assertTrue(bytes[1] < bytes[0], "uncached classification should allocate less than the original: " + results);
+        assertTrue(bytes[2] < bytes[0], "cached classification should allocate less than the original: " + results);
+    }
+}
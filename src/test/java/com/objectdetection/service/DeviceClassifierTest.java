@@ -0,0 +1,213 @@
+package com.objectdetection.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeviceClassifierTest {
+
+    // User-Agents as seen in the access logs: browsers, the mobile app, API tools and scripts
+    static final List<String> USER_AGENTS = List.of(
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36 Edg/124.0.2478.51",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:125.0) Gecko/20100101 Firefox/125.0",
+            "Mozilla/5.0 (Windows NT 6.1; WOW64; Trident/7.0; rv:11.0) like Gecko",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Safari/605.1.15",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 14.4; rv:125.0) Gecko/20100101 Firefox/125.0",
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0",
+            "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.6367.82 Mobile Safari/537.36",
+            "Mozilla/5.0 (Linux; Android 13; SM-S918B) AppleWebKit/537.36 (KHTML, like Gecko) SamsungBrowser/24.0 Chrome/117.0.0.0 Mobile Safari/537.36",
+            "Mozilla/5.0 (Android 14; Mobile; rv:125.0) Gecko/125.0 Firefox/125.0",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1",
+            "Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Safari/605.1.15",
+            "Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) CriOS/124.0.6367.88 Chrome/124 Safari/604.1",
+            "okhttp/4.12.0",
+            "OkHttp/3.14.9",
+            "curl/8.4.0",
+            "PostmanRuntime/7.37.3",
+            "insomnia/2023.5.8",
+            "HTTPie/3.2.2",
+            "python-requests/2.31.0",
+            "Apache-HttpClient/4.5.14 (Java/17.0.10)",
+            "Go-http-client/2.0",
+            "Java-http-client/17.0.10",
+            "Wget/1.21.4 (linux-gnu)",
+            "   ",
+            "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+            "node-fetch/1.0 (+https://github.com/bitinn/node-fetch)   extra   spacing (unclosed"
+    );
+
+    private static final String DEVICE_INFO = "{\"deviceType\":\"Desktop\",\"os\":\"Windows\",\"browser\":\"Chrome\",\"screen\":\"1920x1080\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void classifiesLikeTheOriginalRulesAcrossTheCorpus() {
+        DeviceClassifier classifier = new DeviceClassifier(true, 1000, meterRegistry);
+        String[][] variants = {
+                {null, null, null, null},
+                {null, null, null, "http://localhost:3000"},
+                {null, "Object Detection Web Portal", "XMLHttpRequest", null},
+                {DEVICE_INFO, "Object Detection Web Portal", null, null},
+                {"{\"deviceType\":\"Unknown\",\"os\":\"Unknown\"}", "Mobile App", null, null},
+        };
+        for (String userAgent : USER_AGENTS) {
+            for (String[] v : variants) {
+                String expected = LegacyDeviceInfo.classify(userAgent, v[0], v[1], v[2], v[3]);
+                assertEquals(expected, classifier.classify(userAgent, v[0], v[1], v[2], v[3]), userAgent);
+                // Second lookup is served from the cache
+                assertEquals(expected, classifier.classify(userAgent, v[0], v[1], v[2], v[3]), userAgent);
+            }
+        }
+        assertEquals("Unknown Client", classifier.classify(null, null, null, null, null));
+        assertEquals("Mobile App", classifier.classify(null, null, "Mobile App", null, null));
+    }
+
+    @Test
+    void recognisesCommonClients() {
+        DeviceClassifier classifier = new DeviceClassifier(true, 100, meterRegistry);
+        assertEquals("Windows Edge", classifier.classify(USER_AGENTS.get(1), null, null, null, null));
+        assertEquals("Mac Safari", classifier.classify(USER_AGENTS.get(4), null, null, null, null));
+        assertEquals("Mobile App (OkHttp 4.12.0)", classifier.classify("okhttp/4.12.0", null, null, null, null));
+        assertEquals("Local Development (OkHttp 4.12.0)",
+                classifier.classify("okhttp/4.12.0", null, null, null, "http://127.0.0.1:8080"));
+        assertEquals("Web Portal (Desktop Windows Chrome)",
+                classifier.classify(USER_AGENTS.get(0), DEVICE_INFO, "Object Detection Web Portal", null, null));
+        assertEquals("Client (python-requests/2.31.0)", classifier.classify("python-requests/2.31.0", null, null, null, null));
+        assertEquals("Client (Apache-HttpClient/4.5.14)",
+                classifier.classify("Apache-HttpClient/4.5.14 (Java/17.0.10)", null, null, null, null));
+    }
+
+    @Test
+    void cacheIsBoundedLeastRecentlyUsedAndCounted() {
+        DeviceClassifier classifier = new DeviceClassifier(true, 2, meterRegistry);
+        classifier.classify("curl/8.4.0", null, null, null, null);
+        classifier.classify("HTTPie/3.2.2", null, null, null, null);
+        classifier.classify("curl/8.4.0", null, null, null, null);
+        // Evicts HTTPie, the least recently used
+        classifier.classify("okhttp/4.12.0", null, null, null, null);
+        classifier.classify("curl/8.4.0", null, null, null, null);
+        classifier.classify("HTTPie/3.2.2", null, null, null, null);
+
+        Map<String, Object> statistics = classifier.getStatistics();
+        assertEquals(2, statistics.get("size"));
+        assertEquals(2L, statistics.get("hits"));
+        assertEquals(4L, statistics.get("misses"));
+        assertEquals(2L, statistics.get("evictions"));
+        assertEquals(33.3, statistics.get("hitRate"));
+        assertEquals(2.0, meterRegistry.get("detection.device.cache.hits").functionCounter().count());
+    }
+
+    @Test
+    void missingAndLiteralNullHeadersDoNotShareAnEntry() {
+        DeviceClassifier classifier = new DeviceClassifier(true, 10, meterRegistry);
+        assertEquals("Unknown Client", classifier.classify(null, null, null, null, null));
+        assertEquals("Client (null)", classifier.classify("null", null, null, null, null));
+    }
+
+    @Test
+    void oversizedHeadersAreClassifiedButNotCached() {
+        DeviceClassifier classifier = new DeviceClassifier(true, 10, meterRegistry);
+        String huge = "Mozilla/5.0 (Windows NT 10.0) Firefox/125.0 " + "x".repeat(1000);
+        assertEquals("Windows Firefox", classifier.classify(huge, null, null, null, null));
+        assertEquals(0, classifier.size());
+        assertEquals(1L, classifier.getStatistics().get("uncacheable"));
+    }
+
+    // The controller's rules before DeviceClassifier: lower-cased contains chains and regexes compiled per call
+    static final class LegacyDeviceInfo {
+
+        static String classify(String userAgent, String deviceInfo, String clientType, String requestedWith, String origin) {
+            if (deviceInfo != null && !deviceInfo.trim().isEmpty()) {
+                return parseClientDeviceInfo(deviceInfo, clientType);
+            }
+            if (userAgent == null || userAgent.trim().isEmpty()) {
+                return clientType != null ? clientType : "Unknown Client";
+            }
+            String ua = userAgent.toLowerCase();
+            if (clientType != null && clientType.contains("Web Portal")) {
+                return "XMLHttpRequest".equals(requestedWith) ? "Web Portal (AJAX)" : "Web Portal";
+            }
+            if (ua.contains("okhttp")) {
+                String version = extract(userAgent, "okhttp" + "/([0-9.]+)", Pattern.CASE_INSENSITIVE);
+                version = version != null ? version : "";
+                if (origin != null && (origin.contains("localhost") || origin.contains("127.0.0.1"))) {
+                    return "Local Development (OkHttp " + version + ")";
+                }
+                return "Mobile App (OkHttp " + version + ")";
+            }
+            if (ua.contains("curl")) return "cURL Client";
+            if (ua.contains("postman")) return "Postman API Client";
+            if (ua.contains("insomnia")) return "Insomnia API Client";
+            if (ua.contains("httpie")) return "HTTPie Client";
+            if (ua.contains("mobile") || ua.contains("android")) {
+                if (ua.contains("chrome")) return "Android Chrome";
+                if (ua.contains("firefox")) return "Android Firefox";
+                if (ua.contains("samsung")) return "Samsung Browser";
+                return "Android Device";
+            }
+            if (ua.contains("iphone")) {
+                if (ua.contains("safari") && !ua.contains("chrome")) return "iPhone Safari";
+                if (ua.contains("chrome")) return "iPhone Chrome";
+                return "iPhone";
+            }
+            if (ua.contains("ipad")) {
+                if (ua.contains("safari") && !ua.contains("chrome")) return "iPad Safari";
+                if (ua.contains("chrome")) return "iPad Chrome";
+                return "iPad";
+            }
+            if (ua.contains("windows")) {
+                if (ua.contains("chrome") && !ua.contains("edg")) return "Windows Chrome";
+                if (ua.contains("firefox")) return "Windows Firefox";
+                if (ua.contains("edg")) return "Windows Edge";
+                return "Windows PC";
+            }
+            if (ua.contains("macintosh") || ua.contains("mac os")) {
+                if (ua.contains("chrome") && !ua.contains("edg")) return "Mac Chrome";
+                if (ua.contains("firefox")) return "Mac Firefox";
+                if (ua.contains("safari") && !ua.contains("chrome")) return "Mac Safari";
+                return "Mac";
+            }
+            if (ua.contains("linux")) {
+                if (ua.contains("chrome")) return "Linux Chrome";
+                if (ua.contains("firefox")) return "Linux Firefox";
+                return "Linux PC";
+            }
+            if (ua.contains("mozilla")) return "Web Browser";
+
+            String cleaned = userAgent.replaceAll("\\([^)]*\\)", "").replaceAll("\\s+", " ").trim();
+            if (cleaned.length() > 25) {
+                cleaned = cleaned.substring(0, 22) + "...";
+            }
+            return "Client (" + cleaned + ")";
+        }
+
+        private static String parseClientDeviceInfo(String json, String clientType) {
+            StringBuilder result = new StringBuilder();
+            for (String key : new String[]{"deviceType", "os", "browser"}) {
+                String value = extract(json, "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"", 0);
+                if (value != null && !value.equals("Unknown")) {
+                    result.append(value).append(" ");
+                }
+            }
+            String finalResult = result.toString().trim();
+            if (!finalResult.isEmpty()) {
+                return clientType != null && clientType.contains("Portal") ? "Web Portal (" + finalResult + ")" : finalResult;
+            }
+            return clientType != null ? clientType : "Unknown Device";
+        }
+
+        private static String extract(String text, String regex, int flags) {
+            Matcher m = Pattern.compile(regex, flags).matcher(text);
+            return m.find() ? m.group(1) : null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Opt-in allocation benchmark for {@link HuggingFaceResponseParser}; only runs with -Pbenchmark.
+ */
+class HuggingFaceResponseParserBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HuggingFaceResponseParser parser = new HuggingFaceResponseParser(objectMapper);
+
+    /**
+     * Allocation per parse of a typical 25-object response: the previous String + readTree
+     * approach against the streaming parser.
+     */
+    @Test
+    void streamingParseAllocatesLessThanTreeParse() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        byte[] body = sampleResponse(25).getBytes(StandardCharsets.UTF_8);
+        int warmup = 5_000;
+        int iterations = 20_000;
+
+        for (int i = 0; i < warmup; i++) {
+            treeParse(body);
+            parser.parse(new ByteArrayInputStream(body), 200);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            treeParse(body);
+        }
+        long treeBytes = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            parser.parse(new ByteArrayInputStream(body), 200);
+        }
+        long streamingBytes = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        assertTrue(streamingBytes < treeBytes, String.format(
+                "Hugging Face response parse (%d bytes): streaming=%d B/op should allocate less than tree=%d B/op",
+                body.length, streamingBytes, treeBytes));
+    }
+
+    // The pre-streaming implementation: decode to String, build a JsonNode tree, then walk it
+    private List<DetectedObject> treeParse(byte[] body) throws IOException {
+        String responseString = new String(body, StandardCharsets.UTF_8);
+        JsonNode rootNode = objectMapper.readTree(responseString);
+        List<DetectedObject> detectedObjects = new ArrayList<>();
+        for (JsonNode objectNode : rootNode) {
+            JsonNode boxNode = objectNode.path("box");
+            detectedObjects.add(DetectedObject.builder()
+                    .label(objectNode.path("label").asText())
+                    .confidence(objectNode.path("score").floatValue())
+                    .box(BoundingBox.builder()
+                            .xMin(boxNode.path("xmin").floatValue())
+                            .yMin(boxNode.path("ymin").floatValue())
+                            .xMax(boxNode.path("xmax").floatValue())
+                            .yMax(boxNode.path("ymax").floatValue())
+                            .build())
+                    .build());
+        }
+        return detectedObjects;
+    }
+
+    private static String sampleResponse(int objects) {
+        String[] labels = {"person", "car", "dog", "bicycle", "traffic light", "handbag", "chair"};
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < objects; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"score\":0.9").append(i % 10).append("1234567")
+                    .append(",\"label\":\"").append(labels[i % labels.length]).append('"')
+                    .append(",\"box\":{\"xmin\":").append(10 + i)
+                    .append(",\"ymin\":").append(20 + i)
+                    .append(",\"xmax\":").append(300 + i)
+                    .append(",\"ymax\":").append(400 + i).append("}}");
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.objectdetection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objectdetection.exception.InferenceException;
+import com.objectdetection.model.DetectedObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HuggingFaceResponseParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HuggingFaceResponseParser parser = new HuggingFaceResponseParser(objectMapper);
+
+    @Test
+    void parsesDetections() throws IOException {
+        String json = "[{\"score\":0.998,\"label\":\"person\",\"box\":{\"xmin\":10,\"ymin\":20,\"xmax\":110,\"ymax\":220}},"
+                + "{\"score\":0.91,\"label\":\"dog\",\"extra\":[1,{\"a\":2}],\"box\":{\"xmin\":1.5,\"ymin\":2.5,\"xmax\":3.5,\"ymax\":4.5}}]";
+
+        List<DetectedObject> objects = parser.parse(stream(json), 200);
+
+        assertEquals(2, objects.size());
+        assertEquals("person", objects.get(0).getLabel());
+        assertEquals(0.998f, objects.get(0).getConfidence());
+        assertEquals(220f, objects.get(0).getBox().getYMax());
+        assertEquals("dog", objects.get(1).getLabel());
+        assertEquals(1.5f, objects.get(1).getBox().getXMin());
+    }
+
+    @Test
+    void detectsErrorPayload() {
+        String json = "{\"error\":\"Model facebook/detr-resnet-101 is currently loading\",\"estimated_time\":20.5}";
+
+        InferenceException e = assertThrows(InferenceException.class, () -> parser.parse(stream(json), 503));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(20.5, e.getEstimatedTimeSeconds());
+        assertTrue(e.getMessage().contains("currently loading"));
+    }
+
+    @Test
+    void toleratesNullAndMissingNumbers() throws IOException {
+        String json = "[{\"score\":null,\"label\":\"cat\",\"box\":{\"xmin\":null,\"ymin\":2,\"xmax\":3}}]";
+
+        List<DetectedObject> objects = parser.parse(stream(json), 200);
+
+        // Same defaults the JsonNode-based parser produced: 0 for null or absent values
+        assertEquals(1, objects.size());
+        assertEquals(0f, objects.get(0).getConfidence());
+        assertEquals(0f, objects.get(0).getBox().getXMin());
+        assertEquals(2f, objects.get(0).getBox().getYMin());
+        assertEquals(0f, objects.get(0).getBox().getYMax());
+    }
+
+    @Test
+    void readsNullLabelAsText() throws IOException {
+        String json = "[{\"score\":0.5,\"label\":null,\"box\":{\"xmin\":1,\"ymin\":2,\"xmax\":3,\"ymax\":4}}]";
+
+        List<DetectedObject> objects = parser.parse(stream(json), 200);
+
+        // JsonNode.asText() rendered a JSON null as "null"
+        assertEquals("null", objects.get(0).getLabel());
+    }
+
+    @Test
+    void rejectsNonJsonErrorBody() {
+        assertThrows(InferenceException.class, () -> parser.parse(stream("<html>Bad Gateway</html>"), 502));
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
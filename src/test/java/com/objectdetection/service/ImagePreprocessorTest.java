@@ -0,0 +1,129 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.BoundingBox;
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.DetectionOptions;
+import com.objectdetection.model.ImagePayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImagePreprocessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ImagePreprocessor preprocessor;
+
+    @BeforeEach
+    void setUp() {
+        preprocessor = new ImagePreprocessor(new LatencyStatistics(5, meterRegistry), meterRegistry);
+        ReflectionTestUtils.setField(preprocessor, "enabled", true);
+        ReflectionTestUtils.setField(preprocessor, "engines", new String[]{HuggingFaceDetectionEngine.NAME});
+        ReflectionTestUtils.setField(preprocessor, "maxDimension", 1333);
+        ReflectionTestUtils.setField(preprocessor, "maxShortSide", 800);
+        ReflectionTestUtils.setField(preprocessor, "jpegQuality", 0.9f);
+        ReflectionTestUtils.setField(preprocessor, "uplinkBytesPerSecond", 1_250_000L);
+        ReflectionTestUtils.invokeMethod(preprocessor, "initialize");
+    }
+
+    @Test
+    void downscalesLargeImagesAndMapsBoxesBack() throws IOException {
+        ImagePayload original = jpeg(2000, 1000);
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(original, engine(HuggingFaceDetectionEngine.NAME), DetectionOptions.DEFAULTS);
+
+        BufferedImage sent = ImageIO.read(new ByteArrayInputStream(prepared.getImage().getBytes()));
+        assertEquals(1333, sent.getWidth());
+        assertEquals(667, sent.getHeight());
+        assertEquals("image/jpeg", prepared.getImage().getContentType());
+        assertTrue(prepared.getImage().getSize() < original.getSize());
+
+        List<DetectedObject> mapped = prepared.toOriginal(Collections.singletonList(DetectedObject.builder()
+                .label("person")
+                .confidence(0.9f)
+                .box(new BoundingBox(0f, 0f, 1333f, 667f))
+                .build()));
+        assertEquals(2000f, mapped.get(0).getBox().getXMax(), 0.01f);
+        assertEquals(1000f, mapped.get(0).getBox().getYMax(), 0.01f);
+        assertEquals("person", mapped.get(0).getLabel());
+    }
+
+    @Test
+    void leavesSmallImagesSkippedRequestsAndOtherEnginesAlone() throws IOException {
+        ImagePayload small = jpeg(640, 480);
+        assertSame(small, preprocessor.prepare(small, engine(HuggingFaceDetectionEngine.NAME), DetectionOptions.DEFAULTS).getImage());
+
+        ImagePayload large = jpeg(2000, 1000);
+        DetectionOptions skip = DetectionOptions.builder().skipPreprocessing(true).build();
+        assertSame(large, preprocessor.prepare(large, engine(HuggingFaceDetectionEngine.NAME), skip).getImage());
+        assertSame(large, preprocessor.prepare(large, engine("onnx"), DetectionOptions.DEFAULTS).getImage());
+        assertFalse(preprocessor.appliesTo(engine("onnx"), DetectionOptions.DEFAULTS));
+
+        Map<String, Object> stats = preprocessor.getStatistics();
+        assertEquals(2L, stats.get("images"));
+        assertEquals(1L, stats.get("withinLimits"));
+        assertEquals(1L, stats.get("skippedByRequest"));
+    }
+
+    @Test
+    void readsExifOrientation() {
+        byte[] rotated = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0, 'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, 6, 0, 0, 0, 0, 0, 0,
+                (byte) 0xFF, (byte) 0xDA};
+        assertEquals(6, ImagePreprocessor.exifOrientation(rotated));
+        assertEquals(1, ImagePreprocessor.exifOrientation(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA}));
+    }
+
+    private static ImagePayload jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return ImagePayload.builder().bytes(out.toByteArray()).contentType("image/jpeg").fileName("test.jpg").build();
+    }
+
+    private static DetectionEngine engine(String name) {
+        return new DetectionEngine() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getModelId() {
+                return name;
+            }
+
+            @Override
+            public List<DetectedObject> detect(ImagePayload image) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Map<String, Object> getStatistics() {
+                return Collections.emptyMap();
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.objectdetection.service;
+
+import com.objectdetection.model.DetectedObject;
+import com.objectdetection.model.ImagePayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the local engine against models/tiny-detr.onnx, a hand-built DETR-shaped graph
+ * (pixel_values -> logits [N,2,3], pred_boxes [N,2,4]) with labels cat, dog. Query 0 scores
+ * "cat" in proportion to mean image brightness with box (cx, cy, w, h) = (0.5, 0.5, 0.5, 0.5);
+ * query 1 always predicts "no object". The batch dimension is dynamic.
+ */
+class OnnxDetectionEngineTest {
+
+    private OnnxDetectionEngine engine;
+
+    @BeforeEach
+    void startEngine() throws IOException {
+        engine = new OnnxDetectionEngine(
+                new LatencyStatistics(60, new SimpleMeterRegistry()),
+                new DefaultResourceLoader(),
+                "classpath:models/tiny-detr.onnx",
+                "classpath:models/tiny-detr.labels",
+                2, 1, 32, 32, 0.5f, 1000, true, 4);
+        engine.start();
+    }
+
+    @AfterEach
+    void closeEngine() {
+        engine.close();
+    }
+
+    @Test
+    void detectsObjectAndScalesBoxToOriginalImage() throws IOException {
+        List<DetectedObject> objects = engine.detect(png(100, 80, Color.WHITE));
+
+        assertEquals(1, objects.size());
+        DetectedObject cat = objects.get(0);
+        assertEquals("cat", cat.getLabel());
+        assertTrue(cat.getConfidence() > 0.99f, "confidence " + cat.getConfidence());
+        assertEquals(25f, cat.getBox().getXMin(), 0.01f);
+        assertEquals(20f, cat.getBox().getYMin(), 0.01f);
+        assertEquals(75f, cat.getBox().getXMax(), 0.01f);
+        assertEquals(60f, cat.getBox().getYMax(), 0.01f);
+    }
+
+    @Test
+    void dropsQueriesBelowThreshold() throws IOException {
+        assertEquals(Collections.emptyList(), engine.detect(png(64, 64, Color.BLACK)));
+    }
+
+    @Test
+    void detectsEachImageOfABatchIndependently() throws IOException {
+        List<List<DetectedObject>> results = engine.detectBatch(Arrays.asList(
+                png(100, 80, Color.WHITE), png(64, 64, Color.BLACK), png(40, 40, Color.WHITE)));
+
+        assertEquals(3, results.size());
+        assertEquals(1, results.get(0).size());
+        assertEquals(75f, results.get(0).get(0).getBox().getXMax(), 0.01f);
+        assertEquals(Collections.emptyList(), results.get(1));
+        assertEquals("cat", results.get(2).get(0).getLabel());
+        assertEquals(30f, results.get(2).get(0).getBox().getXMax(), 0.01f);
+    }
+
+    @Test
+    void rejectsUndecodableImage() {
+        ImagePayload garbage = ImagePayload.builder().bytes(new byte[]{1, 2, 3, 4, 5}).contentType("image/png").build();
+
+        assertThrows(IOException.class, () -> engine.detect(garbage));
+    }
+
+    @Test
+    void modelIdTracksModelContentAndSessionsReturnToPool() throws IOException {
+        engine.detect(png(10, 10, Color.WHITE));
+        engine.detect(png(10, 10, Color.WHITE));
+
+        assertTrue(engine.getModelId().startsWith("onnx:"));
+        assertEquals(2L, engine.getStatistics().get("inferences"));
+        assertEquals(2, engine.getStatistics().get("availableSessions"));
+    }
+
+    @Test
+    void unknownEngineIsRejected() {
+        DetectionEngines engines = new DetectionEngines(Collections.singletonList(engine), "onnx",
+                new SimpleMeterRegistry(), false, 0, 1, 1, 1000, new ResilienceSettings(), event -> { });
+
+        assertEquals(engine, engines.resolve(null));
+        assertEquals(engine, engines.resolve("ONNX"));
+        assertThrows(IllegalArgumentException.class, () -> engines.resolve("yolo"));
+    }
+
+    private static ImagePayload png(int width, int height, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return ImagePayload.builder().bytes(out.toByteArray()).contentType("image/png").build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.objectdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void refusesBeyondLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.5, 2.0);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(FAST, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileSaturatedAndFast() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.5, 2.0);
+
+        for (int i = 0; i < 20; i++) {
+            while (limit.tryAcquire()) {
+                // fill every slot so the limit is in use
+            }
+            limit.release(FAST, false);
+        }
+
+        assertTrue(limit.getLimit() > 2);
+    }
+
+    @Test
+    void backsOffOnSlowOrDroppedRequests() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 10, 0.5, 2.0);
+        limit.tryAcquire();
+        limit.release(FAST, false);
+
+        Thread.sleep(2);
+        limit.tryAcquire();
+        limit.release(FAST * 10, false);
+        assertEquals(4, limit.getLimit());
+
+        Thread.sleep(2);
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertEquals(2, limit.getLimit());
+    }
+}
@@ -0,0 +1,103 @@
+package com.objectdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DirectBufferPoolTest {
+
+    @Test
+    void buffersReadBackWhatWasWritten() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(1024, 16, 0);
+        byte[] data = new byte[5000];
+        new Random(7).nextBytes(data);
+
+        PooledBuffer buffer = pool.newBuffer();
+        buffer.write(data, 0, 3000);
+        buffer.write(data, 3000, 2000);
+
+        assertEquals(5000, buffer.size());
+        assertEquals(5, pool.getLeasedChunks());
+        assertArrayEquals(data, readAll(buffer.newInputStream()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+
+        MessageDigest pooled = MessageDigest.getInstance("SHA-256");
+        buffer.updateDigest(pooled);
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data), pooled.digest());
+
+        assertArrayEquals(Arrays.copyOf(data, 12), buffer.head(12));
+        buffer.release();
+    }
+
+    @Test
+    void lastReleaseReturnsChunksForReuse() throws IOException {
+        DirectBufferPool pool = new DirectBufferPool(1024, 4, 0);
+
+        PooledBuffer buffer = pool.newBuffer();
+        buffer.write(new byte[4096], 0, 4096);
+        buffer.retain();
+        buffer.release();
+        assertEquals(4, pool.getLeasedChunks());
+
+        buffer.release();
+        assertEquals(0, pool.getLeasedChunks());
+        assertThrows(IllegalStateException.class, buffer::retain);
+
+        PooledBuffer reused = pool.newBuffer();
+        reused.write(new byte[4096], 0, 4096);
+        assertEquals(4, pool.getAllocatedChunks());
+        reused.release();
+    }
+
+    @Test
+    void refusesWritesBeyondTheBound() throws IOException {
+        DirectBufferPool pool = new DirectBufferPool(1024, 2, 0);
+
+        PooledBuffer buffer = pool.newBuffer();
+        buffer.write(new byte[2048], 0, 2048);
+
+        assertThrows(IOException.class, () -> buffer.write(new byte[1], 0, 1));
+        assertEquals(1, pool.getExhaustedCount());
+        buffer.release();
+    }
+
+    @Test
+    void reclaimsLeakedBuffers() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(1024, 4, 0);
+        leak(pool);
+
+        for (int i = 0; i < 50 && pool.getLeasedChunks() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, pool.getLeakCount());
+        assertEquals(0, pool.getLeasedChunks());
+    }
+
+    private static void leak(DirectBufferPool pool) throws IOException {
+        pool.newBuffer().write(new byte[3000], 0, 3000);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[777];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+package com.objectdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartStreamTest {
+
+    private static final String BOUNDARY = "----formBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void readsFieldsAndFileParts() throws IOException {
+        byte[] image = randomBytes(100_000);
+        byte[] body = body(image);
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY, 1024);
+
+        assertTrue(multipart.nextPart());
+        assertEquals("engine", multipart.getFieldName());
+        assertNull(multipart.getFileName());
+        assertEquals("onnx", new String(read(multipart), StandardCharsets.UTF_8));
+
+        assertTrue(multipart.nextPart());
+        assertEquals("image", multipart.getFieldName());
+        assertEquals("my \"cat\".jpg", multipart.getFileName());
+        assertEquals("image/jpeg", multipart.getContentType());
+        assertArrayEquals(image, read(multipart));
+
+        assertFalse(multipart.nextPart());
+        assertFalse(multipart.nextPart());
+    }
+
+    @Test
+    void skipsUnreadParts() throws IOException {
+        byte[] image = randomBytes(5_000);
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body(image)), BOUNDARY, 256);
+
+        assertTrue(multipart.nextPart());
+        assertTrue(multipart.nextPart());
+        assertEquals("image", multipart.getFieldName());
+        assertArrayEquals(image, read(multipart));
+    }
+
+    @Test
+    void findsDelimiterSplitAcrossReads() throws IOException {
+        byte[] image = randomBytes(70_000);
+        // Hands out a few bytes per read so the delimiter straddles buffer refills
+        InputStream trickle = new ByteArrayInputStream(body(image)) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                return super.read(bytes, offset, Math.min(length, 7));
+            }
+        };
+
+        MultipartStream multipart = new MultipartStream(trickle, BOUNDARY, 512);
+        multipart.nextPart();
+        multipart.nextPart();
+
+        assertArrayEquals(image, read(multipart));
+    }
+
+    @Test
+    void failsOnTruncatedBody() {
+        byte[] body = body(randomBytes(2_000));
+        byte[] truncated = new byte[body.length - 100];
+        System.arraycopy(body, 0, truncated, 0, truncated.length);
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY, 512);
+
+        assertThrows(EOFException.class, () -> {
+            while (multipart.nextPart()) {
+                read(multipart);
+            }
+        });
+    }
+
+    private static byte[] read(MultipartStream multipart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long size = multipart.readBody(out::write);
+        assertEquals(out.size(), size);
+        return out.toByteArray();
+    }
+
+    private static byte[] body(byte[] image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, "preamble is ignored\r\n");
+        write(out, "--" + BOUNDARY + "\r\n");
+        write(out, "Content-Disposition: form-data; name=\"engine\"\r\n\r\n");
+        write(out, "onnx\r\n");
+        write(out, "--" + BOUNDARY + "\r\n");
+        write(out, "Content-Disposition: form-data; name=\"image\"; filename=\"my \\\"cat\\\".jpg\"\r\n");
+        write(out, "Content-Type: image/jpeg\r\n\r\n");
+        out.writeBytes(image);
+        write(out, "\r\n--" + BOUNDARY + "--\r\n");
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        // Sprinkle line breaks and dashes so content resembles the start of a delimiter
+        for (int i = 0; i < size; i += 997) {
+            bytes[i] = '\r';
+            if (i + 1 < size) bytes[i + 1] = '\n';
+            if (i + 2 < size) bytes[i + 2] = '-';
+        }
+        return bytes;
+    }
+}
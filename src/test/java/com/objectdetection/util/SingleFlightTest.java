@@ -0,0 +1,157 @@
+package com.objectdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void asyncFollowersShareTheLeadersResult() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        CompletableFuture<String> leader = singleFlight.executeAsync("k", 10_000, () -> {
+            started.incrementAndGet();
+            return backend;
+        });
+        CompletableFuture<String> follower = singleFlight.executeAsync("k", 10_000, () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertFalse(follower.isDone());
+
+        backend.complete("result");
+        assertEquals("result", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(1, TimeUnit.SECONDS));
+        assertEquals(1, started.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void asyncFailureReachesFollowersUnwrapped() {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("k", 10_000, () -> backend.thenApply(value -> value));
+        CompletableFuture<String> follower = singleFlight.executeAsync("k", 10_000, () -> backend);
+
+        backend.completeExceptionally(new IOException("backend down"));
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(1, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, leaderError.getCause());
+        assertInstanceOf(IOException.class, followerError.getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void asyncFollowerGivesUpAfterTimeoutWithoutCancellingTheLeader() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("k", 10_000, () -> backend);
+        CompletableFuture<String> follower = singleFlight.executeAsync("k", 50, () -> backend);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertFalse(leader.isDone());
+        assertEquals(1L, singleFlight.getStatistics().get("followerTimeouts"));
+
+        backend.complete("late");
+        assertEquals("late", leader.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncLeaderIsTimedOutAndItsEntryDropped() throws Exception {
+        CompletableFuture<String> leader = singleFlight.executeAsync("k", 50, CompletableFuture::new);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(1L, singleFlight.getStatistics().get("leaderTimeouts"));
+        assertEquals(0, singleFlight.inFlightCount());
+        // The next caller leads a fresh execution instead of joining the stuck one
+        assertEquals("fresh", singleFlight.executeAsync("k", 1_000,
+                () -> CompletableFuture.completedFuture("fresh")).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void blockingCallerJoinsAnAsyncLeader() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        singleFlight.executeAsync("k", 10_000, () -> backend);
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> backend.complete("shared"));
+        assertEquals("shared", singleFlight.execute("k", 5_000, () -> "own"));
+    }
+
+    @Test
+    void blockingFollowersShareTheLeadersResult() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch leaderRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call("k", 5_000, () -> {
+            started.incrementAndGet();
+            leaderRunning.countDown();
+            release.await();
+            return "result";
+        }));
+        leaderRunning.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> call("k", 5_000, () -> {
+            started.incrementAndGet();
+            return "other";
+        }));
+        while (!Long.valueOf(1).equals(singleFlight.getStatistics().get("followers"))) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+        assertEquals("result", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(1, TimeUnit.SECONDS));
+        assertEquals(1, started.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void blockingLeaderIsTimedOutAndItsEntryDropped() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+
+        TimeoutException error = assertThrows(TimeoutException.class, () -> singleFlight.execute("k", 50, () -> {
+            never.await();
+            return "stuck";
+        }));
+
+        assertInstanceOf(InterruptedException.class, error.getCause());
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(1L, singleFlight.getStatistics().get("leaderTimeouts"));
+        assertEquals(0, singleFlight.inFlightCount());
+        // The next caller leads a fresh execution instead of joining the stuck one
+        assertEquals("fresh", singleFlight.execute("k", 1_000, () -> "fresh"));
+    }
+
+    @Test
+    void blockingLeaderFinishingInTimeKeepsNoInterrupt() throws Exception {
+        assertEquals("quick", singleFlight.execute("k", 50, () -> "quick"));
+        Thread.sleep(150);
+
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(0L, singleFlight.getStatistics().get("leaderTimeouts"));
+    }
+
+    private String call(String key, long timeoutMs, Callable<String> task) {
+        try {
+            return singleFlight.execute(key, timeoutMs, task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
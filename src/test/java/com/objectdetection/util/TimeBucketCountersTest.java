@@ -0,0 +1,57 @@
+package com.objectdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimeBucketCountersTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long START = 1_000 * HOUR;
+
+    @Test
+    void adjacentUnalignedRangesSumToTheTotal() {
+        TimeBucketCounters buckets = new TimeBucketCounters(HOUR, 48);
+        long total = 0;
+        for (long t = START; t < START + 24 * HOUR; t += 7 * 60_000) {
+            buckets.record(t, 10, 1);
+            total++;
+        }
+
+        // "Last N hours" windows ending mid-hour, as the dashboard charts ask for them
+        long now = START + 24 * HOUR + 25 * 60_000;
+        long sum = 0;
+        for (int hoursAgo = 24; hoursAgo >= 0; hoursAgo--) {
+            sum += buckets.count(now - (hoursAgo + 1) * HOUR, now - hoursAgo * HOUR);
+        }
+
+        assertEquals(total, sum);
+        assertEquals(total, buckets.count(now - 25 * HOUR, now));
+    }
+
+    @Test
+    void oneHourWindowCoversOneHourBucket() {
+        TimeBucketCounters buckets = new TimeBucketCounters(HOUR, 48);
+        buckets.record(START + 10 * 60_000, 100, 1);
+        buckets.record(START + HOUR + 10 * 60_000, 300, 2);
+
+        long from = START + 30 * 60_000;
+        assertEquals(1, buckets.count(from, from + HOUR));
+        assertEquals(300, buckets.latencySum(from, from + HOUR));
+        assertEquals(2, buckets.objectCount(from, from + HOUR));
+    }
+
+    @Test
+    void alignedRangeCoversExactlyItsBuckets() {
+        TimeBucketCounters buckets = new TimeBucketCounters(HOUR, 48);
+        buckets.record(START, 5, 1);
+        buckets.record(START + HOUR - 1, 5, 1);
+        buckets.record(START + HOUR, 5, 1);
+
+        assertEquals(2, buckets.count(START, START + HOUR));
+        assertEquals(1, buckets.count(START + HOUR, START + 2 * HOUR));
+        assertEquals(0, buckets.count(START + 10, START + 20));
+    }
+}